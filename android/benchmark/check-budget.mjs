@@ -0,0 +1,44 @@
+// Compares the median time of each benchmark with its budget in nanoSeconds, failing when one is over it
+// or missing from the results. Usage: node check-budget.mjs <budget.json> <benchmark output dir>
+import { readdirSync, readFileSync, statSync } from 'node:fs';
+import { join } from 'node:path';
+
+const [budgetFile, outputDir] = process.argv.slice(2);
+if (!budgetFile || !outputDir) {
+  console.error('Usage: node check-budget.mjs <budget.json> <benchmark output dir>');
+  process.exit(2);
+}
+
+const findResults = (dir) =>
+  readdirSync(dir).flatMap((name) => {
+    const path = join(dir, name);
+    if (statSync(path).isDirectory()) {
+      return findResults(path);
+    }
+    return name.endsWith('benchmarkData.json') ? [path] : [];
+  });
+
+const medians = new Map();
+for (const file of findResults(outputDir)) {
+  for (const benchmark of JSON.parse(readFileSync(file, 'utf8')).benchmarks) {
+    const className = benchmark.className.split('.').pop();
+    medians.set(`${className}.${benchmark.name}`, benchmark.metrics.timeNs.median);
+  }
+}
+
+const budget = JSON.parse(readFileSync(budgetFile, 'utf8'));
+let failed = false;
+for (const [name, budgetNs] of Object.entries(budget)) {
+  const medianNs = medians.get(name);
+  if (medianNs === undefined) {
+    console.error(`${name}: no result`);
+    failed = true;
+  } else if (medianNs > budgetNs) {
+    console.error(`${name}: ${Math.round(medianNs)} ns, over budget of ${budgetNs} ns`);
+    failed = true;
+  } else {
+    console.log(`${name}: ${Math.round(medianNs)} ns, budget ${budgetNs} ns`);
+  }
+}
+
+process.exit(failed ? 1 : 0);
@@ -0,0 +1,156 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.getcapacitor.JSObject;
+import com.linkedin.android.litr.TransformationListener;
+import com.linkedin.android.litr.analytics.TrackTransformationInfo;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.AudioTrackFormat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EditReport;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.GenericTrackFormat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.MediaTrackFormat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.SourceMedia;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoTrackFormat;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Per call cost of an edit request, from the options sent by the bridge to a completed job
+ */
+@RunWith(AndroidJUnit4.class)
+public class EditRequestBenchmark {
+
+    private static final String OPTIONS =
+        "{\"trim\":{\"startsAt\":0,\"endsAt\":1000}," +
+        "\"transcode\":{\"height\":360,\"width\":640,\"keepAspectRatio\":true,\"fps\":30,\"quality\":\"high\",\"audio\":\"copy\"}}";
+
+    /**
+     * Results are stored here so the measured code is not dropped
+     */
+    static volatile Object sink;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private Context context;
+    private Uri sourceUri;
+    private File outFile;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        File source = new File(context.getCacheDir(), "benchmark-source.mp4");
+        SourceClip.write(source, 1280, 720, 30, 60);
+        sourceUri = Uri.fromFile(source);
+        outFile = new File(context.getCacheDir(), "benchmark-output.mp4");
+    }
+
+    @Test
+    public void parseEditOptions() throws Exception {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            JSObject options = new JSObject(OPTIONS);
+            TrimSettings trimSettings = VideoEditorPlugin.createTrimSettings(options.getJSObject("trim"));
+            TranscodeSettings transcodeSettings = VideoEditorPlugin.createTranscodeSettings(options.getJSObject("transcode"));
+
+            sink = trimSettings.getEndsAt() + transcodeSettings.getHeight();
+        }
+    }
+
+    /**
+     * Runs the whole edit path, probing and planning included, with a transformer that completes as soon as it starts
+     */
+    @Test
+    public void edit() throws Exception {
+        VideoEditorLitr videoEditor = new VideoEditorLitr(1, StubMediaTransformer::new);
+
+        try {
+            BenchmarkState state = benchmarkRule.getState();
+            while (state.keepRunning()) {
+                JSObject options = new JSObject(OPTIONS);
+                TrimSettings trimSettings = VideoEditorPlugin.createTrimSettings(options.getJSObject("trim"));
+                TranscodeSettings transcodeSettings = VideoEditorPlugin.createTranscodeSettings(options.getJSObject("transcode"));
+
+                EditListener listener = new EditListener();
+                videoEditor.edit(
+                    context,
+                    sourceUri,
+                    outFile,
+                    trimSettings,
+                    transcodeSettings,
+                    new ProgressSettings(),
+                    0,
+                    new EditReport(),
+                    listener
+                );
+                listener.done.await();
+
+                assertNull(listener.error);
+            }
+        } finally {
+            videoEditor.shutdown();
+        }
+    }
+
+    @Test
+    public void classifyTracks() {
+        List<MediaTrackFormat> tracks = new ArrayList<>();
+        tracks.add(new VideoTrackFormat(0, "video/avc"));
+        tracks.add(new AudioTrackFormat(1, "audio/mp4a-latm"));
+        tracks.add(new AudioTrackFormat(2, "audio/mp4a-latm"));
+        tracks.add(new GenericTrackFormat(3, "application/octet-stream"));
+        SourceMedia sourceMedia = new SourceMedia(Uri.parse("file:///video.mp4"), 1024 * 1024, 60_000f, tracks);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            sink = sourceMedia.getVideoTracks().size() + sourceMedia.getAudioTracks().size();
+        }
+    }
+
+    private static class EditListener implements TransformationListener {
+
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile Throwable error;
+
+        @Override
+        public void onStarted(@NonNull String id) {}
+
+        @Override
+        public void onProgress(@NonNull String id, float progress) {}
+
+        @Override
+        public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+            done.countDown();
+        }
+
+        @Override
+        public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+            error = new IllegalStateException("Edit cancelled");
+            done.countDown();
+        }
+
+        @Override
+        public void onError(
+            @NonNull String id,
+            @Nullable Throwable cause,
+            @Nullable List<TrackTransformationInfo> trackTransformationInfos
+        ) {
+            error = cause != null ? cause : new IllegalStateException("Edit failed");
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoTrackFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Per call cost of the edit planning done before a transcode starts
+ */
+@RunWith(AndroidJUnit4.class)
+public class PlanningBenchmark {
+
+    /**
+     * Results are stored here so the measured code is not dropped
+     */
+    static volatile Object sink;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private static VideoTrackFormat videoTrack(int width, int height) {
+        VideoTrackFormat videoTrack = new VideoTrackFormat(0, "video/avc");
+        videoTrack.width = width;
+        videoTrack.height = height;
+        videoTrack.frameRate = 30;
+        return videoTrack;
+    }
+
+    @Test
+    public void calculateTargetVideoSize() {
+        VideoTrackFormat landscape = videoTrack(3840, 2160);
+        VideoTrackFormat portrait = videoTrack(1080, 1920);
+        TranscodeSettings keepAspectRatio = new TranscodeSettings(720, 0, true, 30);
+        TranscodeSettings fixed = new TranscodeSettings(720, 1280, false, 30);
+
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            sink = VideoEditorLitr.calculateTargetVideoSize(i % 2 == 0 ? landscape : portrait, i % 3 == 0 ? fixed : keepAspectRatio);
+            i++;
+        }
+    }
+
+    @Test
+    public void calculateVideoSizeAtMost() {
+        VideoTrackFormat landscape = videoTrack(1920, 1080);
+        VideoTrackFormat portrait = videoTrack(1080, 1920);
+
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            sink = VideoEditorLitr.calculateVideoSizeAtMost(i % 2 == 0 ? landscape : portrait, 480 + (i % 4) * 240);
+            i++;
+        }
+    }
+
+    @Test
+    public void bitrateForQuality() {
+        String[] qualities = { TranscodeSettings.QUALITY_LOW, TranscodeSettings.QUALITY_MEDIUM, TranscodeSettings.QUALITY_HIGH };
+
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            sink = BitratePlanner.bitrateForQuality(qualities[i % 3], (i % 11) / 10f, 1280, 720, 30);
+            i++;
+        }
+    }
+
+    @Test
+    public void bitrateForSize() {
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            sink = BitratePlanner.bitrateForSize(25L * 1024 * 1024 + i, 60_000_000L, 128_000);
+            i++;
+        }
+    }
+
+    @Test
+    public void complexity() {
+        // Samples of the default sampled GOPs, a key frame followed by predicted frames
+        int count = VideoSampler.DEFAULT_GOP_COUNT * 30;
+        int[] sizes = new int[count];
+        boolean[] keyFrames = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            keyFrames[i] = i % 30 == 0;
+            sizes[i] = keyFrames[i] ? 100_000 : 4_000 + i;
+        }
+        BitratePlanner.Samples samples = new BitratePlanner.Samples(sizes, keyFrames);
+
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            sink = BitratePlanner.complexity(samples);
+        }
+    }
+
+    @Test
+    public void createSettings() {
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            TranscodeSettings transcodeSettings = new TranscodeSettings(720, 1280, true, 30);
+            transcodeSettings.setCodec(TranscodeSettings.CODEC_AVC);
+            transcodeSettings.setKeyFrameInterval(5);
+            transcodeSettings.setQuality(TranscodeSettings.QUALITY_MEDIUM);
+            transcodeSettings.setAudio(TranscodeSettings.AUDIO_COPY);
+
+            TrimSettings trimSettings = new TrimSettings(i, i + 10_000L, false);
+
+            sink = trimSettings.getEndsAt() + transcodeSettings.getHeight();
+            i++;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Writes a short AVC clip for the benchmarks, encoded on the device so no media has to be checked in
+ */
+final class SourceClip {
+
+    private static final long TIMEOUT_US = 10_000;
+
+    private SourceClip() {}
+
+    static void write(File file, int width, int height, int frameRate, int frameCount) throws IOException {
+        MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, width, height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatYUV420Flexible);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, 2_000_000);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, frameRate);
+        format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, 1);
+
+        MediaCodec encoder = MediaCodec.createEncoderByType(MediaFormat.MIMETYPE_VIDEO_AVC);
+        MediaMuxer muxer = new MediaMuxer(file.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        try {
+            encoder.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+            encoder.start();
+
+            byte[] frame = new byte[width * height * 3 / 2];
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            int track = -1;
+            int queued = 0;
+            boolean done = false;
+            while (!done) {
+                if (queued <= frameCount) {
+                    int inputIndex = encoder.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        long presentationTimeUs = queued * 1_000_000L / frameRate;
+                        if (queued == frameCount) {
+                            encoder.queueInputBuffer(inputIndex, 0, 0, presentationTimeUs, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        } else {
+                            ByteBuffer input = encoder.getInputBuffer(inputIndex);
+                            input.clear();
+                            // Frames differ, so the encoder writes predicted frames with some content
+                            Arrays.fill(frame, (byte) (queued * 8));
+                            int size = Math.min(frame.length, input.remaining());
+                            input.put(frame, 0, size);
+                            encoder.queueInputBuffer(inputIndex, 0, size, presentationTimeUs, 0);
+                        }
+                        queued++;
+                    }
+                }
+
+                int outputIndex = encoder.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+                if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    track = muxer.addTrack(encoder.getOutputFormat());
+                    muxer.start();
+                } else if (outputIndex >= 0) {
+                    if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) == 0 && bufferInfo.size > 0) {
+                        muxer.writeSampleData(track, encoder.getOutputBuffer(outputIndex), bufferInfo);
+                    }
+                    done = (bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                    encoder.releaseOutputBuffer(outputIndex, false);
+                }
+            }
+
+            muxer.stop();
+        } finally {
+            encoder.release();
+            muxer.release();
+        }
+    }
+}
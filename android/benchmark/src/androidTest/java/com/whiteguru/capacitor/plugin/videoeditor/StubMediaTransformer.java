@@ -0,0 +1,37 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.media.MediaFormat;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.linkedin.android.litr.MediaTransformer;
+import com.linkedin.android.litr.TransformationListener;
+import com.linkedin.android.litr.TransformationOptions;
+
+/**
+ * Completes each transform as soon as it is started, so edits are measured without decoding or encoding
+ */
+class StubMediaTransformer extends MediaTransformer {
+
+    StubMediaTransformer(@NonNull Context context) {
+        super(context);
+    }
+
+    @Override
+    public void transform(
+        @NonNull String requestId,
+        @NonNull Uri inputUri,
+        @NonNull String outputFilePath,
+        @Nullable MediaFormat targetVideoFormat,
+        @Nullable MediaFormat targetAudioFormat,
+        @NonNull TransformationListener listener,
+        @Nullable TransformationOptions transformationOptions
+    ) {
+        listener.onStarted(requestId);
+        listener.onCompleted(requestId, null);
+    }
+
+    @Override
+    public void cancel(@NonNull String requestId) {}
+}
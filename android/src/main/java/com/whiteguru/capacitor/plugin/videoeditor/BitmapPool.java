@@ -0,0 +1,76 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.graphics.Bitmap;
+import androidx.annotation.NonNull;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Keeps released mutable bitmaps so same-sized thumbnails reuse them instead of allocating new ones.
+ */
+public class BitmapPool {
+
+    static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    private final long maxBytes;
+    private final ArrayDeque<Bitmap> bitmaps = new ArrayDeque<>();
+    private long bytes = 0;
+
+    public BitmapPool() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a pooled bitmap with the given size and config, or a new one
+     */
+    @NonNull
+    public synchronized Bitmap acquire(int width, int height, @NonNull Bitmap.Config config) {
+        Iterator<Bitmap> iterator = bitmaps.iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                iterator.remove();
+                bytes -= bitmap.getAllocationByteCount();
+                return bitmap;
+            }
+        }
+
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Gives a bitmap back to the pool, recycling it if it can not be reused or does not fit
+     */
+    public synchronized void release(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled()) {
+            return;
+        }
+
+        int size = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        while (bytes + size > maxBytes) {
+            Bitmap eldest = bitmaps.removeFirst();
+            bytes -= eldest.getAllocationByteCount();
+            eldest.recycle();
+        }
+
+        bitmaps.addLast(bitmap);
+        bytes += size;
+    }
+
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        bytes = 0;
+    }
+}
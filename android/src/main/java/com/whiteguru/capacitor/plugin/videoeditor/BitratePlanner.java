@@ -0,0 +1,128 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+/**
+ * Plans the target video bitrate from the complexity of the source or from a target file size.
+ * Complexity is estimated from compressed sample sizes only: the smaller the predicted frames are
+ * compared to the key frames, the less motion the content has.
+ */
+public class BitratePlanner {
+
+    // Bits per pixel per frame {lowest complexity, highest complexity}, by quality tier
+    static final float[] LOW_BPP = { 0.03f, 0.08f };
+    static final float[] MEDIUM_BPP = { 0.05f, 0.14f };
+    static final float[] HIGH_BPP = { 0.08f, 0.20f };
+
+    // Predicted to key frame size ratio considered full motion
+    static final float FULL_MOTION_RATIO = 0.5f;
+
+    // Share of the target size left for the video track, the rest goes to container overhead
+    static final float CONTAINER_OVERHEAD_FACTOR = 0.97f;
+
+    static final int MIN_VIDEO_BITRATE = 100_000;
+
+    /**
+     * Compressed video samples, in decode order
+     */
+    public static class Samples {
+
+        public final int[] sizes;
+        public final boolean[] keyFrames;
+
+        public Samples(int[] sizes, boolean[] keyFrames) {
+            if (sizes.length != keyFrames.length) {
+                throw new IllegalArgumentException("Parameters sizes and keyFrames must have the same length");
+            }
+
+            this.sizes = sizes;
+            this.keyFrames = keyFrames;
+        }
+    }
+
+    /**
+     * Estimates content complexity from the ratio between predicted and key frame sizes
+     * @param samples compressed samples of one or more GOPs
+     * @return complexity from 0 (static) to 1 (full motion), -1 if there are no key and predicted frames to compare
+     */
+    public static float complexity(Samples samples) {
+        long keyBytes = 0;
+        long predictedBytes = 0;
+        int keyCount = 0;
+        int predictedCount = 0;
+
+        for (int i = 0; i < samples.sizes.length; i++) {
+            if (samples.sizes[i] <= 0) {
+                continue;
+            }
+
+            if (samples.keyFrames[i]) {
+                keyBytes += samples.sizes[i];
+                keyCount++;
+            } else {
+                predictedBytes += samples.sizes[i];
+                predictedCount++;
+            }
+        }
+
+        if (keyCount == 0 || predictedCount == 0) {
+            return -1;
+        }
+
+        double ratio = ((double) predictedBytes / predictedCount) / ((double) keyBytes / keyCount);
+
+        return (float) Math.min(1, Math.sqrt(ratio / FULL_MOTION_RATIO));
+    }
+
+    /**
+     * Returns the bitrate for a quality tier
+     * @param quality one of TranscodeSettings.QUALITY_*
+     * @param complexity value returned by {@link #complexity(Samples)}, -1 if unknown
+     * @return bitrate in bits/sec
+     */
+    public static int bitrateForQuality(String quality, float complexity, int width, int height, int frameRate) {
+        float[] bpp;
+        switch (quality) {
+            case TranscodeSettings.QUALITY_LOW:
+                bpp = LOW_BPP;
+                break;
+            case TranscodeSettings.QUALITY_HIGH:
+                bpp = HIGH_BPP;
+                break;
+            default:
+                bpp = MEDIUM_BPP;
+        }
+
+        // Unknown complexity is planned as full motion
+        float weight = complexity < 0 ? 1 : Math.min(1, complexity);
+        float bitsPerPixel = bpp[0] + (bpp[1] - bpp[0]) * weight;
+
+        return (int) Math.min(Integer.MAX_VALUE, (long) (bitsPerPixel * width * height * frameRate));
+    }
+
+    /**
+     * Returns the duration of the output of a source range
+     * @param rangeUs source range in microSeconds
+     * @param timeLapse speed up factor, 1 for real time
+     * @return output duration in microSeconds, at least 1
+     */
+    public static long outputDurationUs(long rangeUs, float timeLapse) {
+        return Math.max(1, (long) (rangeUs / timeLapse));
+    }
+
+    /**
+     * Returns the video bitrate that fits the output in a target size
+     * @param targetBytes target file size in bytes
+     * @param durationUs output duration in microSeconds
+     * @param audioBitrate bitrate of the audio track in bits/sec, 0 if there is no audio
+     * @return bitrate in bits/sec, never lower than MIN_VIDEO_BITRATE
+     */
+    public static int bitrateForSize(long targetBytes, long durationUs, int audioBitrate) {
+        if (durationUs <= 0) {
+            throw new IllegalArgumentException("Parameter durationUs must be greater than 0");
+        }
+
+        double totalBitrate = targetBytes * 8 * CONTAINER_OVERHEAD_FACTOR / (durationUs / 1_000_000.0);
+        double videoBitrate = totalBitrate - audioBitrate;
+
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(MIN_VIDEO_BITRATE, videoBitrate));
+    }
+}
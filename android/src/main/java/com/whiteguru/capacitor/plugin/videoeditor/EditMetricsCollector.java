@@ -0,0 +1,155 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.linkedin.android.litr.analytics.TrackTransformationInfo;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EditMetrics;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.SourceMedia;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.TrackMetrics;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Collects the metrics of an edit. Created when the edit starts, collected once the output is written.
+ * Only the output is read, its tracks are scanned without reading sample data; per track bytes are only available on API 28+.
+ */
+public class EditMetricsCollector {
+
+    private final long queueTime;
+    private final long startedAt = SystemClock.elapsedRealtime();
+    private long probeTime = 0;
+
+    public EditMetricsCollector(long queueTime) {
+        this.queueTime = queueTime;
+    }
+
+    public void setProbeTime(long probeTime) {
+        this.probeTime = probeTime;
+    }
+
+    /**
+     * @param passthrough true if samples were copied without transcoding
+     * @param trackTransformationInfos transcoder stats, null if there are none
+     */
+    @NonNull
+    public EditMetrics collect(
+        @NonNull SourceMedia sourceMedia,
+        @NonNull File outFile,
+        boolean passthrough,
+        @Nullable List<TrackTransformationInfo> trackTransformationInfos
+    ) throws IOException {
+        EditMetrics metrics = new EditMetrics();
+
+        metrics.passthrough = passthrough;
+        metrics.queueTime = queueTime;
+        metrics.probeTime = probeTime;
+        metrics.wallTime = SystemClock.elapsedRealtime() - startedAt;
+
+        if (sourceMedia.size > 0) {
+            metrics.inputBytes = sourceMedia.size;
+            if (sourceMedia.durationMs > 0) {
+                metrics.inputBitrate = (long) (sourceMedia.size * 8 / (sourceMedia.durationMs / 1000));
+            }
+        }
+
+        metrics.outputBytes = outFile.length();
+        scanOutput(outFile, metrics);
+        if (metrics.outputDurationMs > 0) {
+            metrics.outputBitrate = metrics.outputBytes * 8 * 1000 / metrics.outputDurationMs;
+        }
+
+        if (trackTransformationInfos != null) {
+            mergeTransformationInfos(trackTransformationInfos, metrics);
+        }
+
+        int videoSamples = 0;
+        for (TrackMetrics track : metrics.tracks) {
+            if (track.mimeType != null && track.mimeType.startsWith("video")) {
+                videoSamples += track.samples;
+            }
+        }
+
+        if (!passthrough) {
+            metrics.encodedFrames = videoSamples;
+        }
+        if (metrics.wallTime > 0) {
+            metrics.fps = videoSamples * 1000f / metrics.wallTime;
+        }
+
+        return metrics;
+    }
+
+    private static void scanOutput(File outFile, EditMetrics metrics) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(outFile.getPath());
+
+            long[] durations = new long[extractor.getTrackCount()];
+            for (int track = 0; track < extractor.getTrackCount(); track++) {
+                MediaFormat format = extractor.getTrackFormat(track);
+
+                TrackMetrics trackMetrics = new TrackMetrics();
+                trackMetrics.mimeType = format.getString(MediaFormat.KEY_MIME);
+                trackMetrics.bytes = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P ? 0 : -1;
+                metrics.tracks.add(trackMetrics);
+
+                durations[track] = MediaFormatUtils.getLong(format, MediaFormat.KEY_DURATION);
+                metrics.outputDurationMs = Math.max(metrics.outputDurationMs, durations[track] / 1000);
+
+                extractor.selectTrack(track);
+            }
+
+            int track;
+            while ((track = extractor.getSampleTrackIndex()) >= 0) {
+                TrackMetrics trackMetrics = metrics.tracks.get(track);
+                trackMetrics.samples++;
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                    trackMetrics.bytes += extractor.getSampleSize();
+                }
+
+                extractor.advance();
+            }
+
+            for (int i = 0; i < durations.length; i++) {
+                TrackMetrics trackMetrics = metrics.tracks.get(i);
+                if (trackMetrics.bytes >= 0 && durations[i] > 0) {
+                    trackMetrics.bitrate = trackMetrics.bytes * 8 * 1_000_000 / durations[i];
+                }
+            }
+        } finally {
+            extractor.release();
+        }
+    }
+
+    /**
+     * Matches transcoder stats to output tracks of the same type, in track order
+     */
+    private static void mergeTransformationInfos(List<TrackTransformationInfo> trackTransformationInfos, EditMetrics metrics) {
+        for (TrackTransformationInfo info : trackTransformationInfos) {
+            MediaFormat format = info.getTargetFormat() != null ? info.getTargetFormat() : info.getSourceFormat();
+            String mimeType = format != null ? format.getString(MediaFormat.KEY_MIME) : null;
+            if (mimeType == null) {
+                continue;
+            }
+
+            String type = mimeType.substring(0, mimeType.indexOf('/') + 1);
+            for (TrackMetrics trackMetrics : metrics.tracks) {
+                if (trackMetrics.mimeType == null || !trackMetrics.mimeType.startsWith(type) || trackMetrics.processingTime >= 0) {
+                    continue;
+                }
+
+                trackMetrics.decoder = info.getDecoderCodec();
+                trackMetrics.decoderHardware = MediaCodecUtils.isHardware(info.getDecoderCodec());
+                trackMetrics.encoder = info.getEncoderCodec();
+                trackMetrics.encoderHardware = MediaCodecUtils.isHardware(info.getEncoderCodec());
+                trackMetrics.processingTime = info.getDuration();
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+import com.getcapacitor.Logger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs edit jobs by priority, keeping at most maxConcurrency of them running at the same time.
+ * A running job holds its slot until {@link #finish(String)} is called for it.
+ */
+public class EditScheduler {
+
+    public interface Task {
+        void run(@NonNull Job job);
+    }
+
+    public static class Job {
+
+        public static final String STATE_QUEUED = "queued";
+        public static final String STATE_RUNNING = "running";
+
+        private final String id;
+        private final int priority;
+        private final long sequence;
+        private final Task task;
+        private final long queuedAt;
+        private String state = STATE_QUEUED;
+        private boolean cancelled = false;
+        private Runnable cancelHandler;
+
+        Job(@NonNull String id, int priority, long sequence, @NonNull Task task, @NonNull Runnable cancelHandler) {
+            this(id, priority, sequence, SystemClock.elapsedRealtime(), task, cancelHandler);
+        }
+
+        private Job(
+            @NonNull String id,
+            int priority,
+            long sequence,
+            long queuedAt,
+            @NonNull Task task,
+            @NonNull Runnable cancelHandler
+        ) {
+            this.id = id;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.queuedAt = queuedAt;
+            this.task = task;
+            this.cancelHandler = cancelHandler;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Get SystemClock.elapsedRealtime when the job was queued
+         * @return queue time in miliSeconds
+         */
+        public long getQueuedAt() {
+            return queuedAt;
+        }
+
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Replaces the handler run when the job is cancelled
+         * @param cancelHandler Handler that stops the running work
+         * @return false if the job was already cancelled, the handler is not installed
+         */
+        public synchronized boolean setCancelHandler(@NonNull Runnable cancelHandler) {
+            if (cancelled) {
+                return false;
+            }
+
+            this.cancelHandler = cancelHandler;
+            return true;
+        }
+
+        /**
+         * Creates a job for a part of this one, with the same id and queue time.
+         * It is not scheduled, the owner of this job runs and cancels it.
+         * @param cancelHandler Handler run if the part is cancelled before its work installs its own
+         */
+        Job split(@NonNull Runnable cancelHandler) {
+            Job part = new Job(id, priority, sequence, queuedAt, task, cancelHandler);
+            part.state = STATE_RUNNING;
+            return part;
+        }
+
+        void cancel() {
+            Runnable handler;
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                cancelled = true;
+                handler = cancelHandler;
+            }
+
+            handler.run();
+        }
+    }
+
+    private final PriorityQueue<Job> queue = new PriorityQueue<>((a, b) ->
+        a.priority != b.priority ? Integer.compare(b.priority, a.priority) : Long.compare(a.sequence, b.sequence)
+    );
+    private final Map<String, Job> jobs = new HashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private int maxConcurrency;
+    private int running = 0;
+    private long nextSequence = 0;
+
+    public EditScheduler(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+    }
+
+    public synchronized int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public synchronized void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Parameter maxConcurrency cannot be lower than 1");
+        }
+
+        this.maxConcurrency = maxConcurrency;
+        dispatch();
+    }
+
+    /**
+     * Adds a job to the queue
+     * @param id Job id
+     * @param priority Higher priorities run first, jobs with the same priority run in order of arrival
+     * @param task Work to run when a slot is available
+     * @param cancelHandler Handler run if the job is cancelled before the task installs its own
+     * @return queue position, 0 if the job is already running, -1 if the scheduler is shut down and the job was cancelled
+     */
+    public int enqueue(@NonNull String id, int priority, @NonNull Task task, @NonNull Runnable cancelHandler) {
+        Job job;
+        synchronized (this) {
+            job = new Job(id, priority, nextSequence++, task, cancelHandler);
+            if (!executor.isShutdown()) {
+                jobs.put(id, job);
+                queue.add(job);
+                dispatch();
+
+                return getPosition(id);
+            }
+        }
+
+        job.cancel();
+        return -1;
+    }
+
+    /**
+     * Returns the position of a job
+     * @param id Job id
+     * @return 0 if running, 1 or greater if queued, -1 if unknown
+     */
+    public synchronized int getPosition(@NonNull String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            return -1;
+        }
+        if (Job.STATE_RUNNING.equals(job.state)) {
+            return 0;
+        }
+
+        int position = 1;
+        for (Job queued : queue) {
+            if (queue.comparator().compare(queued, job) < 0) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Cancels a queued or running job
+     * @param id Job id
+     * @return false if the job is unknown
+     */
+    public boolean cancel(@NonNull String id) {
+        Job job;
+        synchronized (this) {
+            job = jobs.get(id);
+            if (job == null) {
+                return false;
+            }
+
+            if (Job.STATE_QUEUED.equals(job.state)) {
+                queue.remove(job);
+                jobs.remove(id);
+            }
+        }
+
+        job.cancel();
+        return true;
+    }
+
+    /**
+     * Releases the slot held by a running job
+     * @param id Job id
+     */
+    public synchronized void finish(@NonNull String id) {
+        Job job = jobs.remove(id);
+        if (job == null) {
+            return;
+        }
+
+        if (Job.STATE_RUNNING.equals(job.state)) {
+            running--;
+        } else {
+            queue.remove(job);
+        }
+        dispatch();
+    }
+
+    /**
+     * Runs a part of a running job, created with split, on a worker thread of its own without taking a slot
+     * @param part Job part
+     * @param task Work of the part
+     * @return false if the scheduler is shut down, the task is not run
+     */
+    public synchronized boolean runPart(@NonNull Job part, @NonNull Task task) {
+        if (executor.isShutdown()) {
+            return false;
+        }
+
+        executor.execute(() -> {
+            try {
+                task.run(part);
+            } catch (RuntimeException ex) {
+                Logger.error("Part of edit job " + part.id + " failed", ex);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Stops the worker threads once the running jobs return, queued jobs are cancelled instead of started
+     */
+    public void shutdown() {
+        List<Job> queued;
+        synchronized (this) {
+            queued = new ArrayList<>(queue);
+            for (Job job : queued) {
+                jobs.remove(job.id);
+            }
+            queue.clear();
+            executor.shutdown();
+        }
+
+        for (Job job : queued) {
+            job.cancel();
+        }
+    }
+
+    private void dispatch() {
+        while (running < maxConcurrency && !queue.isEmpty() && !executor.isShutdown()) {
+            Job job = queue.poll();
+            job.state = Job.STATE_RUNNING;
+            running++;
+
+            executor.execute(() -> {
+                try {
+                    job.task.run(job);
+                } catch (RuntimeException ex) {
+                    Logger.error("Edit job " + job.id + " failed", ex);
+                    finish(job.id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.app.NotificationCompat;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.ForegroundInfo;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import com.getcapacitor.Logger;
+import com.linkedin.android.litr.TransformationListener;
+import com.linkedin.android.litr.analytics.TrackTransformationInfo;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EditReport;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Runs a resumable edit from its job record. WorkManager runs it again if the process dies or the work is stopped,
+ * and the edit resumes from the segments already written. It runs as a foreground service when allowed, so long edits are not stopped.
+ */
+public class EditWorker extends Worker {
+
+    static final String KEY_JOB_ID = "jobId";
+    private static final String CHANNEL_ID = "video-editor";
+
+    private static final Map<String, TransformationListener> listeners = new ConcurrentHashMap<>();
+    private static final Set<String> running = ConcurrentHashMap.newKeySet(); // job ids with a worker in this process
+    private static volatile VideoEditorLitr sharedImplementation;
+
+    private volatile VideoEditorLitr implementation;
+    private volatile String runId;
+
+    public EditWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Sets the editor runs are queued in, a private one is created when the plugin is not loaded
+     */
+    static void setImplementation(@Nullable VideoEditorLitr implementation) {
+        sharedImplementation = implementation;
+    }
+
+    /**
+     * Sets the listener notified with the job id, for jobs started by the running process
+     */
+    static void setListener(@NonNull String jobId, @Nullable TransformationListener listener) {
+        if (listener == null) {
+            listeners.remove(jobId);
+        } else {
+            listeners.put(jobId, listener);
+        }
+    }
+
+    public static void enqueue(@NonNull Context context, @NonNull String jobId) {
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(EditWorker.class)
+            .setInputData(new Data.Builder().putString(KEY_JOB_ID, jobId).build())
+            .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(jobId, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Returns whether a worker of this process is running the job, it deletes the job itself if cancelled
+     */
+    static boolean isRunning(@NonNull String jobId) {
+        return running.contains(jobId);
+    }
+
+    /**
+     * Cancels the work of a job, its listener is notified at once
+     */
+    public static void cancel(@NonNull Context context, @NonNull String jobId) {
+        WorkManager.getInstance(context).cancelUniqueWork(jobId);
+
+        TransformationListener listener = listeners.remove(jobId);
+        if (listener != null) {
+            listener.onCancelled(jobId, null);
+        }
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String jobId = getInputData().getString(KEY_JOB_ID);
+        if (jobId == null) {
+            return Result.failure();
+        }
+
+        running.add(jobId);
+        try {
+            return run(jobId);
+        } finally {
+            running.remove(jobId);
+        }
+    }
+
+    private Result run(String jobId) {
+        JobStore jobStore = new JobStore(getApplicationContext());
+        JobRecord record = jobStore.load(jobId);
+        if (record != null && JobRecord.STATE_CANCELLED.equals(record.state)) {
+            delete(jobStore, record);
+            return Result.success();
+        }
+        if (record == null || !JobRecord.STATE_RUNNING.equals(record.state)) {
+            return Result.success();
+        }
+
+        try {
+            setForegroundAsync(createForegroundInfo()).get();
+        } catch (ExecutionException ex) {
+            // Not allowed while the app is in the background from Android 12, the edit runs as regular work
+            Logger.warn("Cannot run edit " + jobId + " in the foreground: " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        implementation = sharedImplementation != null ? sharedImplementation : new VideoEditorLitr(1);
+
+        CountDownLatch done = new CountDownLatch(1);
+        String[] outcome = new String[1];
+        Throwable[] error = new Throwable[1];
+
+        runId = implementation.editResumable(
+            getApplicationContext(),
+            record,
+            jobStore,
+            new ProgressSettings(),
+            0,
+            new EditReport(),
+            new TransformationListener() {
+                @Override
+                public void onStarted(@NonNull String id) {
+                    TransformationListener listener = listeners.get(jobId);
+                    if (listener != null) {
+                        listener.onStarted(jobId);
+                    }
+                }
+
+                @Override
+                public void onProgress(@NonNull String id, float progress) {
+                    TransformationListener listener = listeners.get(jobId);
+                    if (listener != null) {
+                        listener.onProgress(jobId, progress);
+                    }
+                }
+
+                @Override
+                public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                    outcome[0] = JobRecord.STATE_COMPLETED;
+                    done.countDown();
+                }
+
+                @Override
+                public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onError(
+                    @NonNull String id,
+                    @Nullable Throwable cause,
+                    @Nullable List<TrackTransformationInfo> trackTransformationInfos
+                ) {
+                    outcome[0] = JobRecord.STATE_FAILED;
+                    error[0] = cause;
+                    done.countDown();
+                }
+            }
+        );
+
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            implementation.cancel(runId);
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        JobRecord stored = jobStore.load(jobId);
+        if (stored != null && JobRecord.STATE_CANCELLED.equals(stored.state)) {
+            delete(jobStore, stored);
+            return Result.success();
+        }
+
+        // Stopped by the system or cancelled by the editor shutting down, resumed on the next run
+        if (outcome[0] == null) {
+            return Result.retry();
+        }
+
+        record.state = outcome[0];
+        record.error = error[0] != null ? error[0].getMessage() : null;
+        try {
+            if (!jobStore.update(record)) {
+                // Cancelled while the output was being written
+                delete(jobStore, record);
+                return Result.success();
+            }
+        } catch (IOException ex) {
+            Logger.error("Cannot save job " + jobId, ex);
+        }
+        jobStore.deleteSegments(jobId);
+
+        TransformationListener listener = listeners.remove(jobId);
+        if (listener != null) {
+            if (JobRecord.STATE_COMPLETED.equals(record.state)) {
+                listener.onCompleted(jobId, null);
+            } else {
+                listener.onError(jobId, error[0], null);
+            }
+        }
+
+        return JobRecord.STATE_COMPLETED.equals(record.state) ? Result.success() : Result.failure();
+    }
+
+    /**
+     * Deletes a cancelled job and its partial output, which is not committed to the output store yet
+     */
+    private static void delete(JobStore jobStore, JobRecord record) {
+        Logger.debug("Deleting cancelled job " + record.id);
+
+        jobStore.delete(record.id);
+        File outputFile = new File(record.output);
+        if (outputFile.exists() && !outputFile.delete()) {
+            Logger.warn("Cannot delete " + outputFile.getAbsolutePath());
+        }
+    }
+
+    private ForegroundInfo createForegroundInfo() {
+        Context context = getApplicationContext();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+            notificationManager.createNotificationChannel(
+                new NotificationChannel(CHANNEL_ID, "Video editing", NotificationManager.IMPORTANCE_LOW)
+            );
+        }
+
+        Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+            .setContentTitle("Editing video")
+            .setSmallIcon(context.getApplicationInfo().icon)
+            .setProgress(0, 0, true)
+            .setOngoing(true)
+            .setSilent(true)
+            .build();
+
+        int notificationId = getId().hashCode();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return new ForegroundInfo(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_DATA_SYNC);
+        }
+        return new ForegroundInfo(notificationId, notification);
+    }
+
+    @Override
+    public void onStopped() {
+        VideoEditorLitr implementation = this.implementation;
+        String runId = this.runId;
+        if (implementation != null && runId != null) {
+            implementation.cancel(runId);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Surface;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Receives decoded frames on a SurfaceTexture and draws each one into several encoder input surfaces,
+ * scaling and optionally rotating it to the size of every surface. All the surfaces share one EGL context, so a frame is
+ * uploaded once whatever the number of outputs.
+ */
+public class EglFrameRenderer {
+
+    private static final int EGL_RECORDABLE_ANDROID = 0x3142;
+    private static final long FRAME_TIMEOUT_MS = 2500;
+
+    private static final String VERTEX_SHADER =
+        "uniform mat4 uTexMatrix;\n" +
+        "uniform mat4 uMvpMatrix;\n" +
+        "attribute vec4 aPosition;\n" +
+        "attribute vec4 aTextureCoord;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "void main() {\n" +
+        "    gl_Position = uMvpMatrix * aPosition;\n" +
+        "    vTextureCoord = (uTexMatrix * aTextureCoord).xy;\n" +
+        "}\n";
+
+    private static final String FRAGMENT_SHADER =
+        "#extension GL_OES_EGL_image_external : require\n" +
+        "precision mediump float;\n" +
+        "varying vec2 vTextureCoord;\n" +
+        "uniform samplerExternalOES sTexture;\n" +
+        "void main() {\n" +
+        "    gl_FragColor = texture2D(sTexture, vTextureCoord);\n" +
+        "}\n";
+
+    private static final float[] POSITIONS = { -1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f };
+    private static final float[] TEXTURE_COORDS = { 0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f };
+
+    private final EGLDisplay eglDisplay;
+    private final EGLConfig eglConfig;
+    private final EGLContext eglContext;
+    private final List<EGLSurface> eglSurfaces = new ArrayList<>();
+    private final FloatBuffer positions = createFloatBuffer(POSITIONS);
+    private final FloatBuffer textureCoords = createFloatBuffer(TEXTURE_COORDS);
+    private final float[] texMatrix = new float[16];
+    private final float[] mvpMatrix = new float[16];
+    private final Object frameLock = new Object();
+    private boolean frameAvailable = false;
+
+    private HandlerThread frameThread;
+    private SurfaceTexture surfaceTexture;
+    private Surface inputSurface;
+    private int textureId;
+    private int program;
+    private int positionLocation;
+    private int textureCoordLocation;
+    private int texMatrixLocation;
+    private int mvpMatrixLocation;
+
+    public EglFrameRenderer() throws IOException {
+        eglDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        int[] version = new int[2];
+        if (eglDisplay == EGL14.EGL_NO_DISPLAY || !EGL14.eglInitialize(eglDisplay, version, 0, version, 1)) {
+            throw new IOException("Cannot initialize EGL");
+        }
+
+        int[] configAttributes = {
+            EGL14.EGL_RED_SIZE,
+            8,
+            EGL14.EGL_GREEN_SIZE,
+            8,
+            EGL14.EGL_BLUE_SIZE,
+            8,
+            EGL14.EGL_ALPHA_SIZE,
+            8,
+            EGL14.EGL_RENDERABLE_TYPE,
+            EGL14.EGL_OPENGL_ES2_BIT,
+            EGL_RECORDABLE_ANDROID,
+            1,
+            EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] configCount = new int[1];
+        if (!EGL14.eglChooseConfig(eglDisplay, configAttributes, 0, configs, 0, 1, configCount, 0) || configCount[0] == 0) {
+            EGL14.eglTerminate(eglDisplay);
+            throw new IOException("No recordable EGL config");
+        }
+        eglConfig = configs[0];
+
+        int[] contextAttributes = { EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE };
+        eglContext = EGL14.eglCreateContext(eglDisplay, eglConfig, EGL14.EGL_NO_CONTEXT, contextAttributes, 0);
+        if (eglContext == EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglTerminate(eglDisplay);
+            throw new IOException("Cannot create EGL context");
+        }
+    }
+
+    /**
+     * Wraps an encoder input surface, the first one added is made current to set up the renderer
+     */
+    @NonNull
+    public EGLSurface addOutputSurface(@NonNull Surface surface) throws IOException {
+        EGLSurface eglSurface = EGL14.eglCreateWindowSurface(eglDisplay, eglConfig, surface, new int[] { EGL14.EGL_NONE }, 0);
+        if (eglSurface == null || eglSurface == EGL14.EGL_NO_SURFACE) {
+            throw new IOException("Cannot create EGL surface");
+        }
+        eglSurfaces.add(eglSurface);
+
+        if (inputSurface == null) {
+            makeCurrent(eglSurface);
+            setUp();
+        }
+
+        return eglSurface;
+    }
+
+    /**
+     * Surface the decoder renders into
+     */
+    public Surface getInputSurface() {
+        return inputSurface;
+    }
+
+    /**
+     * Waits for the frame released by the decoder and latches it
+     */
+    public void awaitFrame() throws IOException {
+        synchronized (frameLock) {
+            long deadline = System.currentTimeMillis() + FRAME_TIMEOUT_MS;
+            while (!frameAvailable) {
+                long waitMs = deadline - System.currentTimeMillis();
+                if (waitMs <= 0) {
+                    throw new IOException("Timed out waiting for a decoded frame");
+                }
+                try {
+                    frameLock.wait(waitMs);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for a decoded frame", ex);
+                }
+            }
+            frameAvailable = false;
+        }
+
+        surfaceTexture.updateTexImage();
+        surfaceTexture.getTransformMatrix(texMatrix);
+    }
+
+    /**
+     * Draws the latched frame into an output surface and submits it to its encoder
+     * @param rotation degrees the frame is rotated clockwise, a multiple of 90
+     * @param presentationTimeUs presentation time in microSeconds
+     */
+    public void draw(@NonNull EGLSurface eglSurface, int width, int height, int rotation, long presentationTimeUs) throws IOException {
+        makeCurrent(eglSurface);
+
+        // Clip space has y up, a clockwise rotation is a negative angle
+        Matrix.setRotateM(mvpMatrix, 0, -rotation, 0f, 0f, 1f);
+
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glUseProgram(program);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glUniformMatrix4fv(texMatrixLocation, 1, false, texMatrix, 0);
+        GLES20.glUniformMatrix4fv(mvpMatrixLocation, 1, false, mvpMatrix, 0);
+        GLES20.glEnableVertexAttribArray(positionLocation);
+        GLES20.glVertexAttribPointer(positionLocation, 2, GLES20.GL_FLOAT, false, 0, positions);
+        GLES20.glEnableVertexAttribArray(textureCoordLocation);
+        GLES20.glVertexAttribPointer(textureCoordLocation, 2, GLES20.GL_FLOAT, false, 0, textureCoords);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+
+        EGLExt.eglPresentationTimeANDROID(eglDisplay, eglSurface, presentationTimeUs * 1000);
+        if (!EGL14.eglSwapBuffers(eglDisplay, eglSurface)) {
+            throw new IOException("Cannot submit frame: EGL error " + EGL14.eglGetError());
+        }
+    }
+
+    public void release() {
+        EGL14.eglMakeCurrent(eglDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+        for (EGLSurface eglSurface : eglSurfaces) {
+            EGL14.eglDestroySurface(eglDisplay, eglSurface);
+        }
+        eglSurfaces.clear();
+        EGL14.eglDestroyContext(eglDisplay, eglContext);
+        EGL14.eglReleaseThread();
+        EGL14.eglTerminate(eglDisplay);
+
+        if (inputSurface != null) {
+            inputSurface.release();
+        }
+        if (surfaceTexture != null) {
+            surfaceTexture.release();
+        }
+        if (frameThread != null) {
+            frameThread.quitSafely();
+        }
+    }
+
+    private void setUp() throws IOException {
+        program = createProgram();
+        positionLocation = GLES20.glGetAttribLocation(program, "aPosition");
+        textureCoordLocation = GLES20.glGetAttribLocation(program, "aTextureCoord");
+        texMatrixLocation = GLES20.glGetUniformLocation(program, "uTexMatrix");
+        mvpMatrixLocation = GLES20.glGetUniformLocation(program, "uMvpMatrix");
+
+        int[] textures = new int[1];
+        GLES20.glGenTextures(1, textures, 0);
+        textureId = textures[0];
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+
+        // Frame callbacks must not be delivered on the thread waiting for them
+        frameThread = new HandlerThread("EglFrameRenderer");
+        frameThread.start();
+
+        surfaceTexture = new SurfaceTexture(textureId);
+        surfaceTexture.setOnFrameAvailableListener(
+            texture -> {
+                synchronized (frameLock) {
+                    frameAvailable = true;
+                    frameLock.notifyAll();
+                }
+            },
+            new Handler(frameThread.getLooper())
+        );
+        inputSurface = new Surface(surfaceTexture);
+    }
+
+    private void makeCurrent(EGLSurface eglSurface) throws IOException {
+        if (!EGL14.eglMakeCurrent(eglDisplay, eglSurface, eglSurface, eglContext)) {
+            throw new IOException("Cannot make EGL surface current: EGL error " + EGL14.eglGetError());
+        }
+    }
+
+    private static int createProgram() throws IOException {
+        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+
+        int program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            throw new IOException("Cannot link program: " + log);
+        }
+
+        return program;
+    }
+
+    private static int loadShader(int type, String source) throws IOException {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IOException("Cannot compile shader: " + log);
+        }
+
+        return shader;
+    }
+
+    private static FloatBuffer createFloatBuffer(float[] values) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buffer.put(values).position(0);
+        return buffer;
+    }
+}
@@ -0,0 +1,48 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+/**
+ * Picks the decoded frames to encode so an output does not exceed its frame rate.
+ * A frame is kept when it reaches the next slot of the target rate, with some tolerance for uneven source timestamps.
+ */
+public class FrameDecimator {
+
+    private final long intervalUs; // 0 keeps every frame
+    private long nextUs = Long.MIN_VALUE;
+    private long lastUs = Long.MIN_VALUE;
+
+    /**
+     * @param frameRate target frame rate, 0 or lower to keep every frame
+     */
+    public FrameDecimator(int frameRate) {
+        this.intervalUs = frameRate > 0 ? 1_000_000L / frameRate : 0;
+    }
+
+    /**
+     * Must be called for every frame, in presentation order
+     * @param presentationTimeUs output time of the frame in microSeconds
+     * @return true if the frame must be encoded
+     */
+    public boolean keep(long presentationTimeUs) {
+        if (intervalUs == 0) {
+            return true;
+        }
+
+        // Frames slightly early are kept, unless a closer one may still come
+        long toleranceUs = intervalUs / 4;
+        if (lastUs != Long.MIN_VALUE) {
+            toleranceUs = Math.min(toleranceUs, (presentationTimeUs - lastUs) / 2);
+        }
+        lastUs = presentationTimeUs;
+
+        if (nextUs != Long.MIN_VALUE && presentationTimeUs < nextUs - toleranceUs) {
+            return false;
+        }
+
+        // Slots with no source frame are skipped, so gaps do not cause bursts of frames later
+        nextUs = (nextUs == Long.MIN_VALUE ? presentationTimeUs : nextUs) + intervalUs;
+        while (nextUs <= presentationTimeUs) {
+            nextUs += intervalUs;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,148 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Durable state of a resumable edit: its settings, the source fingerprint and the segments already written.
+ */
+public class JobRecord {
+
+    public static final String STATE_RUNNING = "running";
+    public static final String STATE_COMPLETED = "completed";
+    public static final String STATE_FAILED = "failed";
+    public static final String STATE_CANCELLED = "cancelled"; // the worker deletes the job once it has stopped
+
+    public String id;
+    public Uri source;
+    public String output; // output file path
+    public String fingerprint; // null if the source can not be fingerprinted
+    public TrimSettings trimSettings;
+    public TranscodeSettings transcodeSettings;
+    public long[] boundaries; // segment boundaries in miliSeconds, null until the first run splits the source
+    public int completedSegments = 0;
+    public String state = STATE_RUNNING;
+    public String error;
+
+    public JobRecord(
+        @NonNull String id,
+        @NonNull Uri source,
+        @NonNull String output,
+        @Nullable String fingerprint,
+        @NonNull TrimSettings trimSettings,
+        @NonNull TranscodeSettings transcodeSettings
+    ) {
+        this.id = id;
+        this.source = source;
+        this.output = output;
+        this.fingerprint = fingerprint;
+        this.trimSettings = trimSettings;
+        this.transcodeSettings = transcodeSettings;
+    }
+
+    public int getSegmentCount() {
+        return boundaries != null ? boundaries.length - 1 : 0;
+    }
+
+    @NonNull
+    public JSONObject toJson() throws JSONException {
+        JSONObject trim = new JSONObject()
+            .put("startsAt", trimSettings.getStartsAt())
+            .put("endsAt", trimSettings.getEndsAt())
+            .put("accurate", trimSettings.isAccurate());
+
+        JSONObject transcode = new JSONObject()
+            .put("height", transcodeSettings.getHeight())
+            .put("width", transcodeSettings.getWidth())
+            .put("keepAspectRatio", transcodeSettings.isKeepAspectRatio())
+            .put("fps", transcodeSettings.getFps())
+            .put("codec", transcodeSettings.isCodecSet() ? transcodeSettings.getCodec() : JSONObject.NULL)
+            .put("bitrateMode", transcodeSettings.getBitrateMode())
+            .put("keyFrameInterval", transcodeSettings.isKeyFrameIntervalSet() ? transcodeSettings.getKeyFrameInterval() : 0)
+            .put("quality", transcodeSettings.isQualitySet() ? transcodeSettings.getQuality() : JSONObject.NULL)
+            .put("targetSize", transcodeSettings.getTargetSize())
+            .put("audio", transcodeSettings.getAudio())
+            .put("timeLapse", transcodeSettings.getTimeLapse())
+            .put("dropFrames", transcodeSettings.isDropFrames())
+            .put("speed", transcodeSettings.getSpeed());
+
+        JSONObject json = new JSONObject()
+            .put("id", id)
+            .put("source", source.toString())
+            .put("output", output)
+            .put("fingerprint", fingerprint)
+            .put("trim", trim)
+            .put("transcode", transcode)
+            .put("completedSegments", completedSegments)
+            .put("state", state)
+            .put("error", error);
+
+        if (boundaries != null) {
+            JSONArray array = new JSONArray();
+            for (long boundary : boundaries) {
+                array.put(boundary);
+            }
+            json.put("boundaries", array);
+        }
+
+        return json;
+    }
+
+    /**
+     * @throws JSONException if a field is missing or invalid
+     */
+    @NonNull
+    public static JobRecord fromJson(@NonNull JSONObject json) throws JSONException {
+        try {
+            JSONObject trim = json.getJSONObject("trim");
+            TrimSettings trimSettings = new TrimSettings(trim.getLong("startsAt"), trim.getLong("endsAt"), trim.getBoolean("accurate"));
+
+            JSONObject transcode = json.getJSONObject("transcode");
+            TranscodeSettings transcodeSettings = new TranscodeSettings(
+                transcode.getInt("height"),
+                transcode.getInt("width"),
+                transcode.getBoolean("keepAspectRatio"),
+                transcode.getInt("fps")
+            );
+            transcodeSettings.setCodec(transcode.isNull("codec") ? null : transcode.getString("codec"));
+            transcodeSettings.setBitrateMode(transcode.isNull("bitrateMode") ? null : transcode.getString("bitrateMode"));
+            if (transcode.getInt("keyFrameInterval") > 0) {
+                transcodeSettings.setKeyFrameInterval(transcode.getInt("keyFrameInterval"));
+            }
+            transcodeSettings.setQuality(transcode.isNull("quality") ? null : transcode.getString("quality"));
+            transcodeSettings.setTargetSize(transcode.getLong("targetSize"));
+            transcodeSettings.setAudio(transcode.getString("audio"));
+            transcodeSettings.setTimeLapse((float) transcode.optDouble("timeLapse", 1));
+            transcodeSettings.setDropFrames(transcode.optBoolean("dropFrames", false));
+            transcodeSettings.setSpeed(transcode.optString("speed", TranscodeSettings.SPEED_BALANCED));
+
+            JobRecord record = new JobRecord(
+                json.getString("id"),
+                Uri.parse(json.getString("source")),
+                json.getString("output"),
+                json.isNull("fingerprint") ? null : json.getString("fingerprint"),
+                trimSettings,
+                transcodeSettings
+            );
+            record.completedSegments = json.getInt("completedSegments");
+            record.state = json.getString("state");
+            record.error = json.isNull("error") ? null : json.optString("error");
+
+            JSONArray array = json.optJSONArray("boundaries");
+            if (array != null) {
+                record.boundaries = new long[array.length()];
+                for (int i = 0; i < array.length(); i++) {
+                    record.boundaries[i] = array.getLong(i);
+                }
+            }
+
+            return record;
+        } catch (IllegalArgumentException ex) {
+            throw new JSONException("Invalid job record: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.getcapacitor.Logger;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Job records of resumable edits and their segment files, kept in the app files dir so they survive process death.
+ */
+public class JobStore {
+
+    private final File dir;
+
+    public JobStore(@NonNull Context context) {
+        this.dir = new File(context.getFilesDir(), "video-editor-jobs");
+    }
+
+    /**
+     * Writes the record, replacing the previous one at once
+     */
+    public synchronized void save(@NonNull JobRecord record) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create jobs dir: " + dir.getAbsolutePath());
+        }
+
+        File recordFile = getRecordFile(record.id);
+        File tmpFile = new File(recordFile.getPath() + ".tmp");
+        try (OutputStream outputStream = new FileOutputStream(tmpFile)) {
+            outputStream.write(record.toJson().toString().getBytes(StandardCharsets.UTF_8));
+        } catch (JSONException ex) {
+            throw new IOException("Cannot serialize job " + record.id, ex);
+        }
+
+        if (!tmpFile.renameTo(recordFile)) {
+            throw new IOException("Cannot write job " + record.id);
+        }
+    }
+
+    /**
+     * Writes the record only if the stored one is still running, so a cancelled or deleted job is not brought back
+     * @return false if the job was cancelled or deleted
+     */
+    public synchronized boolean update(@NonNull JobRecord record) throws IOException {
+        JobRecord stored = load(record.id);
+        if (stored == null || !JobRecord.STATE_RUNNING.equals(stored.state)) {
+            return false;
+        }
+
+        save(record);
+        return true;
+    }
+
+    /**
+     * Marks a running job as cancelled, its worker deletes it once stopped
+     * @return false if the job is unknown or not running
+     */
+    public synchronized boolean cancel(@NonNull String id) throws IOException {
+        JobRecord record = load(id);
+        if (record == null || !JobRecord.STATE_RUNNING.equals(record.state)) {
+            return false;
+        }
+
+        record.state = JobRecord.STATE_CANCELLED;
+        save(record);
+        return true;
+    }
+
+    /**
+     * @return record, null if unknown or unreadable
+     */
+    @Nullable
+    public synchronized JobRecord load(@NonNull String id) {
+        File recordFile = getRecordFile(id);
+        if (!recordFile.isFile()) {
+            return null;
+        }
+
+        try (InputStream inputStream = new FileInputStream(recordFile)) {
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) > 0) {
+                json.write(buffer, 0, count);
+            }
+
+            return JobRecord.fromJson(new JSONObject(new String(json.toByteArray(), StandardCharsets.UTF_8)));
+        } catch (IOException | JSONException ex) {
+            Logger.warn("Cannot read job " + id + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    @NonNull
+    public synchronized List<JobRecord> list() {
+        List<JobRecord> records = new ArrayList<>();
+
+        File[] files = dir.listFiles(file -> file.isFile() && file.getName().endsWith(".json"));
+        if (files != null) {
+            for (File file : files) {
+                JobRecord record = load(file.getName().substring(0, file.getName().length() - ".json".length()));
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+        }
+
+        return records;
+    }
+
+    /**
+     * Deletes the record and its segment files, the output is left as is
+     */
+    public synchronized void delete(@NonNull String id) {
+        deleteSegments(id);
+        deleteFile(getRecordFile(id));
+    }
+
+    /**
+     * Deletes the segment files of a finished job, the record is kept until its result is delivered
+     */
+    public synchronized void deleteSegments(@NonNull String id) {
+        File segmentDir = getSegmentDir(id);
+        File[] segmentFiles = segmentDir.listFiles();
+        if (segmentFiles != null) {
+            for (File segmentFile : segmentFiles) {
+                deleteFile(segmentFile);
+            }
+        }
+        deleteFile(segmentDir);
+    }
+
+    @NonNull
+    public File getSegmentFile(@NonNull String id, int index) throws IOException {
+        File segmentDir = getSegmentDir(id);
+        if (!segmentDir.isDirectory() && !segmentDir.mkdirs()) {
+            throw new IOException("Cannot create segments dir: " + segmentDir.getAbsolutePath());
+        }
+
+        return new File(segmentDir, "segment_" + index + ".mp4");
+    }
+
+    private File getSegmentDir(String id) {
+        return new File(dir, id);
+    }
+
+    private File getRecordFile(String id) {
+        return new File(dir, id + ".json");
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            Logger.warn("Cannot delete " + file.getAbsolutePath());
+        }
+    }
+}
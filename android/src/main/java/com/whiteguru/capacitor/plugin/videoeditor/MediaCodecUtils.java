@@ -0,0 +1,64 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+public class MediaCodecUtils {
+
+    public static boolean isHardware(@NonNull MediaCodecInfo codecInfo) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            return codecInfo.isHardwareAccelerated();
+        }
+
+        String name = codecInfo.getName().toLowerCase();
+
+        return !name.startsWith("omx.google.") && !name.startsWith("c2.android.") && !name.contains(".sw.");
+    }
+
+    /**
+     * Returns whether a codec is hardware accelerated
+     * @param codecName codec name, as reported by MediaCodec.getName
+     * @return null if the codec is unknown
+     */
+    @Nullable
+    public static Boolean isHardware(@Nullable String codecName) {
+        if (codecName == null) {
+            return null;
+        }
+
+        for (MediaCodecInfo codecInfo : new MediaCodecList(MediaCodecList.ALL_CODECS).getCodecInfos()) {
+            if (codecInfo.getName().equalsIgnoreCase(codecName)) {
+                return isHardware(codecInfo);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns how many instances of a codec may run at the same time
+     * @param codecName codec name, as reported by MediaCodec.getName
+     * @param mimeType media type handled by the codec
+     * @return 1 if the codec is unknown
+     */
+    public static int getMaxSupportedInstances(@Nullable String codecName, @NonNull String mimeType) {
+        if (codecName == null) {
+            return 1;
+        }
+
+        for (MediaCodecInfo codecInfo : new MediaCodecList(MediaCodecList.ALL_CODECS).getCodecInfos()) {
+            if (codecInfo.getName().equalsIgnoreCase(codecName)) {
+                try {
+                    return Math.max(1, codecInfo.getCapabilitiesForType(mimeType).getMaxSupportedInstances());
+                } catch (IllegalArgumentException ex) {
+                    return 1;
+                }
+            }
+        }
+
+        return 1;
+    }
+}
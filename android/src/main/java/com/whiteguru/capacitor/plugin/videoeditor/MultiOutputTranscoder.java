@@ -0,0 +1,430 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.net.Uri;
+import android.opengl.EGLSurface;
+import android.view.Surface;
+import androidx.annotation.NonNull;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EncoderSelection;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the video track once and encodes every frame into several outputs, each with its own size and bitrate.
+ * Audio samples are copied as they are into every output that keeps audio.
+ * Frames above the frame rate of an output may be dropped before they are drawn into its encoder.
+ */
+public class MultiOutputTranscoder {
+
+    private static final long TIMEOUT_US = 10_000;
+    private static final int MAX_END_OF_STREAM_TRIES = 500;
+
+    public static class Output {
+
+        final File file;
+        final MediaFormat videoFormat;
+        final EncoderSelection encoderSelection;
+        final boolean removeAudio;
+        final float timeLapse;
+        final int width;
+        final int height;
+        final FrameDecimator decimator;
+
+        MediaCodec encoder;
+        Surface encoderSurface;
+        EGLSurface eglSurface;
+        int rotation = 0; // degrees frames are rotated clockwise when drawn, width and height are the rotated size
+        MediaMuxer muxer;
+        int videoTrack = -1;
+        int[] audioTracks;
+        boolean muxerStarted = false;
+        boolean done = false;
+
+        public Output(@NonNull File file, @NonNull MediaFormat videoFormat, @NonNull EncoderSelection encoderSelection, boolean removeAudio) {
+            this(file, videoFormat, encoderSelection, removeAudio, 1, false);
+        }
+
+        /**
+         * @param videoFormat encoder format, with width and height set
+         * @param removeAudio true to leave audio tracks out, always true when timeLapse is greater than 1
+         * @param timeLapse speed up factor, 1 for normal speed
+         * @param dropFrames true to drop frames above the frame rate of videoFormat, always done when timeLapse is greater than 1
+         */
+        public Output(
+            @NonNull File file,
+            @NonNull MediaFormat videoFormat,
+            @NonNull EncoderSelection encoderSelection,
+            boolean removeAudio,
+            float timeLapse,
+            boolean dropFrames
+        ) {
+            this.file = file;
+            this.videoFormat = videoFormat;
+            this.encoderSelection = encoderSelection;
+            this.removeAudio = removeAudio || timeLapse > 1;
+            this.timeLapse = timeLapse;
+            this.width = videoFormat.getInteger(MediaFormat.KEY_WIDTH);
+            this.height = videoFormat.getInteger(MediaFormat.KEY_HEIGHT);
+            this.decimator = new FrameDecimator(
+                dropFrames || timeLapse > 1 ? MediaFormatUtils.getInt(videoFormat, MediaFormat.KEY_FRAME_RATE, 0) : 0
+            );
+        }
+    }
+
+    private final Context context;
+    private final Uri uri;
+    private final List<Output> outputs;
+    private final MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+    private final List<Integer> audioTrackIndexes = new ArrayList<>();
+    private final List<MediaFormat> audioFormats = new ArrayList<>();
+    private MediaExtractor audioExtractor;
+    private ByteBuffer audioBuffer;
+    private boolean audioDone = false;
+    private volatile boolean cancelled = false;
+
+    public MultiOutputTranscoder(Context context, @NonNull Uri uri, @NonNull List<Output> outputs) {
+        this.context = context;
+        this.uri = uri;
+        this.outputs = outputs;
+    }
+
+    /**
+     * @param startUs Start time in microSeconds
+     * @param endUs End time in microSeconds, Long.MAX_VALUE for end of media
+     * @param durationUs Source duration in microSeconds, used for progress
+     * @param rotation Orientation hint in degrees
+     * @param progressListener Progress listener, may be null
+     */
+    public void transcode(long startUs, long endUs, long durationUs, int rotation, VideoRemuxer.ProgressListener progressListener)
+        throws IOException {
+        long spanUs = Math.max(1, Math.min(endUs, durationUs) - startUs);
+
+        MediaExtractor videoExtractor = new MediaExtractor();
+        EglFrameRenderer renderer = null;
+        MediaCodec decoder = null;
+
+        try {
+            videoExtractor.setDataSource(context, uri, null);
+            int videoTrack = findTrack(videoExtractor, "video/");
+            if (videoTrack < 0) {
+                throw new IOException("Video track not found");
+            }
+            MediaFormat inputFormat = videoExtractor.getTrackFormat(videoTrack);
+            videoExtractor.selectTrack(videoTrack);
+            videoExtractor.seekTo(startUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+
+            openAudio(startUs);
+
+            renderer = new EglFrameRenderer();
+            for (Output output : outputs) {
+                output.encoder = output.encoderSelection.codecName != null
+                    ? MediaCodec.createByCodecName(output.encoderSelection.codecName)
+                    : MediaCodec.createEncoderByType(output.encoderSelection.mimeType);
+                output.encoder.configure(output.videoFormat, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+                output.encoderSurface = output.encoder.createInputSurface();
+                output.eglSurface = renderer.addOutputSurface(output.encoderSurface);
+                output.encoder.start();
+
+                output.muxer = new MediaMuxer(output.file.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+                output.muxer.setOrientationHint(rotation);
+            }
+
+            // The decoder runs at the speed of the encoders it feeds
+            copySpeed(outputs.get(0).videoFormat, inputFormat);
+            decoder = MediaCodec.createDecoderByType(inputFormat.getString(MediaFormat.KEY_MIME));
+            decoder.configure(inputFormat, renderer.getInputSurface(), null, 0);
+            decoder.start();
+
+            boolean inputDone = false;
+            boolean decoderDone = false;
+            MediaCodec.BufferInfo decoderInfo = new MediaCodec.BufferInfo();
+            boolean[] keep = new boolean[outputs.size()];
+            float lastProgress = 0;
+
+            while (!decoderDone && !cancelled) {
+                if (!inputDone) {
+                    int inputIndex = decoder.dequeueInputBuffer(TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        int size = videoExtractor.readSampleData(decoder.getInputBuffer(inputIndex), 0);
+                        long sampleTimeUs = videoExtractor.getSampleTime();
+                        if (size < 0 || sampleTimeUs > endUs) {
+                            decoder.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            decoder.queueInputBuffer(inputIndex, 0, size, sampleTimeUs, 0);
+                            videoExtractor.advance();
+                        }
+                    }
+                }
+
+                int outputIndex = decoder.dequeueOutputBuffer(decoderInfo, TIMEOUT_US);
+                if (outputIndex < 0) {
+                    continue;
+                }
+
+                long frameTimeUs = decoderInfo.presentationTimeUs;
+                long sourceTimeUs = frameTimeUs - startUs;
+                boolean render = false;
+                if (decoderInfo.size > 0 && frameTimeUs >= startUs && frameTimeUs <= endUs) {
+                    for (int i = 0; i < keep.length; i++) {
+                        Output output = outputs.get(i);
+                        keep[i] = output.decimator.keep((long) (sourceTimeUs / output.timeLapse));
+                        render |= keep[i];
+                    }
+                }
+                // Frames dropped by every output are never rendered
+                decoder.releaseOutputBuffer(outputIndex, render);
+
+                if (render) {
+                    renderer.awaitFrame();
+
+                    for (int i = 0; i < keep.length; i++) {
+                        if (keep[i]) {
+                            Output output = outputs.get(i);
+                            renderer.draw(
+                                output.eglSurface,
+                                output.width,
+                                output.height,
+                                output.rotation,
+                                (long) (sourceTimeUs / output.timeLapse)
+                            );
+                        }
+                    }
+                    for (Output output : outputs) {
+                        drainEncoder(output, false);
+                    }
+                    copyAudio(startUs, endUs, sourceTimeUs);
+
+                    if (progressListener != null) {
+                        float progress = Math.min(1f, (float) sourceTimeUs / spanUs);
+                        if (progress - lastProgress >= 0.01f) {
+                            lastProgress = progress;
+                            progressListener.onProgress(progress);
+                        }
+                    }
+                }
+
+                if ((decoderInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    decoderDone = true;
+                }
+            }
+
+            if (cancelled) {
+                return;
+            }
+
+            for (Output output : outputs) {
+                output.encoder.signalEndOfInputStream();
+            }
+            for (Output output : outputs) {
+                drainEncoder(output, true);
+            }
+            copyAudio(startUs, endUs, Long.MAX_VALUE);
+
+            for (Output output : outputs) {
+                if (!output.muxerStarted) {
+                    throw new IOException("No frame encoded for " + output.file.getName());
+                }
+                output.muxerStarted = false;
+                output.muxer.stop();
+            }
+        } finally {
+            if (decoder != null) {
+                decoder.release();
+            }
+            if (renderer != null) {
+                renderer.release();
+            }
+            for (Output output : outputs) {
+                releaseOutput(output);
+            }
+            if (audioExtractor != null) {
+                audioExtractor.release();
+            }
+            videoExtractor.release();
+        }
+    }
+
+    /**
+     * Stops a running transcode, the partial outputs are left as they are
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void openAudio(long startUs) throws IOException {
+        boolean keepAudio = false;
+        for (Output output : outputs) {
+            keepAudio |= !output.removeAudio;
+        }
+        if (!keepAudio) {
+            return;
+        }
+
+        audioExtractor = new MediaExtractor();
+        audioExtractor.setDataSource(context, uri, null);
+
+        int maxSampleSize = VideoRemuxer.DEFAULT_MAX_SAMPLE_SIZE;
+        for (int track = 0; track < audioExtractor.getTrackCount(); track++) {
+            MediaFormat format = audioExtractor.getTrackFormat(track);
+            String mimeType = format.getString(MediaFormat.KEY_MIME);
+            if (mimeType == null || !mimeType.startsWith("audio/")) {
+                continue;
+            }
+            if (!VideoRemuxer.isMuxerCompatible(mimeType)) {
+                throw new IOException("Audio track " + mimeType + " can not be copied, remove it to create several outputs");
+            }
+
+            audioExtractor.selectTrack(track);
+            audioTrackIndexes.add(track);
+            audioFormats.add(format);
+            maxSampleSize = Math.max(maxSampleSize, MediaFormatUtils.getInt(format, MediaFormat.KEY_MAX_INPUT_SIZE, 0));
+        }
+
+        audioBuffer = ByteBuffer.allocateDirect(maxSampleSize);
+        audioExtractor.seekTo(startUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+    }
+
+    /**
+     * Copies audio samples up to the given output time into every output that keeps audio, once all muxers are started
+     */
+    private void copyAudio(long startUs, long endUs, long untilUs) {
+        if (audioExtractor == null || audioDone) {
+            return;
+        }
+        for (Output output : outputs) {
+            if (!output.muxerStarted) {
+                return;
+            }
+        }
+
+        MediaCodec.BufferInfo audioInfo = new MediaCodec.BufferInfo();
+        int track;
+        while ((track = audioExtractor.getSampleTrackIndex()) >= 0) {
+            long sampleTimeUs = audioExtractor.getSampleTime();
+            if (sampleTimeUs >= endUs) {
+                break;
+            }
+            if (sampleTimeUs - startUs > untilUs) {
+                return;
+            }
+
+            if (sampleTimeUs >= startUs) {
+                audioInfo.offset = 0;
+                audioInfo.size = audioExtractor.readSampleData(audioBuffer, 0);
+                audioInfo.presentationTimeUs = sampleTimeUs - startUs;
+                audioInfo.flags = MediaCodec.BUFFER_FLAG_KEY_FRAME;
+
+                int audioTrack = audioTrackIndexes.indexOf(track);
+                for (Output output : outputs) {
+                    if (!output.removeAudio && audioInfo.size > 0) {
+                        output.muxer.writeSampleData(output.audioTracks[audioTrack], audioBuffer, audioInfo);
+                    }
+                }
+            }
+
+            audioExtractor.advance();
+        }
+
+        audioDone = true;
+    }
+
+    private void drainEncoder(Output output, boolean endOfStream) throws IOException {
+        int tries = 0;
+        while (!output.done && !cancelled) {
+            int index = output.encoder.dequeueOutputBuffer(bufferInfo, endOfStream ? TIMEOUT_US : 0);
+            if (index == MediaCodec.INFO_TRY_AGAIN_LATER) {
+                if (!endOfStream) {
+                    return;
+                }
+                if (++tries > MAX_END_OF_STREAM_TRIES) {
+                    throw new IOException("Encoder did not finish " + output.file.getName());
+                }
+                continue;
+            }
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                startMuxer(output);
+                continue;
+            }
+            if (index < 0) {
+                continue;
+            }
+
+            ByteBuffer data = output.encoder.getOutputBuffer(index);
+            if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+                // Already passed to the muxer with the output format
+                bufferInfo.size = 0;
+            }
+            if (bufferInfo.size > 0 && output.muxerStarted && data != null) {
+                output.muxer.writeSampleData(output.videoTrack, data, bufferInfo);
+            }
+            output.encoder.releaseOutputBuffer(index, false);
+
+            if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                output.done = true;
+            }
+        }
+    }
+
+    private void startMuxer(Output output) {
+        output.videoTrack = output.muxer.addTrack(output.encoder.getOutputFormat());
+        if (!output.removeAudio) {
+            output.audioTracks = new int[audioFormats.size()];
+            for (int i = 0; i < audioFormats.size(); i++) {
+                output.audioTracks[i] = output.muxer.addTrack(audioFormats.get(i));
+            }
+        }
+        output.muxer.start();
+        output.muxerStarted = true;
+    }
+
+    private static void releaseOutput(Output output) {
+        if (output.encoder != null) {
+            output.encoder.release();
+        }
+        if (output.encoderSurface != null) {
+            output.encoderSurface.release();
+        }
+        if (output.muxer != null) {
+            try {
+                if (output.muxerStarted) {
+                    output.muxer.stop();
+                }
+            } catch (RuntimeException ex) {
+                // Cancelled or failed output, the partial file is discarded by the caller
+            } finally {
+                output.muxer.release();
+            }
+        }
+    }
+
+    private static void copySpeed(MediaFormat from, MediaFormat to) {
+        if (from.containsKey(MediaFormat.KEY_PRIORITY)) {
+            to.setInteger(MediaFormat.KEY_PRIORITY, from.getInteger(MediaFormat.KEY_PRIORITY));
+        }
+        if (from.containsKey(MediaFormat.KEY_OPERATING_RATE)) {
+            to.setInteger(MediaFormat.KEY_OPERATING_RATE, from.getInteger(MediaFormat.KEY_OPERATING_RATE));
+        }
+    }
+
+    private static int findTrack(MediaExtractor extractor, String mimePrefix) {
+        for (int track = 0; track < extractor.getTrackCount(); track++) {
+            String mimeType = extractor.getTrackFormat(track).getString(MediaFormat.KEY_MIME);
+            if (mimeType != null && mimeType.startsWith(mimePrefix)) {
+                return track;
+            }
+        }
+        return -1;
+    }
+}
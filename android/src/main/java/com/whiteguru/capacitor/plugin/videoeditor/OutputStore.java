@@ -0,0 +1,202 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.getcapacitor.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Output files written into the store directory, kept under a byte budget.
+ * The least recently used files are evicted first. Files written to other directories belong to the caller.
+ */
+public class OutputStore {
+
+    static final long DEFAULT_MAX_BYTES = 512L * 1024 * 1024;
+    static final long MIN_FREE_BYTES = 16L * 1024 * 1024;
+    static final String[] LEGACY_PREFIXES = { "VID_", "TH_" };
+
+    private final File dir;
+    private final long maxBytes;
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true); // path to size
+    private long bytes = 0;
+
+    /**
+     * @param cacheDir app cache dir, files are stored in a subdirectory of it
+     * @param maxBytes byte budget
+     */
+    public OutputStore(@NonNull File cacheDir, long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Parameter maxBytes must be greater than 0");
+        }
+
+        this.dir = new File(cacheDir, "video-editor");
+        this.maxBytes = maxBytes;
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Logger.warn("Cannot create output dir: " + dir.getAbsolutePath());
+        }
+
+        // Files of previous runs, and the ones written to the cache dir by older releases, oldest first
+        File[] files = dir.listFiles(File::isFile);
+        File[] legacyFiles = cacheDir.listFiles(file -> file.isFile() && isLegacy(file));
+        File[] all = concat(files, legacyFiles);
+        Arrays.sort(all, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : all) {
+            entries.put(file.getAbsolutePath(), file.length());
+            bytes += file.length();
+        }
+
+        evict();
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    /**
+     * Creates an empty file, in outDir if set or in the store otherwise.
+     * Store files are not counted nor evicted until committed.
+     * @param outDir caller supplied directory, null for the store
+     */
+    @NonNull
+    public File createFile(@NonNull String prefix, @NonNull String suffix, @Nullable File outDir) throws IOException {
+        File targetDir = outDir != null ? outDir : dir;
+        if (!targetDir.isDirectory() && !targetDir.mkdirs()) {
+            throw new IOException("Cannot create output dir: " + targetDir.getAbsolutePath());
+        }
+
+        return File.createTempFile(prefix, suffix, targetDir);
+    }
+
+    /**
+     * Counts a completed file against the budget, evicting older files if needed
+     */
+    public synchronized void commit(@NonNull File file) {
+        if (!isManaged(file)) {
+            return;
+        }
+
+        Long previous = entries.put(file.getAbsolutePath(), file.length());
+        bytes += file.length() - (previous != null ? previous : 0);
+
+        evict();
+    }
+
+    /**
+     * Marks a file as used, so it is evicted after the others
+     */
+    public synchronized void touch(@NonNull File file) {
+        entries.get(file.getAbsolutePath());
+    }
+
+    /**
+     * Deletes a file of the store
+     * @return false if the file is not in the store
+     */
+    public synchronized boolean release(@NonNull File file) {
+        Long size = entries.remove(file.getAbsolutePath());
+        if (size == null) {
+            return false;
+        }
+
+        bytes -= size;
+        delete(file);
+        return true;
+    }
+
+    /**
+     * Deletes a partial output, wherever it was written
+     */
+    public synchronized void discard(@NonNull File file) {
+        if (!release(file) && file.exists()) {
+            delete(file);
+        }
+    }
+
+    /**
+     * Deletes every committed file of the store
+     * @return bytes freed
+     */
+    public synchronized long clear() {
+        long freed = bytes;
+        for (String path : entries.keySet()) {
+            delete(new File(path));
+        }
+        entries.clear();
+        bytes = 0;
+
+        return freed;
+    }
+
+    /**
+     * Checks there is room for an output of the given size, evicting store files if it is written to the store
+     * @param outDir directory the output is written to
+     * @param estimatedBytes estimated output size
+     * @throws IOException if there is not enough free space
+     */
+    public synchronized void ensureFreeSpace(@NonNull File outDir, long estimatedBytes) throws IOException {
+        long required = Math.max(0, estimatedBytes) + MIN_FREE_BYTES;
+
+        if (outDir.getAbsolutePath().equals(dir.getAbsolutePath())) {
+            Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+            while (outDir.getUsableSpace() < required && iterator.hasNext()) {
+                Map.Entry<String, Long> eldest = iterator.next();
+                iterator.remove();
+                bytes -= eldest.getValue();
+                delete(new File(eldest.getKey()));
+            }
+        }
+
+        long usable = outDir.getUsableSpace();
+        if (usable < required) {
+            throw new IOException("Not enough free space, " + required + " bytes required and " + usable + " available");
+        }
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private boolean isManaged(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        return parent != null && parent.getAbsolutePath().equals(dir.getAbsolutePath());
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.getValue();
+            delete(new File(eldest.getKey()));
+        }
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            Logger.warn("Cannot delete output: " + file.getAbsolutePath());
+        }
+    }
+
+    private static boolean isLegacy(File file) {
+        for (String prefix : LEGACY_PREFIXES) {
+            if (file.getName().startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static File[] concat(@Nullable File[] a, @Nullable File[] b) {
+        File[] first = a != null ? a : new File[0];
+        File[] second = b != null ? b : new File[0];
+        File[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
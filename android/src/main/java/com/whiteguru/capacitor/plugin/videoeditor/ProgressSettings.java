@@ -0,0 +1,54 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+public class ProgressSettings {
+
+    private float minDelta = 0.01f;
+    private long minInterval = 250;
+
+    public ProgressSettings() {}
+
+    public ProgressSettings(float minDelta, long minInterval) {
+        setMinDelta(minDelta);
+        setMinInterval(minInterval);
+    }
+
+    /**
+     * Get minimum progress change between two events
+     * @return minimum progress change, from 0 to 1
+     */
+    public float getMinDelta() {
+        return minDelta;
+    }
+
+    public void setMinDelta(float minDelta) {
+        if (minDelta <= 0 || minDelta > 1) {
+            throw new IllegalArgumentException("Parameter minDelta must be greater than 0 and not greater than 1");
+        }
+
+        this.minDelta = minDelta;
+    }
+
+    /**
+     * Get minimum time between two events in miliSeconds
+     * @return minimum interval in miliSeconds
+     */
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    public void setMinInterval(long minInterval) {
+        if (minInterval < 0) {
+            throw new IllegalArgumentException("Parameter minInterval cannot be negative");
+        }
+
+        this.minInterval = minInterval;
+    }
+
+    /**
+     * Get number of progress updates the transcoder needs to report
+     * @return progress granularity
+     */
+    public int getGranularity() {
+        return (int) Math.ceil(1 / minDelta);
+    }
+}
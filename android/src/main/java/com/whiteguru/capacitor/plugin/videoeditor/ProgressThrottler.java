@@ -0,0 +1,94 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import androidx.annotation.NonNull;
+
+/**
+ * Forwards progress updates at most every minInterval and only when they moved at least minDelta.
+ * Updates arriving within the interval are coalesced, the latest one is delivered when it ends.
+ */
+public class ProgressThrottler {
+
+    public interface Listener {
+        void onProgress(float progress);
+    }
+
+    private final ProgressSettings settings;
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable flushRunnable = this::flush;
+    private float lastProgress = -1;
+    private long lastUpdateMs = 0;
+    private float pendingProgress = -1;
+    private boolean closed = false;
+
+    public ProgressThrottler(@NonNull ProgressSettings settings, @NonNull Listener listener) {
+        this.settings = settings;
+        this.listener = listener;
+    }
+
+    public void update(float progress) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+
+            float baseline = pendingProgress >= 0 ? pendingProgress : lastProgress;
+            if (baseline >= 0 && progress < 1 && progress - baseline < settings.getMinDelta()) {
+                return;
+            }
+
+            long waitMs = lastUpdateMs + settings.getMinInterval() - SystemClock.elapsedRealtime();
+            if (lastProgress >= 0 && waitMs > 0) {
+                if (pendingProgress < 0) {
+                    handler.postDelayed(flushRunnable, waitMs);
+                }
+                pendingProgress = progress;
+                return;
+            }
+
+            lastProgress = progress;
+            lastUpdateMs = SystemClock.elapsedRealtime();
+        }
+
+        listener.onProgress(progress);
+    }
+
+    /**
+     * Delivers the coalesced update, if any
+     */
+    public void flush() {
+        float progress;
+        synchronized (this) {
+            handler.removeCallbacks(flushRunnable);
+            if (closed || pendingProgress < 0) {
+                return;
+            }
+
+            progress = pendingProgress;
+            pendingProgress = -1;
+            lastProgress = progress;
+            lastUpdateMs = SystemClock.elapsedRealtime();
+        }
+
+        listener.onProgress(progress);
+    }
+
+    /**
+     * Stops delivering updates
+     * @param flush true to deliver the coalesced update first
+     */
+    public void close(boolean flush) {
+        if (flush) {
+            flush();
+        }
+
+        synchronized (this) {
+            handler.removeCallbacks(flushRunnable);
+            pendingProgress = -1;
+            closed = true;
+        }
+    }
+}
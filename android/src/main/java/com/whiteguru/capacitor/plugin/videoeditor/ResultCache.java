@@ -0,0 +1,238 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.getcapacitor.Logger;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.FileStat;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Outputs of previous edits, keyed by source fingerprint and edit settings.
+ * The index is persisted so results survive restarts, entries whose file was evicted from the store are dropped.
+ */
+public class ResultCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 64;
+    static final int HASH_BYTES = 64 * 1024;
+
+    private final File indexFile;
+    private final OutputStore outputStore;
+    private final int maxEntries;
+    private final Map<String, String> entries = new LinkedHashMap<>(16, 0.75f, true); // key to output path
+
+    public ResultCache(@NonNull File indexFile, @NonNull OutputStore outputStore) {
+        this(indexFile, outputStore, DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResultCache(@NonNull File indexFile, @NonNull OutputStore outputStore, int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Parameter maxEntries cannot be lower than 1");
+        }
+
+        this.indexFile = indexFile;
+        this.outputStore = outputStore;
+        this.maxEntries = maxEntries;
+
+        load();
+    }
+
+    /**
+     * Builds the cache key of an edit from the source size, modification time and a hash of its first and
+     * last bytes, and the edit settings
+     * @return key, null if the source can not be fingerprinted
+     */
+    @Nullable
+    public static String createKey(
+        Context context,
+        @NonNull Uri uri,
+        @NonNull TrimSettings trimSettings,
+        @NonNull TranscodeSettings transcodeSettings
+    ) {
+        FileStat stat = FileStat.of(context, uri);
+        if (!stat.isKnown()) {
+            return null;
+        }
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((stat.size + "|" + stat.lastModified + "|").getBytes(StandardCharsets.UTF_8));
+
+            try (ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(uri, "r")) {
+                if (descriptor == null) {
+                    return null;
+                }
+
+                // Positioned reads, skipping a content stream may read through the whole source. The stream does not
+                // own the descriptor, it is closed with it
+                FileChannel channel = new FileInputStream(descriptor.getFileDescriptor()).getChannel();
+                ByteBuffer buffer = ByteBuffer.allocate(HASH_BYTES);
+                digest.update(buffer.array(), 0, readFully(channel, buffer, 0));
+                digest.update(buffer.array(), 0, readFully(channel, buffer, Math.max(HASH_BYTES, stat.size - HASH_BYTES)));
+            }
+
+            digest.update(getSettingsKey(trimSettings, transcodeSettings).getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format(Locale.ENGLISH, "%02x", b));
+            }
+            return key.toString();
+        } catch (IOException | NoSuchAlgorithmException | SecurityException ex) {
+            Logger.warn("Cannot fingerprint source: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the output of a previous edit with the same key
+     * @return output file, null if not cached or evicted
+     */
+    @Nullable
+    public synchronized File get(@NonNull String key) {
+        String path = entries.get(key);
+        if (path == null) {
+            return null;
+        }
+
+        File file = new File(path);
+        if (!file.isFile()) {
+            entries.remove(key);
+            save();
+            return null;
+        }
+
+        outputStore.touch(file);
+        save();
+        return file;
+    }
+
+    public synchronized void put(@NonNull String key, @NonNull File file) {
+        entries.put(key, file.getAbsolutePath());
+
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+
+        save();
+    }
+
+    /**
+     * Forgets every entry, output files are left to the store
+     */
+    public synchronized void clear() {
+        entries.clear();
+        save();
+    }
+
+    /**
+     * Settings with their defaults applied, so equivalent edits share the key. Explicit encoder options are kept apart
+     * since they disable copying the source
+     */
+    private static String getSettingsKey(TrimSettings trimSettings, TranscodeSettings transcodeSettings) {
+        return String.format(
+            Locale.ENGLISH,
+            "trim=%d,%d,%b;transcode=%d,%d,%b,%d,%s,%s,%d,%s,%d,%s,%s,%b,%b,%b",
+            trimSettings.getStartsAt(),
+            trimSettings.getEndsAt(),
+            trimSettings.isAccurate(),
+            transcodeSettings.getHeight(),
+            transcodeSettings.getWidth(),
+            transcodeSettings.isKeepAspectRatio(),
+            transcodeSettings.getFps(),
+            transcodeSettings.getCodec(),
+            transcodeSettings.getBitrateMode(),
+            transcodeSettings.getKeyFrameInterval(),
+            transcodeSettings.getQuality(),
+            transcodeSettings.getTargetSize(),
+            transcodeSettings.getAudio(),
+            transcodeSettings.getTimeLapse(),
+            transcodeSettings.isDropFrames(),
+            transcodeSettings.isCodecSet(),
+            transcodeSettings.hasEncoderOptions()
+        );
+    }
+
+    /**
+     * Reads into the whole buffer from a position, or up to the end of the file
+     * @return bytes read
+     */
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        int count;
+        do {
+            count = channel.read(buffer, position + buffer.position());
+        } while (count > 0 && buffer.hasRemaining());
+        return buffer.position();
+    }
+
+    private void load() {
+        if (!indexFile.isFile()) {
+            return;
+        }
+
+        try {
+            ByteArrayOutputStream json = new ByteArrayOutputStream();
+            try (InputStream inputStream = new FileInputStream(indexFile)) {
+                byte[] buffer = new byte[8192];
+                int count;
+                while ((count = inputStream.read(buffer)) > 0) {
+                    json.write(buffer, 0, count);
+                }
+            }
+
+            JSONArray index = new JSONArray(new String(json.toByteArray(), StandardCharsets.UTF_8));
+            for (int i = 0; i < index.length(); i++) {
+                JSONObject entry = index.getJSONObject(i);
+                entries.put(entry.getString("key"), entry.getString("path"));
+            }
+        } catch (IOException | JSONException ex) {
+            Logger.warn("Cannot read result cache index: " + ex.getMessage());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Writes the index, least recently used first, replacing the previous one at once
+     */
+    private void save() {
+        try {
+            JSONArray index = new JSONArray();
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                index.put(new JSONObject().put("key", entry.getKey()).put("path", entry.getValue()));
+            }
+
+            File tmpFile = new File(indexFile.getPath() + ".tmp");
+            try (OutputStream outputStream = new FileOutputStream(tmpFile)) {
+                outputStream.write(index.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            if (!tmpFile.renameTo(indexFile)) {
+                throw new IOException("Cannot replace " + indexFile.getName());
+            }
+        } catch (IOException | JSONException ex) {
+            Logger.warn("Cannot write result cache index: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Concatenates media with the same tracks and codec configuration into a single MP4 without decoding them.
+ * Samples of each source are shifted to start where the previous one ends. Only audio and video tracks are joined.
+ */
+public class SegmentJoiner {
+
+    private static final String[] CODEC_SPECIFIC_DATA_KEYS = { "csd-0", "csd-1", "csd-2" };
+
+    /**
+     * Checks that every file has the same tracks, in the same order and with the same codec configuration
+     * @param files files to join
+     * @return true if the files can be joined without decoding them
+     */
+    public static boolean canJoin(@NonNull List<File> files) throws IOException {
+        return canJoin(null, toUris(files));
+    }
+
+    /**
+     * Checks that every source has the same tracks, in the same order, with the same codec configuration and orientation
+     * @param context Context to open content uris, may be null for file uris
+     * @param sources sources to join
+     * @return true if the sources can be joined without decoding them
+     */
+    public static boolean canJoin(@Nullable Context context, @NonNull List<Uri> sources) throws IOException {
+        if (sources.isEmpty()) {
+            return false;
+        }
+
+        MediaFormat[] first = getTrackFormats(context, sources.get(0));
+        for (int i = 1; i < sources.size(); i++) {
+            MediaFormat[] formats = getTrackFormats(context, sources.get(i));
+            if (formats.length != first.length) {
+                return false;
+            }
+
+            for (int track = 0; track < formats.length; track++) {
+                if (!isSameConfiguration(first[track], formats[track])) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Writes the samples of every file, one after another, into outFile
+     * @param files files to join, see {@link #canJoin(List)}
+     * @param outFile Target MP4 file
+     * @param rotation Orientation hint in degrees
+     * @param progressListener Progress listener, may be null
+     */
+    public static void join(
+        @NonNull List<File> files,
+        @NonNull File outFile,
+        int rotation,
+        VideoRemuxer.ProgressListener progressListener
+    ) throws IOException {
+        join(null, toUris(files), outFile, rotation, progressListener);
+    }
+
+    /**
+     * Writes the samples of every source, one after another, into outFile
+     * @param context Context to open content uris, may be null for file uris
+     * @param sources sources to join, see {@link #canJoin(Context, List)}
+     * @param outFile Target MP4 file
+     * @param rotation Orientation hint in degrees
+     * @param progressListener Progress listener, may be null
+     */
+    public static void join(
+        @Nullable Context context,
+        @NonNull List<Uri> sources,
+        @NonNull File outFile,
+        int rotation,
+        VideoRemuxer.ProgressListener progressListener
+    ) throws IOException {
+        MediaFormat[] formats = getTrackFormats(context, sources.get(0));
+        if (formats.length == 0) {
+            throw new IOException("No track to join");
+        }
+
+        MediaMuxer muxer = new MediaMuxer(outFile.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        boolean muxerStarted = false;
+
+        try {
+            int[] muxerTracks = new int[formats.length];
+            int maxSampleSize = VideoRemuxer.DEFAULT_MAX_SAMPLE_SIZE;
+            for (int track = 0; track < formats.length; track++) {
+                muxerTracks[track] = muxer.addTrack(formats[track]);
+                maxSampleSize = Math.max(maxSampleSize, MediaFormatUtils.getInt(formats[track], MediaFormat.KEY_MAX_INPUT_SIZE, 0));
+            }
+
+            muxer.setOrientationHint(rotation);
+            muxer.start();
+            muxerStarted = true;
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(maxSampleSize);
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            long offsetUs = 0;
+
+            for (int i = 0; i < sources.size(); i++) {
+                offsetUs += appendSource(context, sources.get(i), muxer, muxerTracks, offsetUs, buffer, bufferInfo);
+
+                if (progressListener != null) {
+                    progressListener.onProgress((float) (i + 1) / sources.size());
+                }
+            }
+        } finally {
+            try {
+                if (muxerStarted) {
+                    muxer.stop();
+                }
+            } finally {
+                muxer.release();
+            }
+        }
+    }
+
+    /**
+     * Writes every sample of a source shifted by offsetUs
+     * @return duration of the source in microSeconds
+     */
+    private static long appendSource(
+        Context context,
+        Uri source,
+        MediaMuxer muxer,
+        int[] muxerTracks,
+        long offsetUs,
+        ByteBuffer buffer,
+        MediaCodec.BufferInfo bufferInfo
+    ) throws IOException {
+        MediaExtractor extractor = open(context, source);
+        try {
+            List<Integer> tracks = getJoinedTracks(extractor);
+            if (tracks.size() != muxerTracks.length) {
+                throw new IOException("Cannot join " + source.getLastPathSegment() + ", tracks do not match");
+            }
+
+            // Muxer track of each extractor track, -1 for tracks left out
+            int[] trackMap = new int[extractor.getTrackCount()];
+            Arrays.fill(trackMap, -1);
+            for (int i = 0; i < tracks.size(); i++) {
+                trackMap[tracks.get(i)] = i;
+                extractor.selectTrack(tracks.get(i));
+            }
+
+            long firstUs = -1;
+            long[] maxUs = new long[muxerTracks.length];
+            long[] minUs = new long[muxerTracks.length];
+            int[] samples = new int[muxerTracks.length];
+
+            int sourceTrack;
+            while ((sourceTrack = extractor.getSampleTrackIndex()) >= 0) {
+                int track = trackMap[sourceTrack];
+                long sampleTimeUs = extractor.getSampleTime();
+                if (firstUs < 0) {
+                    firstUs = sampleTimeUs;
+                }
+
+                bufferInfo.offset = 0;
+                bufferInfo.size = extractor.readSampleData(buffer, 0);
+                bufferInfo.presentationTimeUs = offsetUs + Math.max(0, sampleTimeUs - firstUs);
+                bufferInfo.flags = (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0
+                    ? MediaCodec.BUFFER_FLAG_KEY_FRAME
+                    : 0;
+
+                if (bufferInfo.size > 0) {
+                    muxer.writeSampleData(muxerTracks[track], buffer, bufferInfo);
+                }
+
+                if (samples[track] == 0 || sampleTimeUs < minUs[track]) {
+                    minUs[track] = sampleTimeUs;
+                }
+                maxUs[track] = Math.max(maxUs[track], sampleTimeUs);
+                samples[track]++;
+
+                extractor.advance();
+            }
+
+            // The last sample of each track lasts as long as the average one
+            long durationUs = 0;
+            for (int track = 0; track < muxerTracks.length; track++) {
+                if (samples[track] == 0) {
+                    continue;
+                }
+                long sampleDurationUs = samples[track] > 1 ? (maxUs[track] - minUs[track]) / (samples[track] - 1) : 0;
+                durationUs = Math.max(durationUs, maxUs[track] + sampleDurationUs - firstUs);
+            }
+            return durationUs;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static MediaExtractor open(@Nullable Context context, Uri source) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            if (context != null) {
+                extractor.setDataSource(context, source, null);
+            } else {
+                extractor.setDataSource(source.getPath());
+            }
+        } catch (IOException | RuntimeException ex) {
+            extractor.release();
+            throw ex;
+        }
+        return extractor;
+    }
+
+    /**
+     * @return indexes of the audio and video tracks, other tracks are not joined
+     */
+    private static List<Integer> getJoinedTracks(MediaExtractor extractor) {
+        List<Integer> tracks = new ArrayList<>();
+        for (int track = 0; track < extractor.getTrackCount(); track++) {
+            String mimeType = extractor.getTrackFormat(track).getString(MediaFormat.KEY_MIME);
+            if (mimeType != null && (mimeType.startsWith("video/") || mimeType.startsWith("audio/"))) {
+                tracks.add(track);
+            }
+        }
+        return tracks;
+    }
+
+    private static MediaFormat[] getTrackFormats(@Nullable Context context, Uri source) throws IOException {
+        MediaExtractor extractor = open(context, source);
+        try {
+            List<Integer> tracks = getJoinedTracks(extractor);
+
+            MediaFormat[] formats = new MediaFormat[tracks.size()];
+            for (int i = 0; i < formats.length; i++) {
+                formats[i] = extractor.getTrackFormat(tracks.get(i));
+            }
+            return formats;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    private static List<Uri> toUris(List<File> files) {
+        List<Uri> uris = new ArrayList<>(files.size());
+        for (File file : files) {
+            uris.add(Uri.fromFile(file));
+        }
+        return uris;
+    }
+
+    static boolean isSameConfiguration(@NonNull MediaFormat a, @NonNull MediaFormat b) {
+        String mimeType = a.getString(MediaFormat.KEY_MIME);
+        if (mimeType == null || !mimeType.equals(b.getString(MediaFormat.KEY_MIME))) {
+            return false;
+        }
+
+        // Resolution and audio format are usually in the codec specific data, but not for every codec.
+        // The joined file has a single orientation hint, clips shown with another one would play rotated
+        String[] keys = mimeType.startsWith("video/")
+            ? new String[] { MediaFormat.KEY_WIDTH, MediaFormat.KEY_HEIGHT, MediaFormat.KEY_ROTATION }
+            : new String[] { MediaFormat.KEY_SAMPLE_RATE, MediaFormat.KEY_CHANNEL_COUNT };
+        for (String key : keys) {
+            if (MediaFormatUtils.getInt(a, key, 0) != MediaFormatUtils.getInt(b, key, 0)) {
+                return false;
+            }
+        }
+
+        for (String key : CODEC_SPECIFIC_DATA_KEYS) {
+            ByteBuffer dataA = a.containsKey(key) ? a.getByteBuffer(key) : null;
+            ByteBuffer dataB = b.containsKey(key) ? b.getByteBuffer(key) : null;
+            if (!Objects.equals(dataA, dataB)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
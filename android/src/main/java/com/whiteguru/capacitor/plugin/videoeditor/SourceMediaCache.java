@@ -0,0 +1,70 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.FileStat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.SourceMedia;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of probed sources, keyed by uri, size and modification time so a changed file is probed again.
+ */
+public class SourceMediaCache {
+
+    static final int DEFAULT_MAX_ENTRIES = 32;
+
+    private final Map<String, SourceMedia> entries;
+
+    public SourceMediaCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public SourceMediaCache(int maxEntries) {
+        this.entries = new LinkedHashMap<String, SourceMedia>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SourceMedia> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the probed source, probing it only if it is not cached or has changed
+     * @param context Activity context
+     * @param uri Media uri
+     * @return probed source
+     */
+    @NonNull
+    public SourceMedia get(Context context, @NonNull Uri uri) throws IOException {
+        FileStat stat = FileStat.of(context, uri);
+        if (!stat.isKnown()) {
+            return new SourceMedia(context, uri, stat.size);
+        }
+
+        String key = uri + "|" + stat.size + "|" + stat.lastModified;
+
+        synchronized (entries) {
+            SourceMedia sourceMedia = entries.get(key);
+            if (sourceMedia != null) {
+                return sourceMedia;
+            }
+        }
+
+        SourceMedia sourceMedia = new SourceMedia(context, uri, stat.size);
+
+        synchronized (entries) {
+            entries.put(key, sourceMedia);
+        }
+
+        return sourceMedia;
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Packs same-sized thumbnails into a single image, row by row.
+ * The tile size is taken from the first frame drawn.
+ */
+public class SpriteSheet {
+
+    public static final String FORMAT_JPEG = "jpeg";
+    public static final String FORMAT_WEBP = "webp";
+
+    private final long[] times;
+    private final int columns;
+    private final int rows;
+    private final Bitmap.Config config;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private int tileWidth = 0;
+    private int tileHeight = 0;
+    private Bitmap sheet;
+    private Canvas canvas;
+
+    /**
+     * @param times time in miliSeconds of each tile
+     * @param columns tiles per row
+     * @param rgb565 true to store the sheet as RGB_565, half the memory of ARGB_8888
+     */
+    public SpriteSheet(@NonNull long[] times, int columns, boolean rgb565) {
+        if (columns < 1) {
+            throw new IllegalArgumentException("Parameter columns cannot be lower than 1");
+        }
+
+        this.times = times;
+        this.columns = Math.min(columns, times.length);
+        this.rows = (times.length + this.columns - 1) / this.columns;
+        this.config = rgb565 ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * Returns the memory each tile may use, so the sheet and the frame being drawn into it fit in maxBytes
+     * @param maxBytes memory ceiling in bytes, 0 for no limit
+     * @return max bytes per tile, 0 for no limit
+     */
+    public long getMaxTileBytes(long maxBytes) {
+        // The sheet holds a tile per cell, the last row included, and the decoded frame is one more
+        return maxBytes / ((long) columns * rows + 1);
+    }
+
+    public static boolean isFormatSupported(String format) {
+        return FORMAT_JPEG.equals(format) || FORMAT_WEBP.equals(format);
+    }
+
+    public void drawTile(int index, @NonNull Bitmap frame) {
+        if (sheet == null) {
+            tileWidth = frame.getWidth();
+            tileHeight = frame.getHeight();
+            sheet = Bitmap.createBitmap(tileWidth * columns, tileHeight * rows, config);
+            canvas = new Canvas(sheet);
+        }
+
+        int x = getTileX(index);
+        int y = getTileY(index);
+        canvas.drawBitmap(frame, null, new Rect(x, y, x + tileWidth, y + tileHeight), paint);
+    }
+
+    public void write(@NonNull File outFile, @NonNull String format, int quality) throws IOException {
+        if (sheet == null) {
+            throw new IOException("Sprite sheet is empty");
+        }
+
+        Bitmap.CompressFormat compressFormat;
+        if (FORMAT_WEBP.equals(format)) {
+            compressFormat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSY
+                : Bitmap.CompressFormat.WEBP;
+        } else {
+            compressFormat = Bitmap.CompressFormat.JPEG;
+        }
+
+        try (OutputStream outStream = new FileOutputStream(outFile)) {
+            if (!sheet.compress(compressFormat, quality, outStream)) {
+                throw new IOException("Cannot encode sprite sheet");
+            }
+        }
+    }
+
+    public void recycle() {
+        if (sheet != null) {
+            sheet.recycle();
+            sheet = null;
+            canvas = null;
+        }
+    }
+
+    public int getCount() {
+        return times.length;
+    }
+
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getTileWidth() {
+        return tileWidth;
+    }
+
+    public int getTileHeight() {
+        return tileHeight;
+    }
+
+    public int getTileX(int index) {
+        return (index % columns) * tileWidth;
+    }
+
+    public int getTileY(int index) {
+        return (index / columns) * tileHeight;
+    }
+}
@@ -0,0 +1,80 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+import androidx.annotation.NonNull;
+import com.getcapacitor.Logger;
+
+/**
+ * Follows the device thermal status, so edits can slow down before the system throttles them hard.
+ * Only available from Android 10, older versions always report PowerManager.THERMAL_STATUS_NONE.
+ */
+public class ThermalMonitor {
+
+    public interface Listener {
+        /**
+         * @param status one of PowerManager.THERMAL_STATUS_*
+         */
+        void onThermalStatusChanged(int status);
+    }
+
+    private final PowerManager powerManager;
+    private final Listener listener;
+    private PowerManager.OnThermalStatusChangedListener statusListener;
+
+    public ThermalMonitor(@NonNull Context context, @NonNull Listener listener) {
+        this.powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        this.listener = listener;
+    }
+
+    /**
+     * Starts listening, the listener is called at once with the current status
+     */
+    public synchronized void start() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || powerManager == null || statusListener != null) {
+            return;
+        }
+
+        statusListener = status -> {
+            Logger.debug("Thermal status: " + status);
+            listener.onThermalStatusChanged(status);
+        };
+        // Registering also reports the current status
+        powerManager.addThermalStatusListener(statusListener);
+    }
+
+    public synchronized void stop() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || statusListener == null) {
+            return;
+        }
+
+        powerManager.removeThermalStatusListener(statusListener);
+        statusListener = null;
+    }
+
+    /**
+     * Lowers the requested speed, max runs as balanced from moderate status and every speed runs as background from severe
+     * @param speed one of TranscodeSettings.SPEED_*
+     * @param status one of PowerManager.THERMAL_STATUS_*
+     * @return one of TranscodeSettings.SPEED_*
+     */
+    @NonNull
+    public static String throttle(@NonNull String speed, int status) {
+        if (status >= PowerManager.THERMAL_STATUS_SEVERE) {
+            return TranscodeSettings.SPEED_BACKGROUND;
+        }
+        if (status >= PowerManager.THERMAL_STATUS_MODERATE && TranscodeSettings.SPEED_MAX.equals(speed)) {
+            return TranscodeSettings.SPEED_BALANCED;
+        }
+        return speed;
+    }
+
+    /**
+     * Returns whether edits should run one at a time
+     * @param status one of PowerManager.THERMAL_STATUS_*
+     */
+    public static boolean isThrottled(int status) {
+        return status >= PowerManager.THERMAL_STATUS_MODERATE;
+    }
+}
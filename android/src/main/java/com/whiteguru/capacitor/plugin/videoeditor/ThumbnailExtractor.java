@@ -0,0 +1,199 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.media.MediaMetadataRetriever;
+import android.net.Uri;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoSize;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Extracts several frames of a video with a single MediaMetadataRetriever.
+ * Frames are decoded at the requested size on API 27+, and with the requested config on API 30+.
+ * On older releases frames are scaled or converted into bitmaps taken from a {@link BitmapPool}.
+ * Only those go back to the pool, frames allocated by the retriever can not be decoded into and are recycled.
+ */
+public class ThumbnailExtractor {
+
+    static final int DEFAULT_JPEG_QUALITY = 80;
+
+    private final MediaMetadataRetriever retriever;
+    private final BitmapPool bitmapPool;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Set<Bitmap> pooledBitmaps = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final VideoSize videoSize;
+    private final long durationMs;
+
+    public ThumbnailExtractor(Context context, @NonNull Uri uri, @NonNull BitmapPool bitmapPool) throws IOException {
+        this.bitmapPool = bitmapPool;
+
+        retriever = new MediaMetadataRetriever();
+        try {
+            retriever.setDataSource(context, uri);
+        } catch (RuntimeException ex) {
+            retriever.release();
+            throw new IOException("Cannot open video: " + uri, ex);
+        }
+
+        int width = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+        int height = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+        int rotation = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_ROTATION));
+
+        // Frames are returned already rotated
+        videoSize = rotation == 90 || rotation == 270 ? new VideoSize(height, width) : new VideoSize(width, height);
+        durationMs = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+    }
+
+    /**
+     * Get duration in miliSeconds
+     * @return duration in miliSeconds
+     */
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    /**
+     * Returns the frame at the given time, fit in settings width x height keeping the aspect ratio
+     * and shrunk further if it exceeds maxBytes. Release it with {@link #recycle(Bitmap)}.
+     * @param atMs time in miliSeconds
+     * @param settings size, precision and config of the frame
+     * @param maxBytes max size of the frame in bytes, 0 for no limit
+     * @return frame, null if it can not be decoded
+     */
+    @Nullable
+    public Bitmap getFrameAt(long atMs, @NonNull ThumbnailSettings settings, long maxBytes) {
+        long atUs = atMs * 1000;
+        int option = settings.isExact() ? MediaMetadataRetriever.OPTION_CLOSEST : MediaMetadataRetriever.OPTION_CLOSEST_SYNC;
+        Bitmap.Config config = settings.isRgb565() ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+
+        if (videoSize.width <= 0 || videoSize.height <= 0) {
+            return convert(retriever.getFrameAtTime(atUs, option), config);
+        }
+
+        VideoSize targetSize = calculateTargetSize(settings.getWidth(), settings.getHeight(), config, maxBytes);
+        boolean fullSize = targetSize.width == videoSize.width && targetSize.height == videoSize.height;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            MediaMetadataRetriever.BitmapParams params = new MediaMetadataRetriever.BitmapParams();
+            params.setPreferredConfig(config);
+
+            return retriever.getScaledFrameAtTime(atUs, option, targetSize.width, targetSize.height, params);
+        }
+
+        Bitmap bitmap;
+        if (fullSize) {
+            bitmap = retriever.getFrameAtTime(atUs, option);
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
+            bitmap = retriever.getScaledFrameAtTime(atUs, option, targetSize.width, targetSize.height);
+        } else {
+            bitmap = scale(retriever.getFrameAtTime(atUs, option), targetSize, config);
+        }
+
+        return convert(bitmap, config);
+    }
+
+    /**
+     * Gives a frame returned by getFrameAt back to the pool if it was taken from it, recycles it otherwise
+     */
+    public void recycle(@NonNull Bitmap bitmap) {
+        boolean pooled;
+        synchronized (pooledBitmaps) {
+            pooled = pooledBitmaps.remove(bitmap);
+        }
+
+        if (pooled) {
+            bitmapPool.release(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    public void release() throws IOException {
+        retriever.release();
+    }
+
+    public static void writeJpeg(@NonNull Bitmap bitmap, @NonNull File outFile, int quality) throws IOException {
+        try (OutputStream outStream = new FileOutputStream(outFile)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, quality, outStream)) {
+                throw new IOException("Cannot encode thumbnail");
+            }
+        }
+    }
+
+    @Nullable
+    private Bitmap scale(@Nullable Bitmap bitmap, @NonNull VideoSize targetSize, @NonNull Bitmap.Config config) {
+        if (bitmap == null) {
+            return null;
+        }
+
+        Bitmap target = bitmapPool.acquire(targetSize.width, targetSize.height, config);
+        synchronized (pooledBitmaps) {
+            pooledBitmaps.add(target);
+        }
+        new Canvas(target).drawBitmap(bitmap, null, new Rect(0, 0, targetSize.width, targetSize.height), paint);
+        bitmap.recycle();
+
+        return target;
+    }
+
+    @Nullable
+    private Bitmap convert(@Nullable Bitmap bitmap, @NonNull Bitmap.Config config) {
+        if (bitmap == null || bitmap.getConfig() == config) {
+            return bitmap;
+        }
+
+        return scale(bitmap, new VideoSize(bitmap.getWidth(), bitmap.getHeight()), config);
+    }
+
+    private VideoSize calculateTargetSize(int width, int height, @NonNull Bitmap.Config config, long maxBytes) {
+        double aspectRatio = (double) videoSize.width / (double) videoSize.height;
+
+        int targetWidth = videoSize.width;
+        int targetHeight = videoSize.height;
+
+        if (width > 0 || height > 0) {
+            targetWidth = width > 0 ? width : (int) Math.round(height * aspectRatio);
+            targetHeight = height > 0 ? height : (int) Math.round(width / aspectRatio);
+
+            if ((double) targetWidth / targetHeight > aspectRatio) {
+                targetWidth = (int) Math.round(targetHeight * aspectRatio);
+            } else {
+                targetHeight = (int) Math.round(targetWidth / aspectRatio);
+            }
+        }
+
+        int bytesPerPixel = config == Bitmap.Config.RGB_565 ? 2 : 4;
+        long bytes = (long) targetWidth * targetHeight * bytesPerPixel;
+        if (maxBytes > 0 && bytes > maxBytes) {
+            double scale = Math.sqrt((double) maxBytes / bytes);
+            targetWidth = (int) (targetWidth * scale);
+            targetHeight = (int) (targetHeight * scale);
+        }
+
+        return new VideoSize(Math.max(1, targetWidth), Math.max(1, targetHeight));
+    }
+
+    private static int parseInt(@Nullable String value) {
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import com.getcapacitor.Logger;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts single thumbnails on a pool of worker threads, so slow seeks do not block other calls.
+ * Requests for the same frame of the same source made while it is being extracted share a single decode,
+ * each one gets its own output file.
+ */
+public class ThumbnailQueue {
+
+    static final long KEEP_ALIVE_SECONDS = 30;
+
+    public interface Callback {
+        void onCompleted(@NonNull File outFile);
+
+        void onError(@NonNull Exception cause);
+    }
+
+    private static class Waiter {
+
+        final File outFile;
+        final Callback callback;
+
+        Waiter(File outFile, Callback callback) {
+            this.outFile = outFile;
+            this.callback = callback;
+        }
+    }
+
+    private final BitmapPool bitmapPool;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, List<Waiter>> inFlight = new HashMap<>(); // decode key to requests waiting for it
+
+    /**
+     * @param threads maximum decodes running at the same time
+     */
+    public ThumbnailQueue(@NonNull BitmapPool bitmapPool, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Parameter threads cannot be lower than 1");
+        }
+
+        this.bitmapPool = bitmapPool;
+        this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the extraction of a frame as JPEG into outFile, the callback is called from a worker thread
+     */
+    public void submit(
+        Context context,
+        @NonNull Uri srcUri,
+        @NonNull File outFile,
+        long atMs,
+        @NonNull ThumbnailSettings thumbnailSettings,
+        @NonNull Callback callback
+    ) {
+        String key = getKey(srcUri, atMs, thumbnailSettings);
+
+        synchronized (inFlight) {
+            List<Waiter> waiters = inFlight.get(key);
+            if (waiters != null) {
+                Logger.debug("Thumbnail at " + atMs + "ms already being extracted, sharing it");
+                waiters.add(new Waiter(outFile, callback));
+                return;
+            }
+
+            waiters = new ArrayList<>();
+            waiters.add(new Waiter(outFile, callback));
+            inFlight.put(key, waiters);
+        }
+
+        try {
+            executor.execute(() -> extract(context, srcUri, atMs, thumbnailSettings, key));
+        } catch (RejectedExecutionException ex) {
+            List<Waiter> waiters;
+            synchronized (inFlight) {
+                waiters = inFlight.remove(key);
+            }
+            for (Waiter waiter : waiters) {
+                waiter.callback.onError(new IOException("Thumbnail queue is shut down"));
+            }
+        }
+    }
+
+    /**
+     * Stops the worker threads once the running extractions return, later requests fail
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void extract(Context context, Uri srcUri, long atMs, ThumbnailSettings thumbnailSettings, String key) {
+        ThumbnailExtractor extractor = null;
+        Bitmap bitmap = null;
+        Exception error = null;
+
+        try {
+            extractor = new ThumbnailExtractor(context, srcUri, bitmapPool);
+            bitmap = extractor.getFrameAt(atMs, thumbnailSettings, thumbnailSettings.getMaxMemory());
+            if (bitmap == null) {
+                error = new IOException("Cannot extract frame at " + atMs + "ms");
+            }
+        } catch (IOException | RuntimeException ex) {
+            error = ex;
+        }
+
+        // Requests made from now on start a new decode
+        List<Waiter> waiters;
+        synchronized (inFlight) {
+            waiters = inFlight.remove(key);
+        }
+
+        try {
+            for (Waiter waiter : waiters) {
+                if (error != null) {
+                    waiter.callback.onError(error);
+                    continue;
+                }
+
+                try {
+                    ThumbnailExtractor.writeJpeg(bitmap, waiter.outFile, ThumbnailExtractor.DEFAULT_JPEG_QUALITY);
+                } catch (IOException | RuntimeException ex) {
+                    waiter.callback.onError(ex);
+                    continue;
+                }
+                waiter.callback.onCompleted(waiter.outFile);
+            }
+        } finally {
+            if (extractor != null) {
+                if (bitmap != null) {
+                    extractor.recycle(bitmap);
+                }
+                try {
+                    extractor.release();
+                } catch (IOException ex) {
+                    Logger.warn("Cannot release thumbnail extractor: " + ex.getMessage());
+                }
+            }
+        }
+    }
+
+    private static String getKey(Uri srcUri, long atMs, ThumbnailSettings thumbnailSettings) {
+        return String.format(
+            Locale.ENGLISH,
+            "%s|%d|%d|%d|%b|%b|%d",
+            srcUri,
+            atMs,
+            thumbnailSettings.getWidth(),
+            thumbnailSettings.getHeight(),
+            thumbnailSettings.isExact(),
+            thumbnailSettings.isRgb565(),
+            thumbnailSettings.getMaxMemory()
+        );
+    }
+}
@@ -0,0 +1,96 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+public class ThumbnailSettings {
+
+    private int width = 0;
+    private int height = 0;
+    private boolean exact = false;
+    private boolean rgb565 = false;
+    private long maxMemory = 0;
+
+    public ThumbnailSettings() {}
+
+    public ThumbnailSettings(int width, int height, boolean exact, boolean rgb565, long maxMemory) {
+        if (width < 0) {
+            throw new IllegalArgumentException("Parameter width cannot be negative");
+        }
+
+        if (height < 0) {
+            throw new IllegalArgumentException("Parameter height cannot be negative");
+        }
+
+        if (maxMemory < 0) {
+            throw new IllegalArgumentException("Parameter maxMemory cannot be negative");
+        }
+
+        this.width = width;
+        this.height = height;
+        this.exact = exact;
+        this.rgb565 = rgb565;
+        this.maxMemory = maxMemory;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        if (width < 0) {
+            throw new IllegalArgumentException("Parameter width cannot be negative");
+        }
+
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        if (height < 0) {
+            throw new IllegalArgumentException("Parameter height cannot be negative");
+        }
+
+        this.height = height;
+    }
+
+    /**
+     * Whether the exact frame must be decoded instead of the closest sync frame
+     * @return true if the exact frame must be decoded
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    public void setExact(boolean exact) {
+        this.exact = exact;
+    }
+
+    /**
+     * Whether frames are decoded as RGB_565, half the memory of ARGB_8888
+     * @return true if frames are decoded as RGB_565
+     */
+    public boolean isRgb565() {
+        return rgb565;
+    }
+
+    public void setRgb565(boolean rgb565) {
+        this.rgb565 = rgb565;
+    }
+
+    /**
+     * Get max memory in bytes for the decoded frames of a call, 0 for no limit
+     * @return max memory in bytes
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    public void setMaxMemory(long maxMemory) {
+        if (maxMemory < 0) {
+            throw new IllegalArgumentException("Parameter maxMemory cannot be negative");
+        }
+
+        this.maxMemory = maxMemory;
+    }
+}
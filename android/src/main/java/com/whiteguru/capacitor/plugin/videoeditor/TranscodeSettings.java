@@ -2,10 +2,38 @@ package com.whiteguru.capacitor.plugin.videoeditor;
 
 public class TranscodeSettings {
 
+    public static final String CODEC_AVC = "avc";
+    public static final String CODEC_HEVC = "hevc";
+
+    public static final String BITRATE_MODE_VBR = "vbr";
+    public static final String BITRATE_MODE_CBR = "cbr";
+    public static final String BITRATE_MODE_CQ = "cq";
+
+    public static final String QUALITY_LOW = "low";
+    public static final String QUALITY_MEDIUM = "medium";
+    public static final String QUALITY_HIGH = "high";
+
+    public static final String AUDIO_COPY = "copy";
+    public static final String AUDIO_TRANSCODE = "transcode";
+    public static final String AUDIO_REMOVE = "remove";
+
+    public static final String SPEED_MAX = "max";
+    public static final String SPEED_BALANCED = "balanced";
+    public static final String SPEED_BACKGROUND = "background";
+
     private int height = 0;
     private int width = 0;
     private boolean keepAspectRatio = true;
     private int fps = 30;
+    private String codec = null;
+    private String bitrateMode = null;
+    private int keyFrameInterval = 0;
+    private String quality = null;
+    private long targetSize = 0;
+    private String audio = AUDIO_COPY;
+    private float timeLapse = 1;
+    private boolean dropFrames = false;
+    private String speed = SPEED_BALANCED;
 
     public TranscodeSettings() {}
 
@@ -28,6 +56,22 @@ public class TranscodeSettings {
         this.fps = fps;
     }
 
+    public TranscodeSettings(TranscodeSettings transcodeSettings) {
+        this.height = transcodeSettings.height;
+        this.width = transcodeSettings.width;
+        this.keepAspectRatio = transcodeSettings.keepAspectRatio;
+        this.fps = transcodeSettings.fps;
+        this.codec = transcodeSettings.codec;
+        this.bitrateMode = transcodeSettings.bitrateMode;
+        this.keyFrameInterval = transcodeSettings.keyFrameInterval;
+        this.quality = transcodeSettings.quality;
+        this.targetSize = transcodeSettings.targetSize;
+        this.audio = transcodeSettings.audio;
+        this.timeLapse = transcodeSettings.timeLapse;
+        this.dropFrames = transcodeSettings.dropFrames;
+        this.speed = transcodeSettings.speed;
+    }
+
     public int getHeight() {
         return height;
     }
@@ -71,4 +115,175 @@ public class TranscodeSettings {
 
         this.fps = fps;
     }
+
+    /**
+     * Get preferred codec, falls back to AVC if the device has no suitable hardware encoder
+     * @return one of CODEC_*
+     */
+    public String getCodec() {
+        return codec != null ? codec : CODEC_AVC;
+    }
+
+    /**
+     * Set preferred codec, null for the default AVC
+     */
+    public void setCodec(String codec) {
+        if (codec != null && !CODEC_AVC.equals(codec) && !CODEC_HEVC.equals(codec)) {
+            throw new IllegalArgumentException("Parameter codec must be one of avc, hevc");
+        }
+
+        this.codec = codec;
+    }
+
+    /**
+     * Get preferred bitrate mode, null to use the encoder default
+     * @return one of BITRATE_MODE_* or null
+     */
+    public String getBitrateMode() {
+        return bitrateMode;
+    }
+
+    public void setBitrateMode(String bitrateMode) {
+        if (
+            bitrateMode != null &&
+            !BITRATE_MODE_VBR.equals(bitrateMode) &&
+            !BITRATE_MODE_CBR.equals(bitrateMode) &&
+            !BITRATE_MODE_CQ.equals(bitrateMode)
+        ) {
+            throw new IllegalArgumentException("Parameter bitrateMode must be one of vbr, cbr, cq");
+        }
+
+        this.bitrateMode = bitrateMode;
+    }
+
+    /**
+     * Get key frame interval in seconds
+     * @return key frame interval in seconds
+     */
+    public int getKeyFrameInterval() {
+        return keyFrameInterval > 0 ? keyFrameInterval : 5;
+    }
+
+    public void setKeyFrameInterval(int keyFrameInterval) {
+        if (keyFrameInterval < 1) {
+            throw new IllegalArgumentException("Parameter keyFrameInterval cannot be lower than 1");
+        }
+
+        this.keyFrameInterval = keyFrameInterval;
+    }
+
+    /**
+     * Get quality tier, used when no target size is set
+     * @return one of QUALITY_*
+     */
+    public String getQuality() {
+        return quality != null ? quality : QUALITY_MEDIUM;
+    }
+
+    /**
+     * Set quality tier, null for the default medium
+     */
+    public void setQuality(String quality) {
+        if (quality != null && !QUALITY_LOW.equals(quality) && !QUALITY_MEDIUM.equals(quality) && !QUALITY_HIGH.equals(quality)) {
+            throw new IllegalArgumentException("Parameter quality must be one of low, medium, high");
+        }
+
+        this.quality = quality;
+    }
+
+    public boolean isCodecSet() {
+        return codec != null;
+    }
+
+    public boolean isKeyFrameIntervalSet() {
+        return keyFrameInterval > 0;
+    }
+
+    public boolean isQualitySet() {
+        return quality != null;
+    }
+
+    /**
+     * Get whether bitrate mode, key frame interval or quality were set, the source is then always encoded
+     * @return true if any encoder option was set
+     */
+    public boolean hasEncoderOptions() {
+        return bitrateMode != null || isKeyFrameIntervalSet() || isQualitySet();
+    }
+
+    /**
+     * Get target output size in bytes
+     * @return target size in bytes, 0 to plan the bitrate by quality
+     */
+    public long getTargetSize() {
+        return targetSize;
+    }
+
+    public void setTargetSize(long targetSize) {
+        if (targetSize < 0) {
+            throw new IllegalArgumentException("Parameter targetSize cannot be lower than 0");
+        }
+
+        this.targetSize = targetSize;
+    }
+
+    /**
+     * Get audio handling, copy falls back to transcode when the audio tracks can not be copied
+     * @return one of AUDIO_*
+     */
+    public String getAudio() {
+        return audio;
+    }
+
+    public void setAudio(String audio) {
+        if (!AUDIO_COPY.equals(audio) && !AUDIO_TRANSCODE.equals(audio) && !AUDIO_REMOVE.equals(audio)) {
+            throw new IllegalArgumentException("Parameter audio must be one of copy, transcode, remove");
+        }
+
+        this.audio = audio;
+    }
+
+    /**
+     * Get time-lapse speed factor, frames are kept at the target frame rate of the sped up timeline
+     * @return speed factor, 1 for real time
+     */
+    public float getTimeLapse() {
+        return timeLapse;
+    }
+
+    public void setTimeLapse(float timeLapse) {
+        if (timeLapse < 1) {
+            throw new IllegalArgumentException("Parameter timeLapse cannot be lower than 1");
+        }
+
+        this.timeLapse = timeLapse;
+    }
+
+    /**
+     * Get whether source frames above fps are dropped before encoding, instead of encoding every frame
+     * @return true to drop frames, always done when time-lapse is greater than 1
+     */
+    public boolean isDropFrames() {
+        return dropFrames;
+    }
+
+    public void setDropFrames(boolean dropFrames) {
+        this.dropFrames = dropFrames;
+    }
+
+    /**
+     * Get how fast the encoder is asked to run, it is lowered while the device is hot
+     * @return one of SPEED_*
+     */
+    public String getSpeed() {
+        return speed;
+    }
+
+    public void setSpeed(String speed) {
+        if (!SPEED_MAX.equals(speed) && !SPEED_BALANCED.equals(speed) && !SPEED_BACKGROUND.equals(speed)) {
+            throw new IllegalArgumentException("Parameter speed must be one of max, balanced, background");
+        }
+
+        this.speed = speed;
+    }
 }
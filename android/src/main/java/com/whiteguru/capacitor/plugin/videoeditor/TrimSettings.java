@@ -4,6 +4,7 @@ public class TrimSettings {
 
     private long startsAt = 0;
     private long endsAt = 0;
+    private boolean accurate = true; // moving startsAt back to a keyframe is opt-in
 
     public TrimSettings() {}
 
@@ -20,6 +21,12 @@ public class TrimSettings {
         this.endsAt = endsAt;
     }
 
+    public TrimSettings(long startsAt, long endsAt, boolean accurate) {
+        this(startsAt, endsAt);
+
+        this.accurate = accurate;
+    }
+
     /**
      * Get startsAt in miliSeconds
      * @return startsAt in miliSeconds
@@ -51,4 +58,16 @@ public class TrimSettings {
 
         this.endsAt = endsAt;
     }
+
+    /**
+     * Whether startsAt must be honored exactly or may be moved back to the previous keyframe
+     * @return true if trim must be frame accurate
+     */
+    public boolean isAccurate() {
+        return accurate;
+    }
+
+    public void setAccurate(boolean accurate) {
+        this.accurate = accurate;
+    }
 }
@@ -3,10 +3,11 @@ package com.whiteguru.capacitor.plugin.videoeditor;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.media.MediaCodecInfo;
-import android.media.MediaExtractor;
+import android.media.MediaCodecList;
 import android.media.MediaFormat;
-import android.media.MediaMetadataRetriever;
 import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.getcapacitor.Logger;
@@ -15,67 +16,477 @@ import com.linkedin.android.litr.TransformationListener;
 import com.linkedin.android.litr.TransformationOptions;
 import com.linkedin.android.litr.analytics.TrackTransformationInfo;
 import com.linkedin.android.litr.io.MediaRange;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.AudioTrackFormat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EditReport;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EncoderSelection;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.GenericTrackFormat;
 import com.whiteguru.capacitor.plugin.videoeditor.dto.MediaTrackFormat;
 import com.whiteguru.capacitor.plugin.videoeditor.dto.SourceMedia;
 import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoSize;
 import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoTrackFormat;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class VideoEditorLitr {
 
-    static final int DEFAULT_VIDEO_KEY_FRAME_INTERVAL = 5;
     static final int DEFAULT_AUDIO_BITRATE = 128000;
     static final int DEFAULT_AUDIO_CHANNEL_COUNT = 2;
     static final int DEFAULT_AUDIO_SAMPLE_RATE = 44100;
     static final String DEFAULT_AUDIO_MIME = "audio/mp4a-latm";
+    static final int MAX_PARALLEL_SEGMENTS = 4;
+    static final long MIN_PARALLEL_SEGMENT_MS = 60_000;
+    static final long RESUMABLE_SEGMENT_MS = 30_000;
 
-    // For AVC this should be a reasonable default.
-    // https://stackoverflow.com/a/5220554/4288782
-    public static long estimateVideoBitRate(int width, int height, int frameRate) {
-        return (long) (0.07F * 2 * width * height * frameRate);
+    /** Returns audio bitrate in bits/sec if available, otherwise DEFAULT_AUDIO_BITRATE. */
+    public static int getTargetAudioBitrate(SourceMedia sourceMedia) {
+        List<AudioTrackFormat> audioTracks = sourceMedia.getAudioTracks();
+        if (audioTracks.isEmpty()) {
+            return DEFAULT_AUDIO_BITRATE; // no audio track
+        }
+
+        int bitrate = audioTracks.get(0).bitrate;
+        if (bitrate <= 0) {
+            return DEFAULT_AUDIO_BITRATE; // not reported (common for some VBR / containers)
+        }
+
+        return Math.min(DEFAULT_AUDIO_BITRATE, bitrate); // bps
     }
 
-    /** Returns audio bitrate in bits/sec if available, otherwise DEFAULT_AUDIO_BITRATE. */
-    public static int getTargetAudioBitrate(Context context, Uri uri) throws IOException {
-        MediaExtractor extractor = new MediaExtractor();
-        try {
-            extractor.setDataSource(context, uri, null);
-
-            for (int i = 0; i < extractor.getTrackCount(); i++) {
-                MediaFormat format = extractor.getTrackFormat(i);
-                String mime = format.getString(MediaFormat.KEY_MIME);
-                if (mime != null && mime.startsWith("audio/")) {
-                    if (format.containsKey(MediaFormat.KEY_BIT_RATE)) {
-                        return Math.min(DEFAULT_AUDIO_BITRATE, format.getInteger(MediaFormat.KEY_BIT_RATE)); // bps
-                    }
-                    return DEFAULT_AUDIO_BITRATE; // not reported (common for some VBR / containers)
+    /**
+     * Returns how many edits may run at the same time, bounded by the concurrent instances
+     * supported by the default AVC encoder and by the available processors.
+     */
+    public static int getDefaultMaxConcurrency() {
+        MediaCodecInfo encoderInfo = null;
+        MediaCodecList codecList = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+
+        for (MediaCodecInfo codecInfo : codecList.getCodecInfos()) {
+            if (!codecInfo.isEncoder() || !Arrays.asList(codecInfo.getSupportedTypes()).contains(MediaFormat.MIMETYPE_VIDEO_AVC)) {
+                continue;
+            }
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || codecInfo.isHardwareAccelerated()) {
+                encoderInfo = codecInfo;
+                break;
+            }
+            if (encoderInfo == null) {
+                encoderInfo = codecInfo;
+            }
+        }
+
+        if (encoderInfo == null) {
+            return 1;
+        }
+
+        int maxInstances = encoderInfo.getCapabilitiesForType(MediaFormat.MIMETYPE_VIDEO_AVC).getMaxSupportedInstances();
+
+        return Math.max(1, Math.min(maxInstances, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public interface ThumbnailListener {
+        void onThumbnail(int index, long atMs, File file);
+    }
+
+    public interface SegmentListener {
+        /**
+         * Returns the file the segment is written to, called before the segment starts
+         */
+        File createSegmentFile(int index) throws IOException;
+
+        /**
+         * Called once the segment file is complete, while the next segment is encoding
+         * @param startsAtMs segment start in the source, in miliSeconds
+         * @param endsAtMs segment end in the source, in miliSeconds
+         */
+        void onSegmentReady(@NonNull String id, int index, @NonNull File file, long startsAtMs, long endsAtMs);
+    }
+
+    /**
+     * Creates the LiTr transformer of each edit
+     */
+    interface TransformerFactory {
+        MediaTransformer create(Context context);
+    }
+
+    private final EditScheduler scheduler;
+    private final TransformerFactory transformerFactory;
+    private final SourceMediaCache sourceMediaCache = new SourceMediaCache();
+    private final BitmapPool bitmapPool = new BitmapPool();
+    private final ThumbnailQueue thumbnailQueue = new ThumbnailQueue(bitmapPool, Runtime.getRuntime().availableProcessors());
+    private final ExecutorService metricsExecutor = Executors.newSingleThreadExecutor();
+    private final int maxConcurrency;
+    private OutputStore outputStore;
+    private volatile int thermalStatus = 0; // PowerManager.THERMAL_STATUS_NONE
+
+    public VideoEditorLitr() {
+        this(getDefaultMaxConcurrency());
+    }
+
+    public VideoEditorLitr(int maxConcurrency) {
+        this(maxConcurrency, MediaTransformer::new);
+    }
+
+    /**
+     * @param transformerFactory replaced by benchmarks, to run the edit path without encoding
+     */
+    VideoEditorLitr(int maxConcurrency, @NonNull TransformerFactory transformerFactory) {
+        this.maxConcurrency = maxConcurrency;
+        this.scheduler = new EditScheduler(maxConcurrency);
+        this.transformerFactory = transformerFactory;
+    }
+
+    /**
+     * Slows edits down while the device is hot: one edit at a time, without parallel segments, and lower encoder speeds.
+     * Running encoders keep their speed, the changes apply to the next ones.
+     * @param status one of PowerManager.THERMAL_STATUS_*
+     */
+    public void setThermalStatus(int status) {
+        thermalStatus = status;
+        scheduler.setMaxConcurrency(ThermalMonitor.isThrottled(status) ? 1 : maxConcurrency);
+    }
+
+    /**
+     * Stops the worker threads once the running edits return, queued edits are cancelled.
+     * The editor can not be used afterwards.
+     */
+    public void shutdown() {
+        scheduler.shutdown();
+        thumbnailQueue.shutdown();
+        metricsExecutor.shutdown();
+        bitmapPool.clear();
+    }
+
+    /**
+     * Sets the store used to check free space before writing outputs, null to skip the check
+     */
+    public void setOutputStore(@Nullable OutputStore outputStore) {
+        this.outputStore = outputStore;
+    }
+
+    /**
+     * Probes a source without decoding it, the result is shared with the edits of the same source
+     */
+    @NonNull
+    public SourceMedia getInfo(Context context, @NonNull Uri srcUri) throws IOException {
+        return sourceMediaCache.get(context, srcUri);
+    }
+
+    /**
+     * Returns the average key frame interval at the start of a video track, reading only the container index
+     * @param track video track index
+     * @return interval in seconds, -1 if the track has a single key frame
+     */
+    public float getKeyFrameInterval(Context context, @NonNull Uri srcUri, int track) throws IOException {
+        return VideoSampler.keyFrameInterval(context, srcUri, track, VideoSampler.DEFAULT_KEY_FRAME_COUNT);
+    }
+
+    /**
+     * Queues an edit
+     * @param srcUri file or content uri, content is read through its descriptor without copying it
+     * @param progressSettings throttling of listener progress updates
+     * @param report filled while the edit runs, complete when the listener is notified
+     * @return job id, also used as id for listener callbacks
+     */
+    public String edit(
+        Context context,
+        Uri srcUri,
+        File outFile,
+        TrimSettings trimSettings,
+        TranscodeSettings transcodeSettings,
+        ProgressSettings progressSettings,
+        int priority,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) {
+        return enqueue(priority, progressSettings, videoTransformationListener, (job, listener) ->
+            transform(context, job, srcUri, outFile, trimSettings, transcodeSettings, progressSettings, report, listener)
+        );
+    }
+
+    /**
+     * Queues an edit that writes one output per transcode settings, decoding the source once.
+     * Audio is copied or removed, it can not be transcoded.
+     * @param outFiles output files, one per transcode settings
+     * @param report filled while the edit runs, encoder is the one of the first output
+     * @return job id, also used as id for listener callbacks
+     */
+    public String editOutputs(
+        Context context,
+        Uri srcUri,
+        List<File> outFiles,
+        TrimSettings trimSettings,
+        List<TranscodeSettings> transcodeSettingsList,
+        ProgressSettings progressSettings,
+        int priority,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) {
+        if (outFiles.size() != transcodeSettingsList.size()) {
+            throw new IllegalArgumentException("One output file is required per transcode settings");
+        }
+
+        return enqueue(priority, progressSettings, videoTransformationListener, (job, listener) ->
+            transformOutputs(context, job, srcUri, outFiles, trimSettings, transcodeSettingsList, report, listener)
+        );
+    }
+
+    /**
+     * Queues an edit that writes consecutive MP4 segments of about segmentDurationMs each.
+     * Segments start at source key frames, so they may be longer when key frames are further apart.
+     * @param segmentDurationMs target duration of each segment in miliSeconds
+     * @param segmentListener creates the segment files and is notified when each one is ready
+     * @return job id, also used as id for listener callbacks
+     */
+    public String editSegments(
+        Context context,
+        Uri srcUri,
+        TrimSettings trimSettings,
+        TranscodeSettings transcodeSettings,
+        long segmentDurationMs,
+        ProgressSettings progressSettings,
+        int priority,
+        EditReport report,
+        SegmentListener segmentListener,
+        TransformationListener videoTransformationListener
+    ) {
+        if (segmentDurationMs < 1) {
+            throw new IllegalArgumentException("Parameter segmentDuration must be greater than 0");
+        }
+
+        return enqueue(priority, progressSettings, videoTransformationListener, (job, listener) ->
+            transformSegments(
+                context,
+                job,
+                srcUri,
+                trimSettings,
+                transcodeSettings,
+                segmentDurationMs,
+                progressSettings,
+                report,
+                segmentListener,
+                listener
+            )
+        );
+    }
+
+    /**
+     * Queues an edit that transcodes parts of the source at the same time with several encoder instances,
+     * joining them without decoding. Runs as a regular edit for short sources, when the source can be remuxed,
+     * when audio is transcoded or when the parts can not be joined.
+     * @return job id, also used as id for listener callbacks
+     */
+    public String editParallel(
+        Context context,
+        Uri srcUri,
+        File outFile,
+        TrimSettings trimSettings,
+        TranscodeSettings transcodeSettings,
+        ProgressSettings progressSettings,
+        int priority,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) {
+        return enqueue(priority, progressSettings, videoTransformationListener, (job, listener) ->
+            transformParallel(context, job, srcUri, outFile, trimSettings, transcodeSettings, progressSettings, report, listener)
+        );
+    }
+
+    /**
+     * Queues an edit that writes its segments next to the job record and joins them once all are written.
+     * Segments written by a previous run of the same record are kept, so an interrupted edit resumes from them.
+     * @param record job record, updated and saved as segments complete
+     * @return job id of this run, the listener is called with it
+     */
+    public String editResumable(
+        Context context,
+        JobRecord record,
+        JobStore jobStore,
+        ProgressSettings progressSettings,
+        int priority,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) {
+        return enqueue(priority, progressSettings, videoTransformationListener, (job, listener) ->
+            transformResumable(context, job, record, jobStore, progressSettings, report, listener)
+        );
+    }
+
+    private interface EditTask {
+        void run(EditScheduler.Job job, TransformationListener listener) throws IOException;
+    }
+
+    private String enqueue(
+        int priority,
+        ProgressSettings progressSettings,
+        TransformationListener videoTransformationListener,
+        EditTask task
+    ) {
+        String requestId = UUID.randomUUID().toString();
+
+        // Terminal callbacks are delivered once, a cancel may race with completion
+        AtomicBoolean finished = new AtomicBoolean(false);
+
+        ProgressThrottler progressThrottler = new ProgressThrottler(progressSettings, progress ->
+            videoTransformationListener.onProgress(requestId, progress)
+        );
+
+        TransformationListener jobListener = new TransformationListener() {
+            @Override
+            public void onStarted(@NonNull String id) {
+                videoTransformationListener.onStarted(id);
+            }
+
+            @Override
+            public void onProgress(@NonNull String id, float progress) {
+                progressThrottler.update(progress);
+            }
+
+            @Override
+            public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                if (finished.compareAndSet(false, true)) {
+                    progressThrottler.close(true);
+                    scheduler.finish(id);
+                    videoTransformationListener.onCompleted(id, trackTransformationInfos);
                 }
             }
-            return DEFAULT_AUDIO_BITRATE; // no audio track
-        } finally {
-            extractor.release();
+
+            @Override
+            public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                if (finished.compareAndSet(false, true)) {
+                    progressThrottler.close(false);
+                    scheduler.finish(id);
+                    videoTransformationListener.onCancelled(id, trackTransformationInfos);
+                }
+            }
+
+            @Override
+            public void onError(
+                @NonNull String id,
+                @Nullable Throwable cause,
+                @Nullable List<TrackTransformationInfo> trackTransformationInfos
+            ) {
+                if (finished.compareAndSet(false, true)) {
+                    progressThrottler.close(false);
+                    scheduler.finish(id);
+                    videoTransformationListener.onError(id, cause, trackTransformationInfos);
+                }
+            }
+        };
+
+        scheduler.enqueue(
+            requestId,
+            priority,
+            job -> {
+                try {
+                    task.run(job, jobListener);
+                } catch (IOException | RuntimeException ex) {
+                    jobListener.onError(requestId, ex, null);
+                }
+            },
+            () -> jobListener.onCancelled(requestId, null)
+        );
+
+        return requestId;
+    }
+
+    /**
+     * Queues the concatenation of several clips into outFile.
+     * Clips with the same codec, resolution and audio format are joined without decoding,
+     * the other ones are transcoded to the format of the first clip, or to transcodeSettings if set, before joining.
+     * @param transcodeSettings output settings, null to keep the format of the first clip
+     * @return job id, also used as id for listener callbacks
+     */
+    public String concat(
+        Context context,
+        List<Uri> srcUris,
+        File outFile,
+        @Nullable TranscodeSettings transcodeSettings,
+        ProgressSettings progressSettings,
+        int priority,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) {
+        if (srcUris.isEmpty()) {
+            throw new IllegalArgumentException("Parameter paths cannot be empty");
         }
+
+        return enqueue(priority, progressSettings, videoTransformationListener, (job, listener) ->
+            transformConcat(context, job, srcUris, outFile, transcodeSettings, progressSettings, report, listener)
+        );
+    }
+
+    /**
+     * Cancels a queued or running edit
+     * @param jobId Job id returned by edit
+     * @return false if the job is unknown or already finished
+     */
+    public boolean cancel(String jobId) {
+        return scheduler.cancel(jobId);
     }
 
-    public void edit(
+    /**
+     * Returns the position of an edit job
+     * @param jobId Job id returned by edit
+     * @return 0 if running, 1 or greater if queued, -1 if unknown
+     */
+    public int getJobPosition(String jobId) {
+        return scheduler.getPosition(jobId);
+    }
+
+    private void transform(
         Context context,
-        File srcFile,
+        EditScheduler.Job job,
+        Uri srcUri,
         File outFile,
         TrimSettings trimSettings,
         TranscodeSettings transcodeSettings,
+        ProgressSettings progressSettings,
+        EditReport report,
         TransformationListener videoTransformationListener
     ) throws IOException {
-        MediaTransformer mediaTransformer = new MediaTransformer(context);
+        transform(
+            context,
+            job,
+            srcUri,
+            outFile,
+            trimSettings,
+            transcodeSettings,
+            true,
+            progressSettings,
+            report,
+            videoTransformationListener
+        );
+    }
 
-        String requestId = UUID.randomUUID().toString();
-        Uri sourceVideoUri = Uri.fromFile(srcFile);
+    /**
+     * @param allowRemux false to encode the source even if it already fits the target
+     */
+    private void transform(
+        Context context,
+        EditScheduler.Job job,
+        Uri srcUri,
+        File outFile,
+        TrimSettings trimSettings,
+        TranscodeSettings transcodeSettings,
+        boolean allowRemux,
+        ProgressSettings progressSettings,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        String requestId = job.getId();
         String targetVideoFilePath = outFile.getPath();
-        SourceMedia sourceMedia = new SourceMedia(context, sourceVideoUri);
+        EditMetricsCollector metricsCollector = new EditMetricsCollector(SystemClock.elapsedRealtime() - job.getQueuedAt());
+        long probeStartedAt = SystemClock.elapsedRealtime();
+        SourceMedia sourceMedia = sourceMediaCache.get(context, srcUri);
+        metricsCollector.setProbeTime(SystemClock.elapsedRealtime() - probeStartedAt);
         // Resolution
         List<VideoTrackFormat> videoTracks = sourceMedia.getVideoTracks();
         if (videoTracks.size() == 0) {
@@ -84,38 +495,120 @@ public class VideoEditorLitr {
         VideoSize targetVideoSize = calculateTargetVideoSize(videoTracks.get(0), transcodeSettings);
         Logger.debug("Source video size: " + (new VideoSize(videoTracks.get(0).width, videoTracks.get(0).height)));
         Logger.debug("Target video size: " + targetVideoSize);
-        int estimatedVideoBitrate = (int) estimateVideoBitRate(targetVideoSize.width, targetVideoSize.height, transcodeSettings.getFps());
-        int originalVideoBitrate = videoTracks.get(0).bitrate;
 
-        int targetVideoBitrate = Math.min(estimatedVideoBitrate, originalVideoBitrate);
-        int targetAudioBitrate = getTargetAudioBitrate(context, sourceVideoUri);
+        int targetAudioBitrate = getTargetAudioBitrate(sourceMedia);
+        String audioMode = getAudioMode(sourceMedia, transcodeSettings);
+        report.audio = audioMode;
 
         // Trim
         long startsAtUs = trimSettings.getStartsAt() * 1000;
         long endsAtUs = trimSettings.getEndsAt() == 0 ? Long.MAX_VALUE : trimSettings.getEndsAt() * 1000;
+        long rangeUs = Math.min(endsAtUs, (long) (sourceMedia.durationMs * 1000)) - startsAtUs;
+
+        // Passthrough: source already fits the target, copy samples instead of transcoding
+        boolean passthrough =
+            allowRemux && canRemux(sourceMedia, targetVideoSize, transcodeSettings, audioMode, startsAtUs, endsAtUs);
+
+        int sourceFrameRate = videoTracks.get(0).frameRate;
+        float timeLapse = transcodeSettings.getTimeLapse();
+        // LiTr encodes every decoded frame, frames above the target rate are only dropped by the own pipeline, on request
+        boolean decimate =
+            timeLapse > 1 ||
+            (transcodeSettings.isDropFrames() &&
+                sourceFrameRate > transcodeSettings.getFps() &&
+                !TranscodeSettings.AUDIO_TRANSCODE.equals(audioMode));
+        float outputFrameRate = passthrough
+            ? sourceFrameRate
+            : sourceFrameRate > 0
+                ? Math.min(decimate ? sourceFrameRate * timeLapse : sourceFrameRate, transcodeSettings.getFps())
+                : transcodeSettings.getFps();
+        report.frameCount = Math.max(0, Math.round(rangeUs / timeLapse / 1_000_000f * outputFrameRate));
+
+        if (passthrough && sourceMedia.size > 0 && sourceMedia.durationMs > 0) {
+            ensureFreeSpace(outFile, (long) (sourceMedia.size * Math.min(1.0, rangeUs / (sourceMedia.durationMs * 1000.0))));
+        }
+
+        if (
+            passthrough &&
+            remux(
+                context,
+                job,
+                sourceMedia,
+                outFile,
+                trimSettings,
+                audioMode,
+                withMetrics(metricsCollector, sourceMedia, outFile, true, report, videoTransformationListener)
+            )
+        ) {
+            return;
+        }
+
+        TransformationListener completionListener = withMetrics(
+            metricsCollector,
+            sourceMedia,
+            outFile,
+            false,
+            report,
+            videoTransformationListener
+        );
+
+        if (decimate) {
+            Logger.debug("Dropping frames above " + transcodeSettings.getFps() + " fps, time lapse " + timeLapse);
+            transformOutputs(
+                context,
+                job,
+                srcUri,
+                Arrays.asList(outFile),
+                trimSettings,
+                Arrays.asList(transcodeSettings),
+                report,
+                completionListener
+            );
+            return;
+        }
+
+        EncoderSelection encoderSelection = VideoEncoderSelector.select(
+            transcodeSettings.getCodec(),
+            transcodeSettings.getBitrateMode(),
+            targetVideoSize.width,
+            targetVideoSize.height,
+            transcodeSettings.getFps()
+        );
+        Logger.debug("Selected encoder: " + encoderSelection);
+        report.encoder = encoderSelection;
 
         TransformationOptions transformationOptions = new TransformationOptions.Builder()
-            .setGranularity(MediaTransformer.GRANULARITY_DEFAULT)
+            .setGranularity(progressSettings.getGranularity())
             .setSourceMediaRange(new MediaRange(startsAtUs, endsAtUs))
             .setRemoveMetadata(true)
+            .setRemoveAudio(TranscodeSettings.AUDIO_REMOVE.equals(audioMode))
             .build();
 
         // Video codec config
-        MediaFormat targetVideoFormat = new MediaFormat();
-        targetVideoFormat.setString(MediaFormat.KEY_MIME, "video/avc");
-        targetVideoFormat.setInteger(MediaFormat.KEY_WIDTH, targetVideoSize.width);
-        targetVideoFormat.setInteger(MediaFormat.KEY_HEIGHT, targetVideoSize.height);
-        targetVideoFormat.setInteger(MediaFormat.KEY_FRAME_RATE, transcodeSettings.getFps());
-        targetVideoFormat.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, DEFAULT_VIDEO_KEY_FRAME_INTERVAL);
-        targetVideoFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
-        targetVideoFormat.setInteger(MediaFormat.KEY_BIT_RATE, targetVideoBitrate);
+        int outputAudioBitrate = getOutputAudioBitrate(sourceMedia, audioMode, targetAudioBitrate);
+        MediaFormat targetVideoFormat = createTargetVideoFormat(
+            context,
+            sourceMedia,
+            startsAtUs,
+            endsAtUs,
+            targetVideoSize,
+            transcodeSettings,
+            encoderSelection,
+            outputAudioBitrate
+        );
+        ensureFreeSpace(outFile, estimateOutputBytes(targetVideoFormat, outputAudioBitrate, rangeUs));
+
+        // Audio codec config, a null format copies the audio samples as they are
+        MediaFormat targetAudioFormat = null;
+        if (TranscodeSettings.AUDIO_TRANSCODE.equals(audioMode)) {
+            targetAudioFormat = new MediaFormat();
+            targetAudioFormat.setString(MediaFormat.KEY_MIME, DEFAULT_AUDIO_MIME);
+            targetAudioFormat.setInteger(MediaFormat.KEY_CHANNEL_COUNT, DEFAULT_AUDIO_CHANNEL_COUNT);
+            targetAudioFormat.setInteger(MediaFormat.KEY_SAMPLE_RATE, DEFAULT_AUDIO_SAMPLE_RATE);
+            targetAudioFormat.setInteger(MediaFormat.KEY_BIT_RATE, targetAudioBitrate);
+        }
 
-        // Audio codec config
-        MediaFormat targetAudioFormat = new MediaFormat();
-        targetAudioFormat.setString(MediaFormat.KEY_MIME, DEFAULT_AUDIO_MIME);
-        targetAudioFormat.setInteger(MediaFormat.KEY_CHANNEL_COUNT, DEFAULT_AUDIO_CHANNEL_COUNT);
-        targetAudioFormat.setInteger(MediaFormat.KEY_SAMPLE_RATE, DEFAULT_AUDIO_SAMPLE_RATE);
-        targetAudioFormat.setInteger(MediaFormat.KEY_BIT_RATE, targetAudioBitrate);
+        MediaTransformer mediaTransformer = transformerFactory.create(context);
 
         TransformationListener listener = new TransformationListener() {
             @Override
@@ -130,7 +623,7 @@ public class VideoEditorLitr {
 
             @Override
             public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
-                videoTransformationListener.onCompleted(id, trackTransformationInfos);
+                completionListener.onCompleted(id, trackTransformationInfos);
 
                 mediaTransformer.release();
             }
@@ -154,43 +647,1415 @@ public class VideoEditorLitr {
             }
         };
 
+        // Installed before starting, a job cancelled earlier has already been reported by its previous handler
+        if (!job.setCancelHandler(() -> mediaTransformer.cancel(requestId))) {
+            mediaTransformer.release();
+            return;
+        }
+
         mediaTransformer.transform(
             requestId,
-            sourceVideoUri,
+            srcUri,
             targetVideoFilePath,
             targetVideoFormat,
             targetAudioFormat,
             listener,
             transformationOptions
         );
+
+        // LiTr ignores a cancel of a request it has not registered yet, which happens while transform starts
+        if (job.isCancelled()) {
+            mediaTransformer.cancel(requestId);
+        }
+    }
+
+    /**
+     * Collects the edit metrics into the report before forwarding the completion, off the callback thread.
+     * Returns the listener as is if the report does not ask for metrics, as collecting them reads the output again
+     */
+    private TransformationListener withMetrics(
+        EditMetricsCollector metricsCollector,
+        SourceMedia sourceMedia,
+        File outFile,
+        boolean passthrough,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) {
+        if (!report.collectMetrics) {
+            return videoTransformationListener;
+        }
+
+        return new TransformationListener() {
+            @Override
+            public void onStarted(@NonNull String id) {
+                videoTransformationListener.onStarted(id);
+            }
+
+            @Override
+            public void onProgress(@NonNull String id, float progress) {
+                videoTransformationListener.onProgress(id, progress);
+            }
+
+            @Override
+            public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                try {
+                    metricsExecutor.execute(() -> {
+                        try {
+                            report.metrics = metricsCollector.collect(sourceMedia, outFile, passthrough, trackTransformationInfos);
+                        } catch (IOException | RuntimeException ex) {
+                            Logger.warn("Cannot collect edit metrics: " + ex.getMessage());
+                        }
+
+                        videoTransformationListener.onCompleted(id, trackTransformationInfos);
+                    });
+                } catch (RejectedExecutionException ex) {
+                    // Shut down while the edit was running, completes without metrics
+                    videoTransformationListener.onCompleted(id, trackTransformationInfos);
+                }
+            }
+
+            @Override
+            public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                videoTransformationListener.onCancelled(id, trackTransformationInfos);
+            }
+
+            @Override
+            public void onError(
+                @NonNull String id,
+                @Nullable Throwable cause,
+                @Nullable List<TrackTransformationInfo> trackTransformationInfos
+            ) {
+                videoTransformationListener.onError(id, cause, trackTransformationInfos);
+            }
+        };
+    }
+
+    /**
+     * Extracts several thumbnails with a single retriever, seeking forward only
+     * @param atMs times in miliSeconds, null to spread count thumbnails over the video
+     * @param listener called for each thumbnail as soon as it is written
+     */
+    public void thumbnails(
+        Context context,
+        Uri srcUri,
+        File storageDir,
+        String fileName,
+        @Nullable long[] atMs,
+        int count,
+        ThumbnailSettings thumbnailSettings,
+        ThumbnailListener listener
+    ) throws IOException {
+        ThumbnailExtractor extractor = new ThumbnailExtractor(context, srcUri, bitmapPool);
+
+        try {
+            long[] times = atMs != null ? atMs : distributeTimes(extractor.getDurationMs(), count);
+
+            // Frames are released before the next one is decoded, the whole ceiling is available to each
+            extractFrames(extractor, times, thumbnailSettings, thumbnailSettings.getMaxMemory(), (index, bitmap) -> {
+                File outFile = File.createTempFile(fileName, ".jpg", storageDir);
+                ThumbnailExtractor.writeJpeg(bitmap, outFile, ThumbnailExtractor.DEFAULT_JPEG_QUALITY);
+
+                listener.onThumbnail(index, times[index], outFile);
+            });
+        } finally {
+            extractor.release();
+        }
+    }
+
+    /**
+     * Extracts several thumbnails with a single retriever and packs them into one image
+     * @param atMs times in miliSeconds, null to spread count thumbnails over the video
+     * @param columns tiles per row
+     * @param format one of SpriteSheet.FORMAT_*
+     * @return sprite sheet layout, the image is already written to outFile
+     */
+    public SpriteSheet spriteSheet(
+        Context context,
+        Uri srcUri,
+        File outFile,
+        @Nullable long[] atMs,
+        int count,
+        ThumbnailSettings thumbnailSettings,
+        int columns,
+        String format,
+        int quality
+    ) throws IOException {
+        ThumbnailExtractor extractor = new ThumbnailExtractor(context, srcUri, bitmapPool);
+
+        try {
+            long[] times = atMs != null ? atMs : distributeTimes(extractor.getDurationMs(), count);
+            SpriteSheet spriteSheet = new SpriteSheet(times, columns, thumbnailSettings.isRgb565());
+
+            // The ceiling is shared between the sheet and the frame being drawn into it
+            long maxTileBytes = spriteSheet.getMaxTileBytes(thumbnailSettings.getMaxMemory());
+
+            try {
+                extractFrames(extractor, times, thumbnailSettings, maxTileBytes, spriteSheet::drawTile);
+                spriteSheet.write(outFile, format, quality);
+            } finally {
+                spriteSheet.recycle();
+            }
+
+            return spriteSheet;
+        } finally {
+            extractor.release();
+        }
+    }
+
+    /**
+     * Queues the extraction of a frame on the thumbnail pool, requests for a frame already being extracted share it
+     * @param callback called from a pool thread once outFile is written or on error
+     */
+    public void thumbnail(
+        Context context,
+        Uri srcUri,
+        File outFile,
+        int atMs,
+        ThumbnailSettings thumbnailSettings,
+        ThumbnailQueue.Callback callback
+    ) {
+        thumbnailQueue.submit(context, srcUri, outFile, atMs, thumbnailSettings, callback);
     }
 
-    public void thumbnail(Context context, Uri srcUri, File outFile, int atMs, int width, int height) throws IOException {
-        int quality = 80;
+    /**
+     * Copies the trimmed source samples to outFile
+     * @return false if the trim can not be done without transcoding
+     */
+    private boolean remux(
+        Context context,
+        EditScheduler.Job job,
+        SourceMedia sourceMedia,
+        File outFile,
+        TrimSettings trimSettings,
+        String audioMode,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        String requestId = job.getId();
+        long startsAtUs = trimSettings.getStartsAt() * 1000;
+        long endsAtUs = trimSettings.getEndsAt() == 0 ? Long.MAX_VALUE : trimSettings.getEndsAt() * 1000;
+
+        VideoRemuxer remuxer = new VideoRemuxer(context, sourceMedia.uri);
+        try {
+            if (trimSettings.isAccurate() && remuxer.getSyncSampleTimeUs(startsAtUs) != startsAtUs) {
+                return false;
+            }
+
+            Logger.debug("Remuxing source without transcode");
 
-        MediaMetadataRetriever mmr = new MediaMetadataRetriever();
-        mmr.setDataSource(context, srcUri);
+            if (!job.setCancelHandler(remuxer::cancel)) {
+                return true;
+            }
+
+            videoTransformationListener.onStarted(requestId);
+            try {
+                remuxer.remux(
+                    outFile,
+                    startsAtUs,
+                    endsAtUs,
+                    (long) (sourceMedia.durationMs * 1000),
+                    sourceMedia.getVideoTracks().get(0).rotation,
+                    TranscodeSettings.AUDIO_REMOVE.equals(audioMode),
+                    progress -> videoTransformationListener.onProgress(requestId, progress)
+                );
+            } catch (IOException | RuntimeException ex) {
+                if (!remuxer.isCancelled()) {
+                    videoTransformationListener.onError(requestId, ex, null);
+                    return true;
+                }
+            }
 
-        Bitmap bitmap = mmr.getFrameAtTime((long) atMs * 1000);
+            if (remuxer.isCancelled()) {
+                videoTransformationListener.onCancelled(requestId, null);
+            } else {
+                videoTransformationListener.onCompleted(requestId, null);
+            }
+            return true;
+        } finally {
+            remuxer.release();
+        }
+    }
 
-        if (width > 0 || height > 0) {
-            int videoWidth = bitmap.getWidth();
-            int videoHeight = bitmap.getHeight();
-            double aspectRatio = (double) videoWidth / (double) videoHeight;
+    private interface FrameConsumer {
+        void accept(int index, Bitmap bitmap) throws IOException;
+    }
 
-            int scaleWidth = Double.valueOf(height * aspectRatio).intValue();
-            int scaleHeight = Double.valueOf(scaleWidth / aspectRatio).intValue();
+    /**
+     * Decodes frames in time order, so the retriever only seeks forward, and hands them over by requested index
+     */
+    private static void extractFrames(
+        ThumbnailExtractor extractor,
+        long[] times,
+        ThumbnailSettings thumbnailSettings,
+        long maxFrameBytes,
+        FrameConsumer consumer
+    ) throws IOException {
+        Integer[] order = new Integer[times.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
 
-            final Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, scaleWidth, scaleHeight, false);
-            bitmap.recycle();
-            bitmap = resizedBitmap;
+        for (int index : order) {
+            Bitmap bitmap = extractor.getFrameAt(times[index], thumbnailSettings, maxFrameBytes);
+            if (bitmap == null) {
+                throw new IOException("Cannot extract frame at " + times[index] + "ms");
+            }
+
+            try {
+                consumer.accept(index, bitmap);
+            } finally {
+                extractor.recycle(bitmap);
+            }
+        }
+    }
+
+    private static long[] distributeTimes(long durationMs, int count) {
+        long[] times = new long[count];
+        for (int i = 0; i < count; i++) {
+            times[i] = (long) (durationMs * (i + 0.5) / count);
+        }
+        return times;
+    }
+
+    /**
+     * Runs one edit per segment on the job thread, waiting for each one before starting the next
+     */
+    private void transformSegments(
+        Context context,
+        EditScheduler.Job job,
+        Uri srcUri,
+        TrimSettings trimSettings,
+        TranscodeSettings transcodeSettings,
+        long segmentDurationMs,
+        ProgressSettings progressSettings,
+        EditReport report,
+        SegmentListener segmentListener,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        String requestId = job.getId();
+        SourceMedia sourceMedia = sourceMediaCache.get(context, srcUri);
+        long[] boundaries = getSegmentBoundaries(context, sourceMedia, trimSettings, segmentDurationMs);
+        int segmentCount = boundaries.length - 1;
+
+        videoTransformationListener.onStarted(requestId);
+
+        int frameCount = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            int index = i;
+            File segmentFile = segmentListener.createSegmentFile(index);
+            TrimSettings segmentTrimSettings = new TrimSettings(
+                boundaries[index],
+                index == segmentCount - 1 ? trimSettings.getEndsAt() : boundaries[index + 1],
+                trimSettings.isAccurate()
+            );
+
+            boolean completed = runSegment(
+                job,
+                progress -> videoTransformationListener.onProgress(requestId, (index + progress) / segmentCount),
+                videoTransformationListener,
+                completion ->
+                    transform(
+                        context,
+                        job,
+                        srcUri,
+                        segmentFile,
+                        segmentTrimSettings,
+                        transcodeSettings,
+                        progressSettings,
+                        report,
+                        completion
+                    )
+            );
+            if (!completed) {
+                return;
+            }
+
+            // Set by transform to the frame count of the segment
+            frameCount += report.frameCount;
+            segmentListener.onSegmentReady(requestId, index, segmentFile, boundaries[index], boundaries[index + 1]);
+        }
+
+        report.frameCount = frameCount;
+        // Metrics are collected per segment, they do not describe the whole edit
+        report.metrics = null;
+        videoTransformationListener.onCompleted(requestId, null);
+    }
+
+    private void transformParallel(
+        Context context,
+        EditScheduler.Job job,
+        Uri srcUri,
+        File outFile,
+        TrimSettings trimSettings,
+        TranscodeSettings transcodeSettings,
+        ProgressSettings progressSettings,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        String requestId = job.getId();
+        SourceMedia sourceMedia = sourceMediaCache.get(context, srcUri);
+        List<VideoTrackFormat> videoTracks = sourceMedia.getVideoTracks();
+        if (videoTracks.size() == 0) {
+            throw new IOException("Video track not found");
+        }
+        VideoTrackFormat videoTrack = videoTracks.get(0);
+
+        VideoSize targetVideoSize = calculateTargetVideoSize(videoTrack, transcodeSettings);
+        String audioMode = getAudioMode(sourceMedia, transcodeSettings);
+        long startsAtUs = trimSettings.getStartsAt() * 1000;
+        long endsAtUs = trimSettings.getEndsAt() == 0 ? Long.MAX_VALUE : trimSettings.getEndsAt() * 1000;
+        long rangeMs = (Math.min(endsAtUs, (long) (sourceMedia.durationMs * 1000)) - startsAtUs) / 1000;
+
+        EncoderSelection encoderSelection = VideoEncoderSelector.select(
+            transcodeSettings.getCodec(),
+            transcodeSettings.getBitrateMode(),
+            targetVideoSize.width,
+            targetVideoSize.height,
+            transcodeSettings.getFps()
+        );
+        int parallelism = ThermalMonitor.isThrottled(thermalStatus)
+            ? 1
+            : Math.min(
+                MAX_PARALLEL_SEGMENTS,
+                Math.min(
+                    MediaCodecUtils.getMaxSupportedInstances(encoderSelection.codecName, encoderSelection.mimeType) /
+                    scheduler.getMaxConcurrency(),
+                    Runtime.getRuntime().availableProcessors()
+                )
+            );
+        long segmentDurationMs = Math.max(MIN_PARALLEL_SEGMENT_MS, (rangeMs + parallelism - 1) / Math.max(1, parallelism));
+
+        if (
+            parallelism < 2 ||
+            rangeMs < 2 * MIN_PARALLEL_SEGMENT_MS ||
+            TranscodeSettings.AUDIO_TRANSCODE.equals(audioMode) ||
+            canRemux(sourceMedia, targetVideoSize, transcodeSettings, audioMode, startsAtUs, endsAtUs)
+        ) {
+            transform(
+                context,
+                job,
+                srcUri,
+                outFile,
+                trimSettings,
+                transcodeSettings,
+                progressSettings,
+                report,
+                videoTransformationListener
+            );
+            return;
+        }
+
+        long[] boundaries = getSegmentBoundaries(context, sourceMedia, trimSettings, segmentDurationMs);
+        int segmentCount = boundaries.length - 1;
+        if (segmentCount < 2) {
+            transform(
+                context,
+                job,
+                srcUri,
+                outFile,
+                trimSettings,
+                transcodeSettings,
+                progressSettings,
+                report,
+                videoTransformationListener
+            );
+            return;
+        }
+        Logger.debug("Transcoding " + segmentCount + " segments in parallel");
+
+        List<File> segmentFiles = new ArrayList<>();
+        List<SegmentCompletion> completions = new ArrayList<>();
+        List<EditScheduler.Job> segmentJobs = new ArrayList<>();
+        float[] segmentProgress = new float[segmentCount];
+
+        try {
+            for (int i = 0; i < segmentCount; i++) {
+                int index = i;
+                segmentFiles.add(File.createTempFile("SEG_", ".mp4", outFile.getParentFile()));
+
+                SegmentCompletion completion = new SegmentCompletion(progress -> {
+                    float total = 0;
+                    synchronized (segmentProgress) {
+                        segmentProgress[index] = progress;
+                        for (float value : segmentProgress) {
+                            total += value;
+                        }
+                    }
+                    // The join is done in the last 5%
+                    videoTransformationListener.onProgress(requestId, total / segmentCount * 0.95f);
+                });
+                completions.add(completion);
+                segmentJobs.add(job.split(completion::cancel));
+            }
+
+            if (!job.setCancelHandler(() -> segmentJobs.forEach(EditScheduler.Job::cancel))) {
+                videoTransformationListener.onCancelled(requestId, null);
+                return;
+            }
+
+            videoTransformationListener.onStarted(requestId);
+
+            // Each segment runs on its own thread, as the remux and frame dropping paths run on the calling one
+            List<EditReport> segmentReports = new ArrayList<>();
+            for (int i = 0; i < segmentCount; i++) {
+                File segmentFile = segmentFiles.get(i);
+                SegmentCompletion completion = completions.get(i);
+                TrimSettings segmentTrimSettings = new TrimSettings(
+                    boundaries[i],
+                    i == segmentCount - 1 ? trimSettings.getEndsAt() : boundaries[i + 1],
+                    trimSettings.isAccurate()
+                );
+                TranscodeSettings segmentTranscodeSettings = createSegmentTranscodeSettings(
+                    transcodeSettings,
+                    boundaries[i + 1] - boundaries[i],
+                    rangeMs
+                );
+                EditReport segmentReport = new EditReport();
+                segmentReports.add(segmentReport);
+
+                boolean started = scheduler.runPart(segmentJobs.get(i), segmentJob -> {
+                    try {
+                        transform(
+                            context,
+                            segmentJob,
+                            srcUri,
+                            segmentFile,
+                            segmentTrimSettings,
+                            segmentTranscodeSettings,
+                            progressSettings,
+                            segmentReport,
+                            completion
+                        );
+                    } catch (IOException | RuntimeException ex) {
+                        completion.onError(requestId, ex, null);
+                    }
+                });
+                if (!started) {
+                    completion.cancel();
+                }
+            }
+
+            boolean cancelled = false;
+            Throwable error = null;
+            for (SegmentCompletion completion : completions) {
+                cancelled |= !completion.await();
+                if (error == null && completion.error != null) {
+                    error = completion.error;
+                    segmentJobs.forEach(EditScheduler.Job::cancel);
+                }
+            }
+
+            if (error != null) {
+                videoTransformationListener.onError(requestId, error, null);
+                return;
+            }
+            if (cancelled || job.isCancelled()) {
+                videoTransformationListener.onCancelled(requestId, null);
+                return;
+            }
+
+            // Filled by transform before each segment started
+            report.encoder = segmentReports.get(0).encoder;
+            report.audio = segmentReports.get(0).audio;
+            report.frameCount = 0;
+            for (EditReport segmentReport : segmentReports) {
+                report.frameCount += segmentReport.frameCount;
+            }
+
+            if (!SegmentJoiner.canJoin(segmentFiles)) {
+                // Encoders may pick different configurations, transcode again as a whole
+                Logger.warn("Segments can not be joined, transcoding sequentially");
+                EditScheduler.Job sequentialJob = job.split(() -> videoTransformationListener.onCancelled(requestId, null));
+                if (!job.setCancelHandler(sequentialJob::cancel)) {
+                    videoTransformationListener.onCancelled(requestId, null);
+                    return;
+                }
+                transform(
+                    context,
+                    sequentialJob,
+                    srcUri,
+                    outFile,
+                    trimSettings,
+                    transcodeSettings,
+                    progressSettings,
+                    report,
+                    videoTransformationListener
+                );
+                return;
+            }
+
+            SegmentJoiner.join(segmentFiles, outFile, videoTrack.rotation, progress ->
+                videoTransformationListener.onProgress(requestId, 0.95f + progress * 0.05f)
+            );
+            report.metrics = null;
+            videoTransformationListener.onCompleted(requestId, null);
+        } finally {
+            for (File segmentFile : segmentFiles) {
+                if (segmentFile.exists() && !segmentFile.delete()) {
+                    Logger.warn("Cannot delete segment: " + segmentFile.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    private void transformResumable(
+        Context context,
+        EditScheduler.Job job,
+        JobRecord record,
+        JobStore jobStore,
+        ProgressSettings progressSettings,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        String requestId = job.getId();
+        SourceMedia sourceMedia = sourceMediaCache.get(context, record.source);
+        List<VideoTrackFormat> videoTracks = sourceMedia.getVideoTracks();
+        if (videoTracks.size() == 0) {
+            throw new IOException("Video track not found");
+        }
+
+        // A changed source invalidates the segments written so far. A source that can not be fingerprinted, now or
+        // when the job started, is taken as unchanged, so segments are only thrown away on an actual change
+        String fingerprint = ResultCache.createKey(context, record.source, record.trimSettings, record.transcodeSettings);
+        boolean sourceChanged = fingerprint != null && record.fingerprint != null && !fingerprint.equals(record.fingerprint);
+        if (fingerprint != null && record.fingerprint == null) {
+            record.fingerprint = fingerprint;
+        }
+        if (record.boundaries == null || sourceChanged) {
+            // Transcoded audio can not be joined without gaps, such edits are written as a single segment
+            if (TranscodeSettings.AUDIO_TRANSCODE.equals(getAudioMode(sourceMedia, record.transcodeSettings))) {
+                long endsAtMs = record.trimSettings.getEndsAt() == 0 ? (long) sourceMedia.durationMs : record.trimSettings.getEndsAt();
+                record.boundaries = new long[] { record.trimSettings.getStartsAt(), endsAtMs };
+            } else {
+                record.boundaries = getSegmentBoundaries(context, sourceMedia, record.trimSettings, RESUMABLE_SEGMENT_MS);
+            }
+            record.fingerprint = fingerprint;
+            record.completedSegments = 0;
+            if (!updateRecord(job, jobStore, record)) {
+                videoTransformationListener.onCancelled(requestId, null);
+                return;
+            }
+        }
+
+        long[] boundaries = record.boundaries;
+        int segmentCount = record.getSegmentCount();
+        long rangeMs = Math.max(1, boundaries[segmentCount] - boundaries[0]);
+        List<File> segmentFiles = new ArrayList<>();
+        for (int i = 0; i < segmentCount; i++) {
+            segmentFiles.add(jobStore.getSegmentFile(record.id, i));
+        }
+
+        // Segments of previous runs must still be there
+        while (record.completedSegments > 0 && !segmentFiles.get(record.completedSegments - 1).isFile()) {
+            record.completedSegments--;
+        }
+        Logger.debug("Resuming job " + record.id + " at segment " + record.completedSegments + " of " + segmentCount);
+
+        videoTransformationListener.onStarted(requestId);
+
+        for (int i = record.completedSegments; i < segmentCount; i++) {
+            int index = i;
+            TrimSettings segmentTrimSettings = new TrimSettings(
+                boundaries[index],
+                index == segmentCount - 1 ? record.trimSettings.getEndsAt() : boundaries[index + 1],
+                record.trimSettings.isAccurate()
+            );
+
+            boolean completed = runSegment(
+                job,
+                progress -> videoTransformationListener.onProgress(requestId, (index + progress) / segmentCount),
+                videoTransformationListener,
+                completion ->
+                    transform(
+                        context,
+                        job,
+                        record.source,
+                        segmentFiles.get(index),
+                        segmentTrimSettings,
+                        createSegmentTranscodeSettings(record.transcodeSettings, boundaries[index + 1] - boundaries[index], rangeMs),
+                        progressSettings,
+                        report,
+                        completion
+                    )
+            );
+            if (!completed) {
+                return;
+            }
+
+            record.completedSegments = index + 1;
+            if (!updateRecord(job, jobStore, record)) {
+                videoTransformationListener.onCancelled(requestId, null);
+                return;
+            }
+        }
+
+        File outFile = new File(record.output);
+        if (segmentCount == 1 && segmentFiles.get(0).renameTo(outFile)) {
+            Logger.debug("Job " + record.id + " written as a single segment");
+        } else if (SegmentJoiner.canJoin(segmentFiles)) {
+            SegmentJoiner.join(segmentFiles, outFile, videoTracks.get(0).rotation, null);
+        } else {
+            // Encoders may pick different configurations, transcode again as a single segment
+            Logger.warn("Segments of job " + record.id + " can not be joined, transcoding as a single segment");
+            record.boundaries = new long[] { boundaries[0], boundaries[segmentCount] };
+            record.completedSegments = 0;
+            if (!updateRecord(job, jobStore, record)) {
+                videoTransformationListener.onCancelled(requestId, null);
+                return;
+            }
+
+            boolean completed = runSegment(
+                job,
+                progress -> videoTransformationListener.onProgress(requestId, progress),
+                videoTransformationListener,
+                completion ->
+                    transform(
+                        context,
+                        job,
+                        record.source,
+                        outFile,
+                        record.trimSettings,
+                        record.transcodeSettings,
+                        progressSettings,
+                        report,
+                        completion
+                    )
+            );
+            if (!completed) {
+                return;
+            }
+        }
+
+        report.metrics = null;
+        videoTransformationListener.onCompleted(requestId, null);
+    }
+
+    /**
+     * Saves the progress of a resumable job, unless it was cancelled meanwhile
+     * @return false if the job was cancelled
+     */
+    private static boolean updateRecord(EditScheduler.Job job, JobStore jobStore, JobRecord record) throws IOException {
+        return !job.isCancelled() && jobStore.update(record);
+    }
+
+    private void transformConcat(
+        Context context,
+        EditScheduler.Job job,
+        List<Uri> srcUris,
+        File outFile,
+        @Nullable TranscodeSettings transcodeSettings,
+        ProgressSettings progressSettings,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        String requestId = job.getId();
+        int clipCount = srcUris.size();
+
+        List<SourceMedia> clips = new ArrayList<>();
+        long inputBytes = 0;
+        for (Uri srcUri : srcUris) {
+            SourceMedia clip = sourceMediaCache.get(context, srcUri);
+            if (clip.getVideoTracks().isEmpty()) {
+                throw new IOException("Video track not found in " + srcUri.getLastPathSegment());
+            }
+            clips.add(clip);
+            inputBytes += Math.max(0, clip.size);
+        }
+        int rotation = clips.get(0).getVideoTracks().get(0).rotation;
+        // Clips shown with different orientations are all drawn as displayed, the output has no orientation hint
+        int rotatedClips = 0;
+        for (SourceMedia clip : clips) {
+            if (clip.getVideoTracks().get(0).rotation != rotation) {
+                rotatedClips++;
+            }
+        }
+        boolean sameRotation = rotatedClips == 0;
+        report.metrics = null;
+
+        // Fast path, every clip is copied as is
+        if (transcodeSettings == null && SegmentJoiner.canJoin(context, srcUris)) {
+            Logger.debug("Joining " + clipCount + " clips without transcoding");
+            ensureFreeSpace(outFile, inputBytes);
+            report.audio = TranscodeSettings.AUDIO_COPY;
+
+            videoTransformationListener.onStarted(requestId);
+            SegmentJoiner.join(context, srcUris, outFile, rotation, progress ->
+                videoTransformationListener.onProgress(requestId, progress)
+            );
+            videoTransformationListener.onCompleted(requestId, null);
+            return;
+        }
+
+        TranscodeSettings targetSettings = transcodeSettings != null
+            ? transcodeSettings
+            : createConcatTranscodeSettings(clips, !sameRotation);
+        if (!sameRotation && TranscodeSettings.AUDIO_TRANSCODE.equals(targetSettings.getAudio())) {
+            throw new IOException("Clips with different orientations can only be joined copying or removing the audio");
+        }
+        boolean withAudio = !clips.get(0).getAudioTracks().isEmpty();
+        for (SourceMedia clip : clips) {
+            if (clip.getAudioTracks().isEmpty() == withAudio && !TranscodeSettings.AUDIO_REMOVE.equals(targetSettings.getAudio())) {
+                throw new IOException("Clips with and without audio cannot be joined, remove the audio to join them");
+            }
+        }
+
+        boolean[] matchesFirst = new boolean[clipCount];
+        for (int i = 0; i < clipCount; i++) {
+            matchesFirst[i] =
+                transcodeSettings == null &&
+                sameRotation &&
+                (i == 0 || SegmentJoiner.canJoin(context, Arrays.asList(srcUris.get(0), srcUris.get(i))));
+        }
+
+        List<Uri> parts = new ArrayList<>(srcUris);
+        boolean[] encoded = new boolean[clipCount];
+        File[] partFiles = new File[clipCount * 2];
+
+        try {
+            videoTransformationListener.onStarted(requestId);
+
+            // First pass transcodes the clips that do not match the first one, the second one every clip left
+            for (int pass = 0; pass < 2; pass++) {
+                List<Integer> pending = new ArrayList<>();
+                for (int i = 0; i < clipCount; i++) {
+                    if (!encoded[i] && (pass == 1 || !matchesFirst[i])) {
+                        pending.add(i);
+                    }
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                Logger.debug("Transcoding " + pending.size() + " of " + clipCount + " clips to join them");
+
+                for (int p = 0; p < pending.size(); p++) {
+                    int index = pending.get(p);
+                    int step = p;
+                    int steps = pending.size();
+                    boolean firstPass = pass == 0;
+
+                    File partFile = File.createTempFile("CAT_", ".mp4", outFile.getParentFile());
+                    partFiles[pass * clipCount + index] = partFile;
+
+                    EditReport partReport = new EditReport();
+                    boolean completed = runSegment(
+                        job,
+                        // The join is done in the last 5%
+                        progress -> videoTransformationListener.onProgress(requestId, (step + progress) / steps * 0.95f),
+                        videoTransformationListener,
+                        completion -> {
+                            if (sameRotation) {
+                                transform(
+                                    context,
+                                    job,
+                                    srcUris.get(index),
+                                    partFile,
+                                    new TrimSettings(),
+                                    targetSettings,
+                                    firstPass,
+                                    progressSettings,
+                                    partReport,
+                                    completion
+                                );
+                            } else {
+                                transformOutputs(
+                                    context,
+                                    job,
+                                    srcUris.get(index),
+                                    Arrays.asList(partFile),
+                                    new TrimSettings(),
+                                    Arrays.asList(targetSettings),
+                                    true,
+                                    partReport,
+                                    completion
+                                );
+                            }
+                        }
+                    );
+                    if (!completed) {
+                        return;
+                    }
+
+                    parts.set(index, Uri.fromFile(partFile));
+                    // Remuxed clips keep the source configuration, they are transcoded on the second pass if needed
+                    encoded[index] = partReport.encoder != null;
+                    if (partReport.encoder != null) {
+                        report.encoder = partReport.encoder;
+                    }
+                    report.audio = partReport.audio;
+                }
+
+                if (SegmentJoiner.canJoin(context, parts)) {
+                    break;
+                }
+            }
+
+            if (!SegmentJoiner.canJoin(context, parts)) {
+                throw new IOException("Clips cannot be joined, encoders picked different configurations");
+            }
+
+            long outputBytes = 0;
+            for (int i = 0; i < clipCount; i++) {
+                File partFile = partFiles[clipCount + i] != null ? partFiles[clipCount + i] : partFiles[i];
+                outputBytes += partFile != null ? partFile.length() : Math.max(0, clips.get(i).size);
+            }
+            ensureFreeSpace(outFile, outputBytes);
+
+            SegmentJoiner.join(context, parts, outFile, sameRotation ? rotation : 0, progress ->
+                videoTransformationListener.onProgress(requestId, 0.95f + progress * 0.05f)
+            );
+            videoTransformationListener.onCompleted(requestId, null);
+        } finally {
+            for (File partFile : partFiles) {
+                if (partFile != null && partFile.exists() && !partFile.delete()) {
+                    Logger.warn("Cannot delete clip part: " + partFile.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Settings that transcode a clip to the resolution, frame rate and codec of the first clip.
+     * Audio is transcoded when the clips do not share the audio format
+     * @param displaySize true to use the size of the first clip as displayed, for clips drawn rotated
+     */
+    private static TranscodeSettings createConcatTranscodeSettings(List<SourceMedia> clips, boolean displaySize) {
+        VideoTrackFormat first = clips.get(0).getVideoTracks().get(0);
+        if (displaySize) {
+            first = getDisplayTrack(first);
+        }
+        TranscodeSettings transcodeSettings = new TranscodeSettings(
+            first.height,
+            first.width,
+            false,
+            first.frameRate > 0 ? first.frameRate : 30
+        );
+        transcodeSettings.setCodec(
+            MediaFormat.MIMETYPE_VIDEO_HEVC.equals(first.mimeType) ? TranscodeSettings.CODEC_HEVC : TranscodeSettings.CODEC_AVC
+        );
+
+        List<AudioTrackFormat> firstAudioTracks = clips.get(0).getAudioTracks();
+        for (SourceMedia clip : clips) {
+            List<AudioTrackFormat> audioTracks = clip.getAudioTracks();
+            boolean sameAudio = audioTracks.size() == firstAudioTracks.size();
+            for (int i = 0; sameAudio && i < audioTracks.size(); i++) {
+                AudioTrackFormat a = firstAudioTracks.get(i);
+                AudioTrackFormat b = audioTracks.get(i);
+                sameAudio = a.mimeType.equals(b.mimeType) && a.samplingRate == b.samplingRate && a.channelCount == b.channelCount;
+            }
+            if (!sameAudio) {
+                transcodeSettings.setAudio(TranscodeSettings.AUDIO_TRANSCODE);
+                break;
+            }
+        }
+
+        return transcodeSettings;
+    }
+
+    /**
+     * Settings of a segment, the target size is shared between segments by duration
+     */
+    private static TranscodeSettings createSegmentTranscodeSettings(TranscodeSettings transcodeSettings, long segmentMs, long rangeMs) {
+        TranscodeSettings segmentTranscodeSettings = new TranscodeSettings(transcodeSettings);
+        if (transcodeSettings.getTargetSize() > 0 && rangeMs > 0) {
+            segmentTranscodeSettings.setTargetSize(Math.max(1, transcodeSettings.getTargetSize() * segmentMs / rangeMs));
+        }
+        return segmentTranscodeSettings;
+    }
+
+    /**
+     * Splits the trimmed range every segmentDurationMs, moving each cut back to the previous source key frame
+     * @return segment boundaries in miliSeconds, first is the trim start and last the trim end
+     */
+    private static long[] getSegmentBoundaries(
+        Context context,
+        SourceMedia sourceMedia,
+        TrimSettings trimSettings,
+        long segmentDurationMs
+    ) throws IOException {
+        long startsAtMs = trimSettings.getStartsAt();
+        long endsAtMs = trimSettings.getEndsAt() == 0
+            ? (long) sourceMedia.durationMs
+            : Math.min(trimSettings.getEndsAt(), (long) sourceMedia.durationMs);
+
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(startsAtMs);
+
+        VideoRemuxer remuxer = new VideoRemuxer(context, sourceMedia.uri);
+        try {
+            for (long atMs = startsAtMs + segmentDurationMs; atMs < endsAtMs; atMs += segmentDurationMs) {
+                // Rounded up, so the previous sync sample of the boundary is the key frame itself
+                long syncMs = (remuxer.getSyncSampleTimeUs(atMs * 1000) + 999) / 1000;
+                if (syncMs > boundaries.get(boundaries.size() - 1) && syncMs < endsAtMs) {
+                    boundaries.add(syncMs);
+                }
+            }
+        } finally {
+            remuxer.release();
+        }
+
+        boundaries.add(Math.max(startsAtMs, endsAtMs));
+
+        long[] result = new long[boundaries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = boundaries.get(i);
+        }
+        return result;
+    }
+
+    private interface SegmentEdit {
+        void start(TransformationListener listener) throws IOException;
+    }
+
+    /**
+     * Runs a part of an edit on the job thread and waits for it, forwarding its progress.
+     * If the part is cancelled or fails the listener of the whole edit is notified.
+     * @return true if the part completed
+     */
+    private static boolean runSegment(
+        EditScheduler.Job job,
+        VideoRemuxer.ProgressListener progressListener,
+        TransformationListener videoTransformationListener,
+        SegmentEdit segmentEdit
+    ) throws IOException {
+        String requestId = job.getId();
+        SegmentCompletion completion = new SegmentCompletion(progressListener);
+        if (!job.setCancelHandler(completion::cancel)) {
+            videoTransformationListener.onCancelled(requestId, null);
+            return false;
+        }
+
+        segmentEdit.start(completion);
+
+        if (!completion.await()) {
+            videoTransformationListener.onCancelled(requestId, null);
+            return false;
+        }
+        if (completion.error != null) {
+            videoTransformationListener.onError(requestId, completion.error, null);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the terminal callback of a segment edit, forwarding its progress
+     */
+    private static class SegmentCompletion implements TransformationListener {
+
+        private final VideoRemuxer.ProgressListener progressListener;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile boolean cancelled = false;
+        private volatile Throwable error;
+
+        SegmentCompletion(VideoRemuxer.ProgressListener progressListener) {
+            this.progressListener = progressListener;
+        }
+
+        /**
+         * @return false if the segment was cancelled
+         */
+        boolean await() {
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+            return !cancelled;
+        }
+
+        void cancel() {
+            cancelled = true;
+            done.countDown();
+        }
+
+        @Override
+        public void onStarted(@NonNull String id) {}
+
+        @Override
+        public void onProgress(@NonNull String id, float progress) {
+            progressListener.onProgress(progress);
+        }
+
+        @Override
+        public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+            done.countDown();
+        }
+
+        @Override
+        public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+            cancel();
+        }
+
+        @Override
+        public void onError(
+            @NonNull String id,
+            @Nullable Throwable cause,
+            @Nullable List<TrackTransformationInfo> trackTransformationInfos
+        ) {
+            error = cause != null ? cause : new IOException("Segment " + id + " failed");
+            done.countDown();
+        }
+    }
+
+    /**
+     * Decodes the source once and encodes it into every output
+     */
+    private void transformOutputs(
+        Context context,
+        EditScheduler.Job job,
+        Uri srcUri,
+        List<File> outFiles,
+        TrimSettings trimSettings,
+        List<TranscodeSettings> transcodeSettingsList,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        transformOutputs(context, job, srcUri, outFiles, trimSettings, transcodeSettingsList, false, report, videoTransformationListener);
+    }
+
+    /**
+     * @param applyRotation true to draw frames as displayed, sized by the rotated source and without orientation hint
+     */
+    private void transformOutputs(
+        Context context,
+        EditScheduler.Job job,
+        Uri srcUri,
+        List<File> outFiles,
+        TrimSettings trimSettings,
+        List<TranscodeSettings> transcodeSettingsList,
+        boolean applyRotation,
+        EditReport report,
+        TransformationListener videoTransformationListener
+    ) throws IOException {
+        String requestId = job.getId();
+        SourceMedia sourceMedia = sourceMediaCache.get(context, srcUri);
+        List<VideoTrackFormat> videoTracks = sourceMedia.getVideoTracks();
+        if (videoTracks.size() == 0) {
+            throw new IOException("Video track not found");
+        }
+        VideoTrackFormat videoTrack = videoTracks.get(0);
+        VideoTrackFormat sizeTrack = applyRotation ? getDisplayTrack(videoTrack) : videoTrack;
+
+        long startsAtUs = trimSettings.getStartsAt() * 1000;
+        long endsAtUs = trimSettings.getEndsAt() == 0 ? Long.MAX_VALUE : trimSettings.getEndsAt() * 1000;
+        long durationUs = (long) (sourceMedia.durationMs * 1000);
+
+        List<MultiOutputTranscoder.Output> outputs = new ArrayList<>();
+        for (int i = 0; i < transcodeSettingsList.size(); i++) {
+            TranscodeSettings transcodeSettings = transcodeSettingsList.get(i);
+            // Sped up outputs have no audio
+            String audioMode = transcodeSettings.getTimeLapse() > 1 ? TranscodeSettings.AUDIO_REMOVE : transcodeSettings.getAudio();
+            if (TranscodeSettings.AUDIO_TRANSCODE.equals(audioMode)) {
+                throw new IOException("Audio can only be copied or removed when creating several outputs");
+            }
+
+            VideoSize targetVideoSize = calculateTargetVideoSize(sizeTrack, transcodeSettings);
+            EncoderSelection encoderSelection = VideoEncoderSelector.select(
+                transcodeSettings.getCodec(),
+                transcodeSettings.getBitrateMode(),
+                targetVideoSize.width,
+                targetVideoSize.height,
+                transcodeSettings.getFps()
+            );
+            Logger.debug("Output " + i + ": " + targetVideoSize + ", " + encoderSelection);
+
+            MediaFormat targetVideoFormat = createTargetVideoFormat(
+                context,
+                sourceMedia,
+                startsAtUs,
+                endsAtUs,
+                targetVideoSize,
+                transcodeSettings,
+                encoderSelection,
+                getOutputAudioBitrate(sourceMedia, audioMode, 0)
+            );
+
+            long outputRangeUs = BitratePlanner.outputDurationUs(
+                Math.min(endsAtUs, durationUs) - startsAtUs,
+                transcodeSettings.getTimeLapse()
+            );
+            ensureFreeSpace(
+                outFiles.get(i),
+                estimateOutputBytes(targetVideoFormat, getOutputAudioBitrate(sourceMedia, audioMode, 0), outputRangeUs)
+            );
+
+            MultiOutputTranscoder.Output output = new MultiOutputTranscoder.Output(
+                outFiles.get(i),
+                targetVideoFormat,
+                encoderSelection,
+                TranscodeSettings.AUDIO_REMOVE.equals(audioMode),
+                transcodeSettings.getTimeLapse(),
+                transcodeSettings.isDropFrames()
+            );
+            if (applyRotation) {
+                output.rotation = videoTrack.rotation;
+            }
+            outputs.add(output);
+
+            if (i == 0) {
+                // Frames above the output frame rate are dropped before encoding
+                float outputFrameRate = videoTrack.frameRate <= 0
+                    ? transcodeSettings.getFps()
+                    : transcodeSettings.isDropFrames() || transcodeSettings.getTimeLapse() > 1
+                        ? Math.min(videoTrack.frameRate * transcodeSettings.getTimeLapse(), transcodeSettings.getFps())
+                        : videoTrack.frameRate;
+                report.frameCount = Math.max(0, Math.round(outputRangeUs / 1_000_000f * outputFrameRate));
+                report.encoder = encoderSelection;
+                report.audio = audioMode;
+            }
+        }
+
+        MultiOutputTranscoder transcoder = new MultiOutputTranscoder(context, sourceMedia.uri, outputs);
+        if (!job.setCancelHandler(transcoder::cancel)) {
+            videoTransformationListener.onCancelled(requestId, null);
+            return;
+        }
+
+        videoTransformationListener.onStarted(requestId);
+        try {
+            transcoder.transcode(startsAtUs, endsAtUs, durationUs, applyRotation ? 0 : videoTrack.rotation, progress ->
+                videoTransformationListener.onProgress(requestId, progress)
+            );
+        } catch (IOException | RuntimeException ex) {
+            if (!transcoder.isCancelled()) {
+                videoTransformationListener.onError(requestId, ex, null);
+                return;
+            }
+        }
+
+        if (transcoder.isCancelled()) {
+            videoTransformationListener.onCancelled(requestId, null);
+        } else {
+            videoTransformationListener.onCompleted(requestId, null);
+        }
+    }
+
+    /**
+     * Returns the track as displayed, with width and height swapped for portrait rotations and no rotation
+     */
+    private static VideoTrackFormat getDisplayTrack(VideoTrackFormat videoTrack) {
+        VideoTrackFormat displayTrack = new VideoTrackFormat(videoTrack);
+        if (videoTrack.rotation % 180 != 0) {
+            displayTrack.width = videoTrack.height;
+            displayTrack.height = videoTrack.width;
+        }
+        displayTrack.rotation = 0;
+        return displayTrack;
+    }
+
+    private void ensureFreeSpace(File outFile, long estimatedBytes) throws IOException {
+        if (outputStore != null && outFile.getParentFile() != null) {
+            outputStore.ensureFreeSpace(outFile.getParentFile(), estimatedBytes);
+        }
+    }
+
+    private static long estimateOutputBytes(MediaFormat targetVideoFormat, int outputAudioBitrate, long rangeUs) {
+        long bitrate = (long) targetVideoFormat.getInteger(MediaFormat.KEY_BIT_RATE) + outputAudioBitrate;
+        return bitrate * Math.max(0, rangeUs) / 8 / 1_000_000;
+    }
+
+    /**
+     * Builds the target video format for the selected encoder, with the planned bitrate
+     */
+    private MediaFormat createTargetVideoFormat(
+        Context context,
+        SourceMedia sourceMedia,
+        long startsAtUs,
+        long endsAtUs,
+        VideoSize targetVideoSize,
+        TranscodeSettings transcodeSettings,
+        EncoderSelection encoderSelection,
+        int outputAudioBitrate
+    ) {
+        int targetVideoBitrate = planVideoBitrate(
+            context,
+            sourceMedia,
+            startsAtUs,
+            endsAtUs,
+            targetVideoSize,
+            transcodeSettings,
+            encoderSelection,
+            outputAudioBitrate
+        );
+        int originalVideoBitrate = sourceMedia.getVideoTracks().get(0).bitrate;
+        if (originalVideoBitrate > 0) {
+            targetVideoBitrate = Math.min(targetVideoBitrate, originalVideoBitrate);
+        }
+        Logger.debug("Target video bitrate: " + targetVideoBitrate);
+
+        MediaFormat targetVideoFormat = new MediaFormat();
+        targetVideoFormat.setInteger(MediaFormat.KEY_WIDTH, targetVideoSize.width);
+        targetVideoFormat.setInteger(MediaFormat.KEY_HEIGHT, targetVideoSize.height);
+        targetVideoFormat.setInteger(MediaFormat.KEY_FRAME_RATE, transcodeSettings.getFps());
+        targetVideoFormat.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, transcodeSettings.getKeyFrameInterval());
+        targetVideoFormat.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        targetVideoFormat.setInteger(MediaFormat.KEY_BIT_RATE, targetVideoBitrate);
+        VideoEncoderSelector.apply(encoderSelection, targetVideoFormat);
+        VideoEncoderSelector.applySpeed(
+            encoderSelection,
+            targetVideoFormat,
+            ThermalMonitor.throttle(transcodeSettings.getSpeed(), thermalStatus),
+            transcodeSettings.getFps()
+        );
+
+        return targetVideoFormat;
+    }
+
+    /**
+     * Plans the video bitrate from the target size if set, otherwise from the quality tier and source complexity
+     */
+    private int planVideoBitrate(
+        Context context,
+        SourceMedia sourceMedia,
+        long startsAtUs,
+        long endsAtUs,
+        VideoSize targetVideoSize,
+        TranscodeSettings transcodeSettings,
+        EncoderSelection encoderSelection,
+        int outputAudioBitrate
+    ) {
+        long rangeEndUs = Math.min(endsAtUs, (long) (sourceMedia.durationMs * 1000));
+
+        if (transcodeSettings.getTargetSize() > 0) {
+            // Sped up outputs are shorter than the source range
+            return BitratePlanner.bitrateForSize(
+                transcodeSettings.getTargetSize(),
+                BitratePlanner.outputDurationUs(rangeEndUs - startsAtUs, transcodeSettings.getTimeLapse()),
+                outputAudioBitrate
+            );
+        }
+
+        float complexity;
+        try {
+            complexity = BitratePlanner.complexity(
+                VideoSampler.sample(context, sourceMedia.uri, startsAtUs, rangeEndUs, VideoSampler.DEFAULT_GOP_COUNT)
+            );
+        } catch (IOException | RuntimeException ex) {
+            Logger.warn("Cannot sample source complexity: " + ex.getMessage());
+            complexity = -1;
+        }
+        Logger.debug("Source complexity: " + complexity);
+
+        int bitrate = BitratePlanner.bitrateForQuality(
+            transcodeSettings.getQuality(),
+            complexity,
+            targetVideoSize.width,
+            targetVideoSize.height,
+            transcodeSettings.getFps()
+        );
+
+        if (MediaFormat.MIMETYPE_VIDEO_HEVC.equals(encoderSelection.mimeType)) {
+            bitrate = (int) (bitrate * VideoEncoderSelector.HEVC_BITRATE_FACTOR);
+        }
+
+        return bitrate;
+    }
+
+    /**
+     * Resolves the requested audio handling, copy falls back to transcode if any audio track can not be muxed as is
+     * @return one of TranscodeSettings.AUDIO_*
+     */
+    private static String getAudioMode(SourceMedia sourceMedia, TranscodeSettings transcodeSettings) {
+        String audioMode = transcodeSettings.getAudio();
+        if (!TranscodeSettings.AUDIO_COPY.equals(audioMode)) {
+            return audioMode;
+        }
+
+        for (AudioTrackFormat audioTrack : sourceMedia.getAudioTracks()) {
+            if (!VideoRemuxer.isMuxerCompatible(audioTrack.mimeType)) {
+                Logger.debug("Audio track " + audioTrack.mimeType + " can not be copied, transcoding");
+                return TranscodeSettings.AUDIO_TRANSCODE;
+            }
+        }
+
+        return audioMode;
+    }
+
+    /**
+     * Returns the bitrate of the audio in the output, 0 if there is none
+     */
+    private static int getOutputAudioBitrate(SourceMedia sourceMedia, String audioMode, int targetAudioBitrate) {
+        List<AudioTrackFormat> audioTracks = sourceMedia.getAudioTracks();
+        if (audioTracks.isEmpty() || TranscodeSettings.AUDIO_REMOVE.equals(audioMode)) {
+            return 0;
+        }
+        if (TranscodeSettings.AUDIO_TRANSCODE.equals(audioMode)) {
+            return targetAudioBitrate * audioTracks.size();
+        }
+
+        int bitrate = 0;
+        for (AudioTrackFormat audioTrack : audioTracks) {
+            bitrate += audioTrack.bitrate > 0 ? audioTrack.bitrate : DEFAULT_AUDIO_BITRATE;
+        }
+        return bitrate;
+    }
+
+    static boolean canRemux(
+        SourceMedia sourceMedia,
+        VideoSize targetVideoSize,
+        TranscodeSettings transcodeSettings,
+        String audioMode,
+        long startsAtUs,
+        long endsAtUs
+    ) {
+        VideoTrackFormat videoTrack = sourceMedia.getVideoTracks().get(0);
+
+        // Copied video can not be muxed with transcoded audio
+        if (TranscodeSettings.AUDIO_TRANSCODE.equals(audioMode) && !sourceMedia.getAudioTracks().isEmpty()) {
+            return false;
+        }
+
+        // Explicit encoder options are only honoured by encoding
+        if (transcodeSettings.hasEncoderOptions()) {
+            return false;
+        }
+
+        if (transcodeSettings.isCodecSet()) {
+            String mimeType = TranscodeSettings.CODEC_HEVC.equals(transcodeSettings.getCodec())
+                ? MediaFormat.MIMETYPE_VIDEO_HEVC
+                : MediaFormat.MIMETYPE_VIDEO_AVC;
+            if (!mimeType.equals(videoTrack.mimeType)) {
+                return false;
+            }
+        }
+
+        // Sped up video needs new timestamps
+        if (transcodeSettings.getTimeLapse() > 1) {
+            return false;
+        }
+
+        // Copied samples keep the source bitrate, which may not fit the target size
+        if (transcodeSettings.getTargetSize() > 0) {
+            long durationUs = (long) (sourceMedia.durationMs * 1000);
+            long rangeUs = Math.min(endsAtUs, durationUs) - startsAtUs;
+            if (durationUs <= 0 || sourceMedia.size < 0 || sourceMedia.size * rangeUs / durationUs > transcodeSettings.getTargetSize()) {
+                return false;
+            }
+        }
+
+        if (videoTrack.width != targetVideoSize.width || videoTrack.height != targetVideoSize.height) {
+            return false;
+        }
+
+        if (videoTrack.frameRate <= 0 || videoTrack.frameRate > transcodeSettings.getFps()) {
+            return false;
+        }
+
+        boolean removeAudio = TranscodeSettings.AUDIO_REMOVE.equals(audioMode);
+        for (MediaTrackFormat track : sourceMedia.tracks) {
+            if (track instanceof GenericTrackFormat || (removeAudio && track instanceof AudioTrackFormat)) {
+                continue;
+            }
+            if (!VideoRemuxer.isMuxerCompatible(track.mimeType)) {
+                return false;
+            }
         }
 
-        OutputStream outStream = new FileOutputStream(outFile);
-        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, outStream);
+        return true;
     }
 
-    private VideoSize calculateTargetVideoSize(VideoTrackFormat videoTrackFormat, TranscodeSettings transcodeSettings) {
+    static VideoSize calculateTargetVideoSize(VideoTrackFormat videoTrackFormat, TranscodeSettings transcodeSettings) {
         if (transcodeSettings.isKeepAspectRatio()) {
             int mostSize =
                 transcodeSettings.getWidth() == 0 && transcodeSettings.getHeight() == 0
@@ -207,7 +2072,7 @@ public class VideoEditorLitr {
         }
     }
 
-    private VideoSize calculateVideoSizeAtMost(VideoTrackFormat videoTrackFormat, int mostSize) {
+    static VideoSize calculateVideoSizeAtMost(VideoTrackFormat videoTrackFormat, int mostSize) {
         int sourceMajor = Math.max(videoTrackFormat.width, videoTrackFormat.height);
 
         if (sourceMajor <= mostSize) {
@@ -3,11 +3,15 @@ package com.whiteguru.capacitor.plugin.videoeditor;
 import android.Manifest;
 import android.content.ContentResolver;
 import android.content.Context;
+import android.media.MediaCodecInfo;
 import android.net.Uri;
 import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
 import android.webkit.MimeTypeMap;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Logger;
 import com.getcapacitor.PermissionState;
@@ -19,12 +23,26 @@ import com.getcapacitor.annotation.Permission;
 import com.getcapacitor.annotation.PermissionCallback;
 import com.linkedin.android.litr.TransformationListener;
 import com.linkedin.android.litr.analytics.TrackTransformationInfo;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.AudioTrackFormat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EditMetrics;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EditReport;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EncoderSelection;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.SourceMedia;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.TrackMetrics;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoTrackFormat;
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONException;
 
 @CapacitorPlugin(
     name = "VideoEditor",
@@ -35,9 +53,42 @@ public class VideoEditorPlugin extends Plugin {
     // Permission alias constants
     static final String STORAGE = "storage";
 
+    // Thumbnail precision constants
+    static final String PRECISION_SYNC = "sync";
+    static final String PRECISION_EXACT = "exact";
+
     // Message constants
     private static final String PERMISSION_DENIED_ERROR_STORAGE = "User denied access to storage";
 
+    private VideoEditorLitr implementation;
+    private OutputStore outputStore;
+    private ResultCache resultCache;
+    private JobStore jobStore;
+    private ThermalMonitor thermalMonitor;
+
+    @Override
+    public void load() {
+        int maxConcurrency = getConfig().getInt("maxConcurrentEdits", 0);
+        long maxCacheSize = getConfig().getConfigJSON().optLong("maxCacheSize", 0);
+
+        outputStore = new OutputStore(getContext().getCacheDir(), maxCacheSize > 0 ? maxCacheSize : OutputStore.DEFAULT_MAX_BYTES);
+        implementation = new VideoEditorLitr(maxConcurrency > 0 ? maxConcurrency : VideoEditorLitr.getDefaultMaxConcurrency());
+        implementation.setOutputStore(outputStore);
+        resultCache = new ResultCache(new File(getContext().getCacheDir(), "video-editor-results.json"), outputStore);
+        jobStore = new JobStore(getContext());
+        EditWorker.setImplementation(implementation);
+        thermalMonitor = new ThermalMonitor(getContext(), implementation::setThermalStatus);
+        thermalMonitor.start();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        thermalMonitor.stop();
+        // Workers started later run on an editor of their own
+        EditWorker.setImplementation(null);
+        implementation.shutdown();
+    }
+
     @PluginMethod
     public void edit(PluginCall call) {
         editLitr(call);
@@ -47,62 +98,156 @@ public class VideoEditorPlugin extends Plugin {
         String path = call.getString("path");
         JSObject trim = call.getObject("trim", new JSObject());
         JSObject transcode = call.getObject("transcode", new JSObject());
+        JSArray outputs = call.getArray("outputs", new JSArray());
+        JSObject progress = call.getObject("progress", new JSObject());
+        int priority = call.getInt("priority", 0);
+        long segmentDuration = call.getLong("segmentDuration", 0L);
+        boolean parallel = call.getBoolean("parallel", false);
+        boolean cache = call.getBoolean("cache", false);
+        boolean collectMetrics = call.getBoolean("metrics", false);
+        boolean resumable = call.getBoolean("resumable", false);
 
         if (path == null) {
             call.reject("Input file path is required");
             return;
         }
 
+        if (segmentDuration < 0) {
+            call.reject("Parameter segmentDuration cannot be negative");
+            return;
+        }
+
+        if (segmentDuration > 0 && outputs.length() > 0) {
+            call.reject("Parameters segmentDuration and outputs cannot be used together");
+            return;
+        }
+
+        if (parallel && (segmentDuration > 0 || outputs.length() > 0)) {
+            call.reject("Parameter parallel cannot be used with segmentDuration or outputs");
+            return;
+        }
+
+        if (resumable && (segmentDuration > 0 || outputs.length() > 0 || parallel)) {
+            call.reject("Parameter resumable cannot be used with segmentDuration, outputs or parallel");
+            return;
+        }
+
         if (checkStoragePermissions(call)) {
             Uri inputUri = Uri.parse(path);
-            File inputFile = new File(inputUri.getPath());
 
-            if (!inputFile.canRead()) {
-                call.reject("Cannot read input file: " + inputFile.getAbsolutePath());
+            if (!canRead(inputUri)) {
+                call.reject("Cannot read input file: " + path);
                 return;
             }
 
             String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.ENGLISH).format(new Date());
             String fileName = "VID_" + timeStamp + "_";
-            File storageDir = getContext().getCacheDir();
+            File outputDir = getOutputDir(call);
 
             execute(() -> {
                 try {
-                    File outputFile = File.createTempFile(fileName, ".mp4", storageDir);
+                    List<TranscodeSettings> transcodeSettingsList = new ArrayList<>();
+                    if (outputs.length() == 0) {
+                        transcodeSettingsList.add(createTranscodeSettings(transcode));
+                    } else {
+                        for (int i = 0; i < outputs.length(); i++) {
+                            transcodeSettingsList.add(createTranscodeSettings(JSObject.fromJSONObject(outputs.getJSONObject(i))));
+                        }
+                    }
+
+                    TrimSettings trimSettings = createTrimSettings(trim);
 
-                    VideoEditorLitr implementation = new VideoEditorLitr();
+                    // Only single outputs written to the store are cached
+                    String cacheKey = cache && outputDir == null && segmentDuration == 0 && outputs.length() == 0
+                        ? ResultCache.createKey(getContext(), inputUri, trimSettings, transcodeSettingsList.get(0))
+                        : null;
+                    File cachedFile = cacheKey != null ? resultCache.get(cacheKey) : null;
+                    if (cachedFile != null) {
+                        Logger.debug("Edit result found in cache");
 
-                    TrimSettings trimSettings = new TrimSettings(trim.getInteger("startsAt", 0), trim.getInteger("endsAt", 0));
+                        JSObject ret = new JSObject();
+                        ret.put("file", createMediaFile(cachedFile));
+                        ret.put("cached", true);
+                        call.resolve(ret);
+                        return;
+                    }
 
-                    TranscodeSettings transcodeSettings = new TranscodeSettings(
-                        transcode.getInteger("height", 0),
-                        transcode.getInteger("width", 0),
-                        transcode.getBoolean("keepAspectRatio", true),
-                        transcode.getInteger("fps", 30)
+                    if (resumable) {
+                        editResumable(
+                            call,
+                            inputUri,
+                            outputStore.createFile(fileName, ".mp4", outputDir),
+                            trimSettings,
+                            transcodeSettingsList.get(0),
+                            cacheKey
+                        );
+                        return;
+                    }
+
+                    // Segment files are created while the edit runs, ready ones belong to the app
+                    List<File> outputFiles = Collections.synchronizedList(new ArrayList<>());
+                    Set<File> readyFiles = Collections.synchronizedSet(new HashSet<>());
+                    if (segmentDuration == 0) {
+                        for (int i = 0; i < transcodeSettingsList.size(); i++) {
+                            outputFiles.add(outputStore.createFile(fileName, ".mp4", outputDir));
+                        }
+                    }
+
+                    ProgressSettings progressSettings = new ProgressSettings(
+                        (float) progress.optDouble("minDelta", 0.01),
+                        progress.optLong("minInterval", 250)
                     );
 
+                    EditReport report = new EditReport();
+                    report.collectMetrics = collectMetrics;
+                    AtomicLong startedAt = new AtomicLong(0);
+
                     TransformationListener videoTransformationListener = new TransformationListener() {
                         @Override
                         public void onStarted(@NonNull String id) {
                             Logger.debug("Transcode started");
+
+                            startedAt.set(SystemClock.elapsedRealtime());
                         }
 
                         @Override
                         public void onProgress(@NonNull String id, float progress) {
-                            Logger.debug("Transcode running " + progress);
-
-                            JSObject ret = new JSObject();
-                            ret.put("progress", progress);
-
-                            notifyListeners("transcodeProgress", ret);
+                            notifyListeners("transcodeProgress", createProgressInfo(id, progress, startedAt.get(), report));
                         }
 
                         @Override
                         public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
                             Logger.debug("Transcode completed");
 
+                            outputFiles.forEach(outputStore::commit);
+                            if (cacheKey != null) {
+                                resultCache.put(cacheKey, outputFiles.get(0));
+                            }
+
                             JSObject ret = new JSObject();
-                            ret.put("file", createMediaFile(outputFile));
+                            ret.put("jobId", id);
+                            ret.put("file", createMediaFile(outputFiles.get(0)));
+                            ret.put("cached", false);
+                            if (outputFiles.size() > 1 || segmentDuration > 0) {
+                                JSArray files = new JSArray();
+                                for (File file : outputFiles) {
+                                    files.put(createMediaFile(file));
+                                }
+                                ret.put("files", files);
+                            }
+                            if (report.encoder != null) {
+                                ret.put("encoder", createEncoderInfo(report.encoder));
+                            }
+                            ret.put("audio", report.audio);
+                            if (report.metrics != null) {
+                                JSObject metrics = createMetrics(report.metrics);
+                                ret.put("metrics", metrics);
+
+                                JSObject event = new JSObject();
+                                event.put("jobId", id);
+                                event.put("metrics", metrics);
+                                notifyListeners("editMetrics", event);
+                            }
                             call.resolve(ret);
                         }
 
@@ -110,6 +255,7 @@ public class VideoEditorPlugin extends Plugin {
                         public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
                             Logger.debug("Transcode cancelled");
 
+                            deletePartialOutputs(outputFiles, readyFiles);
                             call.reject("Transcode canceled");
                         }
 
@@ -121,11 +267,202 @@ public class VideoEditorPlugin extends Plugin {
                         ) {
                             Logger.debug("Transcode error: " + (cause != null ? cause.getMessage() : ""));
 
+                            deletePartialOutputs(outputFiles, readyFiles);
                             call.reject("Transcode failed: " + (cause != null ? cause.getMessage() : ""));
                         }
                     };
 
-                    implementation.edit(getContext(), inputFile, outputFile, trimSettings, transcodeSettings, videoTransformationListener);
+                    VideoEditorLitr.SegmentListener segmentListener = new VideoEditorLitr.SegmentListener() {
+                        @Override
+                        public File createSegmentFile(int index) throws IOException {
+                            File segmentFile = outputStore.createFile(fileName + index + "_", ".mp4", outputDir);
+                            outputFiles.add(segmentFile);
+                            return segmentFile;
+                        }
+
+                        @Override
+                        public void onSegmentReady(@NonNull String id, int index, @NonNull File file, long startsAtMs, long endsAtMs) {
+                            readyFiles.add(file);
+                            outputStore.commit(file);
+
+                            JSObject ret = new JSObject();
+                            ret.put("jobId", id);
+                            ret.put("index", index);
+                            ret.put("file", createMediaFile(file));
+                            ret.put("startsAt", startsAtMs);
+                            ret.put("endsAt", endsAtMs);
+                            notifyListeners("segmentReady", ret);
+                        }
+                    };
+
+                    String jobId;
+                    if (segmentDuration > 0) {
+                        jobId = implementation.editSegments(
+                            getContext(),
+                            inputUri,
+                            trimSettings,
+                            transcodeSettingsList.get(0),
+                            segmentDuration,
+                            progressSettings,
+                            priority,
+                            report,
+                            segmentListener,
+                            videoTransformationListener
+                        );
+                    } else if (parallel) {
+                        jobId = implementation.editParallel(
+                            getContext(),
+                            inputUri,
+                            outputFiles.get(0),
+                            trimSettings,
+                            transcodeSettingsList.get(0),
+                            progressSettings,
+                            priority,
+                            report,
+                            videoTransformationListener
+                        );
+                    } else if (outputs.length() == 0) {
+                        jobId = implementation.edit(
+                            getContext(),
+                            inputUri,
+                            outputFiles.get(0),
+                            trimSettings,
+                            transcodeSettingsList.get(0),
+                            progressSettings,
+                            priority,
+                            report,
+                            videoTransformationListener
+                        );
+                    } else {
+                        jobId = implementation.editOutputs(
+                            getContext(),
+                            inputUri,
+                            outputFiles,
+                            trimSettings,
+                            transcodeSettingsList,
+                            progressSettings,
+                            priority,
+                            report,
+                            videoTransformationListener
+                        );
+                    }
+
+                    JSObject jobInfo = createJobInfo(jobId);
+                    if (jobInfo != null) {
+                        notifyListeners("editQueued", jobInfo);
+                    }
+                } catch (Exception e) {
+                    call.reject(e.getMessage());
+                }
+            });
+        }
+    }
+
+    @PluginMethod
+    public void concat(PluginCall call) {
+        JSArray paths = call.getArray("paths", new JSArray());
+        JSObject transcode = call.getObject("transcode", null);
+        JSObject progress = call.getObject("progress", new JSObject());
+        int priority = call.getInt("priority", 0);
+
+        if (paths.length() == 0) {
+            call.reject("Input file paths are required");
+            return;
+        }
+
+        if (checkStoragePermissions(call)) {
+            List<Uri> inputUris = new ArrayList<>();
+            try {
+                for (int i = 0; i < paths.length(); i++) {
+                    Uri inputUri = Uri.parse(paths.getString(i));
+                    if (!canRead(inputUri)) {
+                        call.reject("Cannot read input file: " + paths.getString(i));
+                        return;
+                    }
+                    inputUris.add(inputUri);
+                }
+            } catch (JSONException e) {
+                call.reject("Invalid input file paths");
+                return;
+            }
+
+            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.ENGLISH).format(new Date());
+            String fileName = "VID_" + timeStamp + "_";
+            File outputDir = getOutputDir(call);
+
+            execute(() -> {
+                try {
+                    File outputFile = outputStore.createFile(fileName, ".mp4", outputDir);
+                    ProgressSettings progressSettings = new ProgressSettings(
+                        (float) progress.optDouble("minDelta", 0.01),
+                        progress.optLong("minInterval", 250)
+                    );
+                    EditReport report = new EditReport();
+                    AtomicLong startedAt = new AtomicLong(0);
+
+                    String jobId = implementation.concat(
+                        getContext(),
+                        inputUris,
+                        outputFile,
+                        transcode != null ? createTranscodeSettings(transcode) : null,
+                        progressSettings,
+                        priority,
+                        report,
+                        new TransformationListener() {
+                            @Override
+                            public void onStarted(@NonNull String id) {
+                                Logger.debug("Concat started");
+
+                                startedAt.set(SystemClock.elapsedRealtime());
+                            }
+
+                            @Override
+                            public void onProgress(@NonNull String id, float progress) {
+                                notifyListeners("transcodeProgress", createProgressInfo(id, progress, startedAt.get(), report));
+                            }
+
+                            @Override
+                            public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                                Logger.debug("Concat completed");
+
+                                outputStore.commit(outputFile);
+
+                                JSObject ret = new JSObject();
+                                ret.put("jobId", id);
+                                ret.put("file", createMediaFile(outputFile));
+                                if (report.encoder != null) {
+                                    ret.put("encoder", createEncoderInfo(report.encoder));
+                                }
+                                ret.put("audio", report.audio);
+                                call.resolve(ret);
+                            }
+
+                            @Override
+                            public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                                Logger.debug("Concat cancelled");
+
+                                outputStore.discard(outputFile);
+                                call.reject("Concat canceled");
+                            }
+
+                            @Override
+                            public void onError(
+                                @NonNull String id,
+                                @Nullable Throwable cause,
+                                @Nullable List<TrackTransformationInfo> trackTransformationInfos
+                            ) {
+                                Logger.debug("Concat error: " + (cause != null ? cause.getMessage() : ""));
+
+                                outputStore.discard(outputFile);
+                                call.reject("Concat failed: " + (cause != null ? cause.getMessage() : ""));
+                            }
+                        }
+                    );
+
+                    JSObject jobInfo = createJobInfo(jobId);
+                    if (jobInfo != null) {
+                        notifyListeners("editQueued", jobInfo);
+                    }
                 } catch (Exception e) {
                     call.reject(e.getMessage());
                 }
@@ -139,35 +476,518 @@ public class VideoEditorPlugin extends Plugin {
         int atMs = call.getInt("at", 0);
         int width = call.getInt("width", 0);
         int height = call.getInt("height", 0);
+        String precision = call.getString("precision", PRECISION_SYNC);
+        boolean rgb565 = call.getBoolean("rgb565", false);
+        long maxMemory = call.getLong("maxMemory", 0L);
 
         if (path == null) {
             call.reject("Input file path is required");
             return;
         }
 
+        if (!PRECISION_SYNC.equals(precision) && !PRECISION_EXACT.equals(precision)) {
+            call.reject("Invalid precision: " + precision);
+            return;
+        }
+
         if (checkStoragePermissions(call)) {
             Uri inputUri = Uri.parse(path);
 
             String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.ENGLISH).format(new Date());
             String fileName = "TH_" + timeStamp + "_";
-            File storageDir = getContext().getCacheDir();
+            File outputDir = getOutputDir(call);
 
-            File outputFile = null;
+            File outputFile;
+            ThumbnailSettings thumbnailSettings;
 
             try {
-                outputFile = File.createTempFile(fileName, ".jpg", storageDir);
+                outputFile = outputStore.createFile(fileName, ".jpg", outputDir);
 
-                VideoEditorLitr implementation = new VideoEditorLitr();
-
-                implementation.thumbnail(this.getContext(), inputUri, outputFile, atMs, width, height);
+                // Thumbnails are scaled to the requested height, width is only used when height is not set
+                thumbnailSettings = new ThumbnailSettings(
+                    height > 0 ? 0 : width,
+                    height,
+                    PRECISION_EXACT.equals(precision),
+                    rgb565,
+                    maxMemory
+                );
             } catch (Exception e) {
                 call.reject(e.getMessage());
                 return;
             }
 
-            JSObject ret = new JSObject();
-            ret.put("file", createMediaFile(outputFile));
-            call.resolve(ret);
+            // Decoded on the thumbnail pool, the plugin thread is free for other calls
+            implementation.thumbnail(
+                getContext(),
+                inputUri,
+                outputFile,
+                atMs,
+                thumbnailSettings,
+                new ThumbnailQueue.Callback() {
+                    @Override
+                    public void onCompleted(@NonNull File outFile) {
+                        outputStore.commit(outFile);
+
+                        JSObject ret = new JSObject();
+                        ret.put("file", createMediaFile(outFile));
+                        call.resolve(ret);
+                    }
+
+                    @Override
+                    public void onError(@NonNull Exception cause) {
+                        outputStore.discard(outputFile);
+                        call.reject(cause.getMessage());
+                    }
+                }
+            );
+        }
+    }
+
+    @PluginMethod
+    public void thumbnails(PluginCall call) {
+        String path = call.getString("path");
+        JSArray times = call.getArray("times", null);
+        int count = times != null ? times.length() : call.getInt("count", 0);
+        int width = call.getInt("width", 0);
+        int height = call.getInt("height", 0);
+        String precision = call.getString("precision", PRECISION_SYNC);
+        boolean rgb565 = call.getBoolean("rgb565", false);
+        long maxMemory = call.getLong("maxMemory", 0L);
+        JSObject sprite = call.getObject("sprite", null);
+
+        if (path == null) {
+            call.reject("Input file path is required");
+            return;
+        }
+
+        if (count < 1) {
+            call.reject("Parameter times or count is required");
+            return;
+        }
+
+        if (!PRECISION_SYNC.equals(precision) && !PRECISION_EXACT.equals(precision)) {
+            call.reject("Invalid precision: " + precision);
+            return;
+        }
+
+        String spriteFormat = sprite != null ? sprite.getString("format", SpriteSheet.FORMAT_JPEG) : null;
+        if (sprite != null && !SpriteSheet.isFormatSupported(spriteFormat)) {
+            call.reject("Invalid sprite format: " + spriteFormat);
+            return;
+        }
+
+        if (checkStoragePermissions(call)) {
+            Uri inputUri = Uri.parse(path);
+
+            String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.ENGLISH).format(new Date());
+            String fileName = "TH_" + timeStamp + "_";
+            File outputDir = getOutputDir(call);
+            File storageDir = outputDir != null ? outputDir : outputStore.getDir();
+
+            execute(() -> {
+                try {
+                    long[] atMs = null;
+                    if (times != null) {
+                        atMs = new long[count];
+                        for (int i = 0; i < count; i++) {
+                            atMs[i] = times.getLong(i);
+                        }
+                    }
+
+                    ThumbnailSettings thumbnailSettings = new ThumbnailSettings(
+                        width,
+                        height,
+                        PRECISION_EXACT.equals(precision),
+                        rgb565,
+                        maxMemory
+                    );
+
+                    if (sprite != null) {
+                        String extension = SpriteSheet.FORMAT_WEBP.equals(spriteFormat) ? ".webp" : ".jpg";
+                        File outputFile = outputStore.createFile(fileName, extension, outputDir);
+
+                        SpriteSheet spriteSheet = implementation.spriteSheet(
+                            getContext(),
+                            inputUri,
+                            outputFile,
+                            atMs,
+                            count,
+                            thumbnailSettings,
+                            sprite.getInteger("columns", (int) Math.ceil(Math.sqrt(count))),
+                            spriteFormat,
+                            sprite.getInteger("quality", ThumbnailExtractor.DEFAULT_JPEG_QUALITY)
+                        );
+
+                        outputStore.commit(outputFile);
+
+                        JSObject ret = new JSObject();
+                        ret.put("sprite", createSpriteSheet(spriteSheet, outputFile));
+                        call.resolve(ret);
+                        return;
+                    }
+
+                    JSObject[] thumbnails = new JSObject[count];
+
+                    implementation.thumbnails(
+                        getContext(),
+                        inputUri,
+                        storageDir,
+                        fileName,
+                        atMs,
+                        count,
+                        thumbnailSettings,
+                        (index, at, file) -> {
+                            outputStore.commit(file);
+
+                            JSObject thumbnail = new JSObject();
+                            thumbnail.put("index", index);
+                            thumbnail.put("at", at);
+                            thumbnail.put("file", createMediaFile(file));
+                            thumbnails[index] = thumbnail;
+
+                            notifyListeners("thumbnailReady", thumbnail);
+                        }
+                    );
+
+                    JSObject ret = new JSObject();
+                    ret.put("thumbnails", new JSArray(thumbnails));
+                    call.resolve(ret);
+                } catch (Exception e) {
+                    call.reject(e.getMessage());
+                }
+            });
+        }
+    }
+
+    @PluginMethod
+    public void getJob(PluginCall call) {
+        String jobId = call.getString("jobId");
+
+        if (jobId == null) {
+            call.reject("Job id is required");
+            return;
+        }
+
+        JSObject ret = createJobInfo(jobId);
+        if (ret == null) {
+            call.reject("Job not found: " + jobId);
+            return;
+        }
+
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void cancel(PluginCall call) {
+        String jobId = call.getString("jobId");
+
+        if (jobId == null) {
+            call.reject("Job id is required");
+            return;
+        }
+
+        if (implementation.cancel(jobId)) {
+            call.resolve();
+            return;
+        }
+
+        // Resumable jobs are known by their record, even if not running in this process
+        JobRecord record = jobStore.load(jobId);
+        if (record == null || !JobRecord.STATE_RUNNING.equals(record.state)) {
+            call.reject("Job not found: " + jobId);
+            return;
+        }
+
+        // A running worker may still write a segment, it deletes the job and its output once stopped
+        try {
+            if (!jobStore.cancel(jobId)) {
+                call.reject("Job not found: " + jobId);
+                return;
+            }
+        } catch (IOException ex) {
+            call.reject("Cannot cancel job: " + ex.getMessage());
+            return;
+        }
+        EditWorker.cancel(getContext(), jobId);
+        if (!EditWorker.isRunning(jobId)) {
+            jobStore.delete(jobId);
+            outputStore.discard(new File(record.output));
+        }
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void getResumableJobs(PluginCall call) {
+        JSArray jobs = new JSArray();
+
+        for (JobRecord record : jobStore.list()) {
+            if (JobRecord.STATE_CANCELLED.equals(record.state)) {
+                // Left by a worker that did not stop before the process died
+                if (!EditWorker.isRunning(record.id)) {
+                    jobStore.delete(record.id);
+                    outputStore.discard(new File(record.output));
+                }
+                continue;
+            }
+
+            JSObject job = new JSObject();
+            job.put("jobId", record.id);
+            job.put("state", record.state);
+            job.put("progress", record.getSegmentCount() > 0 ? (float) record.completedSegments / record.getSegmentCount() : 0);
+
+            if (JobRecord.STATE_RUNNING.equals(record.state)) {
+                // Work is kept if already queued, requeued if it was lost
+                EditWorker.enqueue(getContext(), record.id);
+            } else {
+                // Finished jobs are returned once
+                File outputFile = new File(record.output);
+                if (JobRecord.STATE_COMPLETED.equals(record.state) && outputFile.isFile()) {
+                    outputStore.commit(outputFile);
+                    job.put("file", createMediaFile(outputFile));
+                } else {
+                    outputStore.discard(outputFile);
+                }
+                if (record.error != null) {
+                    job.put("error", record.error);
+                }
+                jobStore.delete(record.id);
+            }
+
+            jobs.put(job);
+        }
+
+        JSObject ret = new JSObject();
+        ret.put("jobs", jobs);
+        call.resolve(ret);
+    }
+
+    @PluginMethod
+    public void getInfo(PluginCall call) {
+        String path = call.getString("path");
+
+        if (path == null) {
+            call.reject("Input file path is required");
+            return;
+        }
+
+        if (checkStoragePermissions(call)) {
+            Uri inputUri = Uri.parse(path);
+
+            if (!canRead(inputUri)) {
+                call.reject("Cannot read input file: " + path);
+                return;
+            }
+
+            // Container probe only, no frame is decoded
+            execute(() -> {
+                try {
+                    SourceMedia sourceMedia = implementation.getInfo(getContext(), inputUri);
+
+                    JSArray videoTracks = new JSArray();
+                    for (VideoTrackFormat videoTrack : sourceMedia.getVideoTracks()) {
+                        JSObject track = new JSObject();
+                        track.put("codec", videoTrack.mimeType);
+                        track.put("width", videoTrack.width);
+                        track.put("height", videoTrack.height);
+                        track.put("rotation", videoTrack.rotation);
+                        track.put("frameRate", videoTrack.frameRate);
+                        track.put("bitrate", videoTrack.bitrate);
+                        track.put("keyFrameInterval", implementation.getKeyFrameInterval(getContext(), inputUri, videoTrack.index));
+                        track.put("duration", videoTrack.duration / 1000);
+                        videoTracks.put(track);
+                    }
+
+                    JSArray audioTracks = new JSArray();
+                    for (AudioTrackFormat audioTrack : sourceMedia.getAudioTracks()) {
+                        JSObject track = new JSObject();
+                        track.put("codec", audioTrack.mimeType);
+                        track.put("channelCount", audioTrack.channelCount);
+                        track.put("sampleRate", audioTrack.samplingRate);
+                        track.put("bitrate", audioTrack.bitrate);
+                        track.put("duration", audioTrack.duration / 1000);
+                        audioTracks.put(track);
+                    }
+
+                    JSObject ret = new JSObject();
+                    ret.put("duration", (long) sourceMedia.durationMs);
+                    ret.put("size", sourceMedia.size);
+                    ret.put("videoTracks", videoTracks);
+                    ret.put("audioTracks", audioTracks);
+                    call.resolve(ret);
+                } catch (Exception e) {
+                    call.reject(e.getMessage());
+                }
+            });
+        }
+    }
+
+    @PluginMethod
+    public void release(PluginCall call) {
+        String path = call.getString("path");
+
+        if (path == null) {
+            call.reject("File path is required");
+            return;
+        }
+
+        if (!outputStore.release(new File(Uri.parse(path).getPath()))) {
+            call.reject("File not found in cache: " + path);
+            return;
+        }
+
+        call.resolve();
+    }
+
+    @PluginMethod
+    public void clearCache(PluginCall call) {
+        JSObject ret = new JSObject();
+        resultCache.clear();
+        ret.put("bytes", outputStore.clear());
+        call.resolve(ret);
+    }
+
+    /**
+     * Saves the record of a resumable edit and runs it in a worker, that resumes it if the app process dies
+     */
+    private void editResumable(
+        PluginCall call,
+        Uri inputUri,
+        File outputFile,
+        TrimSettings trimSettings,
+        TranscodeSettings transcodeSettings,
+        @Nullable String cacheKey
+    ) throws IOException {
+        JobRecord record = new JobRecord(
+            UUID.randomUUID().toString(),
+            inputUri,
+            outputFile.getAbsolutePath(),
+            ResultCache.createKey(getContext(), inputUri, trimSettings, transcodeSettings),
+            trimSettings,
+            transcodeSettings
+        );
+        jobStore.save(record);
+
+        AtomicLong startedAt = new AtomicLong(0);
+        EditReport report = new EditReport();
+
+        EditWorker.setListener(
+            record.id,
+            new TransformationListener() {
+                @Override
+                public void onStarted(@NonNull String id) {
+                    Logger.debug("Resumable transcode started");
+
+                    startedAt.set(SystemClock.elapsedRealtime());
+                }
+
+                @Override
+                public void onProgress(@NonNull String id, float progress) {
+                    notifyListeners("transcodeProgress", createProgressInfo(id, progress, startedAt.get(), report));
+                }
+
+                @Override
+                public void onCompleted(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                    Logger.debug("Resumable transcode completed");
+
+                    jobStore.delete(id);
+                    outputStore.commit(outputFile);
+                    if (cacheKey != null) {
+                        resultCache.put(cacheKey, outputFile);
+                    }
+
+                    JSObject ret = new JSObject();
+                    ret.put("jobId", id);
+                    ret.put("file", createMediaFile(outputFile));
+                    ret.put("cached", false);
+                    call.resolve(ret);
+                }
+
+                @Override
+                public void onCancelled(@NonNull String id, @Nullable List<TrackTransformationInfo> trackTransformationInfos) {
+                    Logger.debug("Resumable transcode cancelled");
+
+                    call.reject("Transcode canceled");
+                }
+
+                @Override
+                public void onError(
+                    @NonNull String id,
+                    @Nullable Throwable cause,
+                    @Nullable List<TrackTransformationInfo> trackTransformationInfos
+                ) {
+                    Logger.debug("Resumable transcode error: " + (cause != null ? cause.getMessage() : ""));
+
+                    jobStore.delete(id);
+                    outputStore.discard(outputFile);
+                    call.reject("Transcode failed: " + (cause != null ? cause.getMessage() : ""));
+                }
+            }
+        );
+
+        EditWorker.enqueue(getContext(), record.id);
+    }
+
+    /**
+     * Checks a file or content uri can be opened, without reading it
+     */
+    private boolean canRead(Uri uri) {
+        if (!ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            return uri.getPath() != null && new File(uri.getPath()).canRead();
+        }
+
+        try (ParcelFileDescriptor descriptor = getContext().getContentResolver().openFileDescriptor(uri, "r")) {
+            return descriptor != null;
+        } catch (IOException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the caller supplied output dir, null to write into the cache
+     */
+    @Nullable
+    private File getOutputDir(PluginCall call) {
+        String outputDir = call.getString("outputDir");
+        if (outputDir == null) {
+            return null;
+        }
+
+        return new File(Uri.parse(outputDir).getPath());
+    }
+
+    static TrimSettings createTrimSettings(JSObject trim) {
+        return new TrimSettings(trim.getInteger("startsAt", 0), trim.getInteger("endsAt", 0), trim.getBoolean("accurate", true));
+    }
+
+    static TranscodeSettings createTranscodeSettings(JSObject transcode) {
+        TranscodeSettings transcodeSettings = new TranscodeSettings(
+            transcode.getInteger("height", 0),
+            transcode.getInteger("width", 0),
+            transcode.getBoolean("keepAspectRatio", true),
+            transcode.getInteger("fps", 30)
+        );
+        transcodeSettings.setCodec(transcode.getString("codec", null));
+        transcodeSettings.setBitrateMode(transcode.getString("bitrateMode", null));
+        if (transcode.getInteger("keyFrameInterval") != null) {
+            transcodeSettings.setKeyFrameInterval(transcode.getInteger("keyFrameInterval"));
+        }
+        transcodeSettings.setQuality(transcode.getString("quality", null));
+        transcodeSettings.setTargetSize(transcode.optLong("targetSize", 0));
+        transcodeSettings.setAudio(transcode.getString("audio", TranscodeSettings.AUDIO_COPY));
+        transcodeSettings.setTimeLapse((float) transcode.optDouble("timeLapse", 1));
+        transcodeSettings.setDropFrames(transcode.getBoolean("dropFrames", false));
+        transcodeSettings.setSpeed(transcode.getString("speed", TranscodeSettings.SPEED_BALANCED));
+
+        return transcodeSettings;
+    }
+
+    private void deletePartialOutputs(List<File> outputFiles, Set<File> readyFiles) {
+        synchronized (outputFiles) {
+            for (File outputFile : outputFiles) {
+                if (!readyFiles.contains(outputFile)) {
+                    outputStore.discard(outputFile);
+                }
+            }
         }
     }
 
@@ -198,10 +1018,181 @@ public class VideoEditorPlugin extends Plugin {
             case "edit":
                 edit(call);
                 break;
+            case "concat":
+                concat(call);
+                break;
             case "thumbnail":
                 thumbnail(call);
                 break;
+            case "thumbnails":
+                thumbnails(call);
+                break;
+            case "getInfo":
+                getInfo(call);
+                break;
+        }
+    }
+
+    /**
+     * Creates a JSObject that represents the state of an edit job
+     *
+     * @param jobId the id returned by edit
+     * @return a JSObject that represents the job, null if the job is finished or unknown
+     */
+    @Nullable
+    private JSObject createJobInfo(String jobId) {
+        int position = implementation.getJobPosition(jobId);
+        if (position < 0) {
+            return null;
         }
+
+        JSObject ret = new JSObject();
+
+        ret.put("jobId", jobId);
+        ret.put("state", position == 0 ? EditScheduler.Job.STATE_RUNNING : EditScheduler.Job.STATE_QUEUED);
+        ret.put("position", position);
+
+        return ret;
+    }
+
+    /**
+     * Creates a JSObject that represents the progress of an edit
+     *
+     * @param jobId the id returned by edit
+     * @param progress the progress, from 0 to 1
+     * @param startedAt the elapsedRealtime when the edit started, 0 if unknown
+     * @param report the report of the edit
+     * @return a JSObject that represents the progress
+     */
+    private JSObject createProgressInfo(String jobId, float progress, long startedAt, EditReport report) {
+        JSObject ret = new JSObject();
+
+        ret.put("jobId", jobId);
+        ret.put("progress", progress);
+        if (report.frameCount > 0) {
+            ret.put("frames", Math.round(progress * report.frameCount));
+        }
+        if (startedAt > 0) {
+            long elapsed = SystemClock.elapsedRealtime() - startedAt;
+            ret.put("elapsed", elapsed);
+            if (progress > 0) {
+                ret.put("eta", Math.round(elapsed * (1 - progress) / progress));
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Creates a JSObject that represents the metrics of a completed edit
+     *
+     * @param metrics the edit metrics
+     * @return a JSObject that represents the metrics
+     */
+    private JSObject createMetrics(EditMetrics metrics) {
+        JSArray tracks = new JSArray();
+        for (TrackMetrics trackMetrics : metrics.tracks) {
+            JSObject track = new JSObject();
+            track.put("mimeType", trackMetrics.mimeType);
+            track.put("decoder", trackMetrics.decoder);
+            track.put("decoderHardware", trackMetrics.decoderHardware);
+            track.put("encoder", trackMetrics.encoder);
+            track.put("encoderHardware", trackMetrics.encoderHardware);
+            if (trackMetrics.processingTime >= 0) {
+                track.put("processingTime", trackMetrics.processingTime);
+            }
+            track.put("samples", trackMetrics.samples);
+            if (trackMetrics.bytes >= 0) {
+                track.put("bytes", trackMetrics.bytes);
+            }
+            if (trackMetrics.bitrate >= 0) {
+                track.put("bitrate", trackMetrics.bitrate);
+            }
+            tracks.put(track);
+        }
+
+        JSObject ret = new JSObject();
+
+        ret.put("passthrough", metrics.passthrough);
+        ret.put("queueTime", metrics.queueTime);
+        ret.put("probeTime", metrics.probeTime);
+        ret.put("wallTime", metrics.wallTime);
+        if (metrics.inputBytes >= 0) {
+            ret.put("inputBytes", metrics.inputBytes);
+        }
+        if (metrics.inputBitrate >= 0) {
+            ret.put("inputBitrate", metrics.inputBitrate);
+        }
+        ret.put("outputBytes", metrics.outputBytes);
+        if (metrics.outputBitrate >= 0) {
+            ret.put("outputBitrate", metrics.outputBitrate);
+        }
+        ret.put("encodedFrames", metrics.encodedFrames);
+        ret.put("fps", metrics.fps);
+        ret.put("tracks", tracks);
+
+        return ret;
+    }
+
+    /**
+     * Creates a JSObject that represents the encoder selected for an edit
+     *
+     * @param selection the encoder selection
+     * @return a JSObject that represents the encoder
+     */
+    private JSObject createEncoderInfo(EncoderSelection selection) {
+        JSObject ret = new JSObject();
+
+        ret.put("mimeType", selection.mimeType);
+        ret.put("name", selection.codecName);
+        ret.put("hardware", selection.hardware);
+        if (selection.profile > 0) {
+            ret.put("profile", selection.profile);
+            ret.put("level", selection.level);
+        }
+        switch (selection.bitrateMode) {
+            case MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_VBR:
+                ret.put("bitrateMode", TranscodeSettings.BITRATE_MODE_VBR);
+                break;
+            case MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CBR:
+                ret.put("bitrateMode", TranscodeSettings.BITRATE_MODE_CBR);
+                break;
+            case MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ:
+                ret.put("bitrateMode", TranscodeSettings.BITRATE_MODE_CQ);
+                break;
+        }
+
+        return ret;
+    }
+
+    /**
+     * Creates a JSObject that represents a sprite sheet and the position of its tiles
+     *
+     * @param spriteSheet the sprite sheet layout
+     * @param file the File of the sprite sheet image
+     * @return a JSObject that represents the sprite sheet
+     */
+    private JSObject createSpriteSheet(SpriteSheet spriteSheet, File file) {
+        JSArray tiles = new JSArray();
+        for (int index = 0; index < spriteSheet.getCount(); index++) {
+            JSObject tile = new JSObject();
+            tile.put("index", index);
+            tile.put("at", spriteSheet.getTime(index));
+            tile.put("x", spriteSheet.getTileX(index));
+            tile.put("y", spriteSheet.getTileY(index));
+            tiles.put(tile);
+        }
+
+        JSObject ret = new JSObject();
+
+        ret.put("file", createMediaFile(file));
+        ret.put("columns", spriteSheet.getColumns());
+        ret.put("rows", spriteSheet.getRows());
+        ret.put("tileWidth", spriteSheet.getTileWidth());
+        ret.put("tileHeight", spriteSheet.getTileHeight());
+        ret.put("tiles", tiles);
+
+        return ret;
     }
 
     /**
@@ -0,0 +1,325 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.os.Build;
+import android.util.Range;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EncoderSelection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the video encoder configuration for a transcode from the encoders reported by MediaCodecList.
+ * HEVC is only used with a hardware encoder, otherwise AVC is selected. Profile, level and bitrate mode
+ * are only set when the selected encoder reports support for them. The level is the lowest one that fits
+ * the output size, frame rate and bitrate, so the encoder is not asked for more than the output needs.
+ */
+public class VideoEncoderSelector {
+
+    // HEVC reaches AVC quality with roughly 40% less bitrate
+    static final float HEVC_BITRATE_FACTOR = 0.6f;
+
+    // Best first
+    private static final int[] AVC_PROFILES = {
+        MediaCodecInfo.CodecProfileLevel.AVCProfileHigh,
+        MediaCodecInfo.CodecProfileLevel.AVCProfileMain,
+        MediaCodecInfo.CodecProfileLevel.AVCProfileBaseline
+    };
+    private static final int[] HEVC_PROFILES = { MediaCodecInfo.CodecProfileLevel.HEVCProfileMain };
+
+    // H.264 table A-1: level, max macroblocks per frame, max macroblocks per second, max bitrate in kbit/s
+    private static final long[][] AVC_LEVELS = {
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel1, 99, 1485, 64 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel11, 396, 3000, 192 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel12, 396, 6000, 384 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel13, 396, 11880, 768 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel2, 396, 11880, 2000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel21, 792, 19800, 4000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel22, 1620, 20250, 4000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel3, 1620, 40500, 10000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel31, 3600, 108000, 14000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel32, 5120, 216000, 20000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel4, 8192, 245760, 20000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel41, 8192, 245760, 50000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel42, 8704, 522240, 50000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel5, 22080, 589824, 135000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel51, 36864, 983040, 240000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel52, 36864, 2073600, 240000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel6, 139264, 4177920, 240000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel61, 139264, 8355840, 480000 },
+        { MediaCodecInfo.CodecProfileLevel.AVCLevel62, 139264, 16711680, 800000 }
+    };
+
+    // H.265 table A.8, main tier: level, max luma samples per frame, max luma samples per second, max bitrate in kbit/s
+    private static final long[][] HEVC_LEVELS = {
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel1, 36864, 552960L, 128 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel2, 122880, 3686400L, 1500 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel21, 245760, 7372800L, 3000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel3, 552960, 16588800L, 6000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel31, 983040, 33177600L, 10000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel4, 2228224, 66846720L, 12000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel41, 2228224, 133693440L, 20000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel5, 8912896, 267386880L, 25000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel51, 8912896, 534773760L, 40000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel52, 8912896, 1069547520L, 60000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel6, 35651584, 1069547520L, 60000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel61, 35651584, 2139095040L, 120000 },
+        { MediaCodecInfo.CodecProfileLevel.HEVCMainTierLevel62, 35651584, 4278190080L, 240000 }
+    };
+
+    /**
+     * @param codec one of TranscodeSettings.CODEC_*
+     * @param bitrateMode one of TranscodeSettings.BITRATE_MODE_*, null for the encoder default
+     * @return selection, with a null codecName if no encoder reports support for the size
+     */
+    @NonNull
+    public static EncoderSelection select(@NonNull String codec, @Nullable String bitrateMode, int width, int height, int frameRate) {
+        if (TranscodeSettings.CODEC_HEVC.equals(codec)) {
+            EncoderSelection selection = select(MediaFormat.MIMETYPE_VIDEO_HEVC, bitrateMode, width, height, frameRate, true);
+            if (selection != null) {
+                return selection;
+            }
+        }
+
+        EncoderSelection selection = select(MediaFormat.MIMETYPE_VIDEO_AVC, bitrateMode, width, height, frameRate, false);
+        if (selection != null) {
+            return selection;
+        }
+
+        selection = new EncoderSelection();
+        selection.mimeType = MediaFormat.MIMETYPE_VIDEO_AVC;
+
+        return selection;
+    }
+
+    /**
+     * Writes the selection into a target video format, which must already have its size, frame rate and bitrate.
+     * Picks the best profile with a supported level that fits them, the encoder defaults are kept if none does.
+     */
+    public static void apply(@NonNull EncoderSelection selection, @NonNull MediaFormat format) {
+        format.setString(MediaFormat.KEY_MIME, selection.mimeType);
+
+        if (selection.profileLevels != null) {
+            selectProfileLevel(
+                selection,
+                getInteger(format, MediaFormat.KEY_WIDTH),
+                getInteger(format, MediaFormat.KEY_HEIGHT),
+                getInteger(format, MediaFormat.KEY_FRAME_RATE),
+                getInteger(format, MediaFormat.KEY_BIT_RATE)
+            );
+        }
+
+        if (selection.profile > 0) {
+            format.setInteger(MediaFormat.KEY_PROFILE, selection.profile);
+            format.setInteger(MediaFormat.KEY_LEVEL, selection.level);
+        }
+
+        if (selection.bitrateMode >= 0) {
+            format.setInteger(MediaFormat.KEY_BITRATE_MODE, selection.bitrateMode);
+        }
+
+        if (selection.quality >= 0) {
+            format.setInteger(MediaFormat.KEY_QUALITY, selection.quality);
+        }
+    }
+
+    /**
+     * Writes the codec priority and operating rate for a speed into a target video format.
+     * The operating rate is kept within the frame rates the selected encoder reports for the output size.
+     * @param speed one of TranscodeSettings.SPEED_*
+     */
+    public static void applySpeed(@NonNull EncoderSelection selection, @NonNull MediaFormat format, @NonNull String speed, int frameRate) {
+        switch (speed) {
+            case TranscodeSettings.SPEED_MAX:
+                format.setInteger(MediaFormat.KEY_PRIORITY, 0); // real time
+                if (selection.maxFrameRate > frameRate) {
+                    format.setInteger(MediaFormat.KEY_OPERATING_RATE, (int) selection.maxFrameRate);
+                }
+                break;
+            case TranscodeSettings.SPEED_BALANCED:
+                format.setInteger(MediaFormat.KEY_PRIORITY, 1); // best effort
+                if (selection.maxFrameRate / 2 > frameRate) {
+                    format.setInteger(MediaFormat.KEY_OPERATING_RATE, (int) (selection.maxFrameRate / 2));
+                }
+                break;
+            default:
+                // Without operating rate the codec runs at the clocks it picks for the frame rate
+                format.setInteger(MediaFormat.KEY_PRIORITY, 1);
+                break;
+        }
+    }
+
+    @Nullable
+    private static EncoderSelection select(
+        String mimeType,
+        @Nullable String bitrateMode,
+        int width,
+        int height,
+        int frameRate,
+        boolean hardwareOnly
+    ) {
+        for (MediaCodecInfo codecInfo : getEncoders(mimeType)) {
+            boolean hardware = MediaCodecUtils.isHardware(codecInfo);
+            if (hardwareOnly && !hardware) {
+                continue;
+            }
+
+            MediaCodecInfo.CodecCapabilities capabilities = codecInfo.getCapabilitiesForType(mimeType);
+            MediaCodecInfo.VideoCapabilities videoCapabilities = capabilities.getVideoCapabilities();
+            if (videoCapabilities == null || !videoCapabilities.areSizeAndRateSupported(width, height, frameRate)) {
+                continue;
+            }
+
+            EncoderSelection selection = new EncoderSelection();
+            selection.mimeType = mimeType;
+            selection.codecName = codecInfo.getName();
+            selection.hardware = hardware;
+            selection.maxFrameRate = videoCapabilities.getSupportedFrameRatesFor(width, height).getUpper();
+            selection.profileLevels = capabilities.profileLevels;
+
+            MediaCodecInfo.EncoderCapabilities encoderCapabilities = capabilities.getEncoderCapabilities();
+            selection.bitrateMode = selectBitrateMode(encoderCapabilities, bitrateMode);
+            if (
+                selection.bitrateMode == MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ &&
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+            ) {
+                Range<Integer> qualityRange = encoderCapabilities.getQualityRange();
+                selection.quality = qualityRange.getLower() + (qualityRange.getUpper() - qualityRange.getLower()) * 3 / 4;
+            }
+
+            return selection;
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the requested mode if supported, otherwise VBR, CBR or -1 for the encoder default
+     */
+    private static int selectBitrateMode(MediaCodecInfo.EncoderCapabilities encoderCapabilities, @Nullable String bitrateMode) {
+        if (bitrateMode == null) {
+            return -1;
+        }
+
+        int requested;
+        switch (bitrateMode) {
+            case TranscodeSettings.BITRATE_MODE_CBR:
+                requested = MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CBR;
+                break;
+            case TranscodeSettings.BITRATE_MODE_CQ:
+                requested = MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ;
+                break;
+            default:
+                requested = MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_VBR;
+        }
+
+        int[] modes = {
+            requested,
+            MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_VBR,
+            MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CBR
+        };
+        for (int mode : modes) {
+            // KEY_QUALITY, needed by CQ, is available since API 28
+            if (mode == MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ && Build.VERSION.SDK_INT < Build.VERSION_CODES.P) {
+                continue;
+            }
+            if (encoderCapabilities.isBitrateModeSupported(mode)) {
+                return mode;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Sets the best profile whose lowest fitting level is supported by the encoder, leaves both unset if none
+     */
+    static void selectProfileLevel(@NonNull EncoderSelection selection, int width, int height, int frameRate, int bitrate) {
+        selection.profile = -1;
+        selection.level = -1;
+
+        int[] profiles = MediaFormat.MIMETYPE_VIDEO_HEVC.equals(selection.mimeType) ? HEVC_PROFILES : AVC_PROFILES;
+        for (int profile : profiles) {
+            int level = getLowestLevel(selection.mimeType, profile, width, height, frameRate, bitrate);
+            if (level > 0 && level <= getMaxLevel(selection.profileLevels, profile)) {
+                selection.profile = profile;
+                selection.level = level;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the lowest level of a profile that fits the size, frame rate and bitrate
+     * @return one of MediaCodecInfo.CodecProfileLevel level constants, 0 if no level fits
+     */
+    static int getLowestLevel(String mimeType, int profile, int width, int height, int frameRate, int bitrate) {
+        boolean hevc = MediaFormat.MIMETYPE_VIDEO_HEVC.equals(mimeType);
+        // Frame sizes are counted in luma samples for HEVC and in 16x16 macroblocks for AVC
+        long frameWidth = hevc ? width : (width + 15) / 16;
+        long frameHeight = hevc ? height : (height + 15) / 16;
+        long frameSize = frameWidth * frameHeight;
+        // High profile allows 25% more bitrate than Baseline and Main
+        long bitrateFactor = profile == MediaCodecInfo.CodecProfileLevel.AVCProfileHigh ? 1250 : 1000;
+
+        for (long[] level : hevc ? HEVC_LEVELS : AVC_LEVELS) {
+            // No side may be longer than the square root of 8 times the frame size limit
+            long maxSide = (long) Math.sqrt(level[1] * 8.0);
+            if (
+                frameSize <= level[1] &&
+                frameWidth <= maxSide &&
+                frameHeight <= maxSide &&
+                frameSize * frameRate <= level[2] &&
+                bitrate <= level[3] * bitrateFactor
+            ) {
+                return (int) level[0];
+            }
+        }
+
+        return 0;
+    }
+
+    private static int getMaxLevel(MediaCodecInfo.CodecProfileLevel[] profileLevels, int profile) {
+        int maxLevel = 0;
+        for (MediaCodecInfo.CodecProfileLevel profileLevel : profileLevels) {
+            if (profileLevel.profile == profile) {
+                maxLevel = Math.max(maxLevel, profileLevel.level);
+            }
+        }
+        return maxLevel;
+    }
+
+    private static int getInteger(MediaFormat format, String key) {
+        return format.containsKey(key) ? format.getInteger(key) : 0;
+    }
+
+    /**
+     * Returns the encoders for a mime type, hardware encoders first
+     */
+    private static List<MediaCodecInfo> getEncoders(String mimeType) {
+        List<MediaCodecInfo> hardwareEncoders = new ArrayList<>();
+        List<MediaCodecInfo> softwareEncoders = new ArrayList<>();
+
+        for (MediaCodecInfo codecInfo : new MediaCodecList(MediaCodecList.REGULAR_CODECS).getCodecInfos()) {
+            if (!codecInfo.isEncoder() || !Arrays.asList(codecInfo.getSupportedTypes()).contains(mimeType)) {
+                continue;
+            }
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && codecInfo.isAlias()) {
+                continue;
+            }
+
+            if (MediaCodecUtils.isHardware(codecInfo)) {
+                hardwareEncoders.add(codecInfo);
+            } else {
+                softwareEncoders.add(codecInfo);
+            }
+        }
+
+        hardwareEncoders.addAll(softwareEncoders);
+        return hardwareEncoders;
+    }
+}
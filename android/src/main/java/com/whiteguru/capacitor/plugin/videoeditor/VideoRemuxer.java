@@ -0,0 +1,228 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copies compressed samples from a source media into a new MP4 container without decoding them.
+ * Cut points are aligned to the previous video sync sample.
+ */
+public class VideoRemuxer {
+
+    public interface ProgressListener {
+        void onProgress(float progress);
+    }
+
+    static final int DEFAULT_MAX_SAMPLE_SIZE = 1024 * 1024;
+
+    static final int SAMPLE_COPY = 0;
+    static final int SAMPLE_SKIP = 1; // before the cut start
+    static final int SAMPLE_END = 2; // the track is finished, this and its later samples are dropped
+
+    static final List<String> MUXER_VIDEO_MIMES = Arrays.asList(
+        MediaFormat.MIMETYPE_VIDEO_AVC,
+        MediaFormat.MIMETYPE_VIDEO_HEVC,
+        MediaFormat.MIMETYPE_VIDEO_MPEG4,
+        MediaFormat.MIMETYPE_VIDEO_H263
+    );
+
+    static final List<String> MUXER_AUDIO_MIMES = Arrays.asList(
+        MediaFormat.MIMETYPE_AUDIO_AAC,
+        MediaFormat.MIMETYPE_AUDIO_AMR_NB,
+        MediaFormat.MIMETYPE_AUDIO_AMR_WB
+    );
+
+    private final MediaExtractor extractor;
+    private int videoTrackIndex = -1;
+    private volatile boolean cancelled = false;
+
+    public VideoRemuxer(Context context, @NonNull Uri uri) throws IOException {
+        extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(context, uri, null);
+        } catch (IOException ex) {
+            extractor.release();
+            throw ex;
+        }
+
+        for (int track = 0; track < extractor.getTrackCount(); track++) {
+            String mimeType = extractor.getTrackFormat(track).getString(MediaFormat.KEY_MIME);
+            if (mimeType != null && mimeType.startsWith("video")) {
+                videoTrackIndex = track;
+                break;
+            }
+        }
+    }
+
+    public static boolean isMuxerCompatible(@NonNull String mimeType) {
+        return MUXER_VIDEO_MIMES.contains(mimeType) || MUXER_AUDIO_MIMES.contains(mimeType);
+    }
+
+    /**
+     * Returns the presentation time of the video sync sample at or before the given time
+     * @param timeUs time in microSeconds
+     * @return sync sample time in microSeconds
+     */
+    public long getSyncSampleTimeUs(long timeUs) {
+        if (videoTrackIndex < 0) {
+            return timeUs;
+        }
+
+        extractor.selectTrack(videoTrackIndex);
+        try {
+            extractor.seekTo(timeUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+            long sampleTimeUs = extractor.getSampleTime();
+            return sampleTimeUs < 0 ? timeUs : sampleTimeUs;
+        } finally {
+            extractor.unselectTrack(videoTrackIndex);
+        }
+    }
+
+    /**
+     * Copies samples between the video sync sample at or before startUs and endUs
+     * @param outFile Target MP4 file
+     * @param startUs Start time in microSeconds
+     * @param endUs End time in microSeconds, Long.MAX_VALUE for end of media
+     * @param durationUs Source duration in microSeconds, used for progress
+     * @param rotation Orientation hint in degrees
+     * @param removeAudio true to leave audio tracks out
+     * @param progressListener Progress listener, may be null
+     */
+    public void remux(
+        @NonNull File outFile,
+        long startUs,
+        long endUs,
+        long durationUs,
+        int rotation,
+        boolean removeAudio,
+        ProgressListener progressListener
+    ) throws IOException {
+        long cutStartUs = getSyncSampleTimeUs(startUs);
+        long spanUs = Math.max(1, Math.min(endUs, durationUs) - cutStartUs);
+
+        MediaMuxer muxer = new MediaMuxer(outFile.getPath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        boolean muxerStarted = false;
+
+        try {
+            int[] muxerTracks = new int[extractor.getTrackCount()];
+            int maxSampleSize = DEFAULT_MAX_SAMPLE_SIZE;
+            int selectedTracks = 0;
+
+            for (int track = 0; track < extractor.getTrackCount(); track++) {
+                MediaFormat format = extractor.getTrackFormat(track);
+                String mimeType = format.getString(MediaFormat.KEY_MIME);
+                if (mimeType == null || !isMuxerCompatible(mimeType) || (removeAudio && mimeType.startsWith("audio"))) {
+                    muxerTracks[track] = -1;
+                    continue;
+                }
+
+                extractor.selectTrack(track);
+                muxerTracks[track] = muxer.addTrack(format);
+                maxSampleSize = Math.max(maxSampleSize, MediaFormatUtils.getInt(format, MediaFormat.KEY_MAX_INPUT_SIZE, 0));
+                selectedTracks++;
+            }
+
+            if (selectedTracks == 0) {
+                throw new IOException("No track can be remuxed");
+            }
+
+            muxer.setOrientationHint(rotation);
+            muxer.start();
+            muxerStarted = true;
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(maxSampleSize);
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            boolean[] finishedTracks = new boolean[extractor.getTrackCount()];
+            int finishedCount = 0;
+            float lastProgress = 0;
+
+            extractor.seekTo(cutStartUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+
+            while (finishedCount < selectedTracks && !cancelled) {
+                int track = extractor.getSampleTrackIndex();
+                if (track < 0) {
+                    break;
+                }
+
+                long sampleTimeUs = extractor.getSampleTime();
+                int selection = selectSample(sampleTimeUs, cutStartUs, endUs, finishedTracks[track]);
+                if (selection == SAMPLE_END) {
+                    if (!finishedTracks[track]) {
+                        finishedTracks[track] = true;
+                        finishedCount++;
+                    }
+                } else if (selection == SAMPLE_COPY) {
+                    bufferInfo.offset = 0;
+                    bufferInfo.size = extractor.readSampleData(buffer, 0);
+                    bufferInfo.presentationTimeUs = sampleTimeUs - cutStartUs;
+                    bufferInfo.flags = (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0
+                        ? MediaCodec.BUFFER_FLAG_KEY_FRAME
+                        : 0;
+
+                    if (bufferInfo.size > 0) {
+                        muxer.writeSampleData(muxerTracks[track], buffer, bufferInfo);
+                    }
+
+                    if (progressListener != null && track == videoTrackIndex) {
+                        float progress = Math.min(1f, (float) bufferInfo.presentationTimeUs / spanUs);
+                        if (progress - lastProgress >= 0.01f) {
+                            lastProgress = progress;
+                            progressListener.onProgress(progress);
+                        }
+                    }
+                }
+
+                extractor.advance();
+            }
+        } finally {
+            try {
+                if (muxerStarted) {
+                    muxer.stop();
+                }
+            } finally {
+                muxer.release();
+            }
+        }
+    }
+
+    /**
+     * Decides what to do with a sample of a track, read in decode order.
+     * A track ends at its first sample at or after endUs: with reordered frames, the samples that follow it may present earlier
+     * but can depend on it, so they are dropped too.
+     * @param sampleTimeUs presentation time of the sample in microSeconds
+     * @param trackFinished true if an earlier sample of the track ended it
+     * @return one of SAMPLE_COPY, SAMPLE_SKIP, SAMPLE_END
+     */
+    static int selectSample(long sampleTimeUs, long cutStartUs, long endUs, boolean trackFinished) {
+        if (trackFinished || sampleTimeUs >= endUs) {
+            return SAMPLE_END;
+        }
+
+        return sampleTimeUs < cutStartUs ? SAMPLE_SKIP : SAMPLE_COPY;
+    }
+
+    /**
+     * Stops a running remux, the partial output is left as is
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void release() {
+        extractor.release();
+    }
+}
@@ -0,0 +1,131 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import android.content.Context;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build;
+import androidx.annotation.NonNull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads compressed video sample sizes of a few GOPs spread over a range, without decoding them.
+ */
+public class VideoSampler {
+
+    static final int DEFAULT_GOP_COUNT = 3;
+    static final int MAX_SAMPLES_PER_GOP = 300;
+    static final int DEFAULT_KEY_FRAME_COUNT = 10;
+
+    /**
+     * @param startUs range start in microSeconds
+     * @param endUs range end in microSeconds
+     * @param gopCount GOPs to read, spread evenly over the range
+     */
+    @NonNull
+    public static BitratePlanner.Samples sample(Context context, @NonNull Uri uri, long startUs, long endUs, int gopCount)
+        throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(context, uri, null);
+
+            int videoTrack = -1;
+            for (int track = 0; track < extractor.getTrackCount(); track++) {
+                String mimeType = extractor.getTrackFormat(track).getString(MediaFormat.KEY_MIME);
+                if (mimeType != null && mimeType.startsWith("video")) {
+                    videoTrack = track;
+                    break;
+                }
+            }
+            if (videoTrack < 0) {
+                throw new IOException("Video track not found");
+            }
+            extractor.selectTrack(videoTrack);
+
+            int maxSampleSize = Math.max(
+                VideoRemuxer.DEFAULT_MAX_SAMPLE_SIZE,
+                MediaFormatUtils.getInt(extractor.getTrackFormat(videoTrack), MediaFormat.KEY_MAX_INPUT_SIZE, 0)
+            );
+
+            int[] sizes = new int[gopCount * MAX_SAMPLES_PER_GOP];
+            boolean[] keyFrames = new boolean[sizes.length];
+            int count = 0;
+            long lastKeyFrameUs = -1;
+            ByteBuffer buffer = null;
+
+            for (int gop = 0; gop < gopCount; gop++) {
+                long atUs = startUs + (long) ((endUs - startUs) * (gop + 0.5) / gopCount);
+                extractor.seekTo(atUs, MediaExtractor.SEEK_TO_PREVIOUS_SYNC);
+
+                // Short videos may have a single GOP, read it once
+                if (extractor.getSampleTime() == lastKeyFrameUs) {
+                    continue;
+                }
+                lastKeyFrameUs = extractor.getSampleTime();
+
+                for (int i = 0; i < MAX_SAMPLES_PER_GOP && extractor.getSampleTrackIndex() >= 0; i++) {
+                    boolean keyFrame = (extractor.getSampleFlags() & MediaExtractor.SAMPLE_FLAG_SYNC) != 0;
+                    if (keyFrame && i > 0) {
+                        break;
+                    }
+
+                    int size;
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                        size = (int) extractor.getSampleSize();
+                    } else {
+                        if (buffer == null) {
+                            buffer = ByteBuffer.allocateDirect(maxSampleSize);
+                        }
+                        size = extractor.readSampleData(buffer, 0);
+                    }
+
+                    sizes[count] = size;
+                    keyFrames[count] = keyFrame;
+                    count++;
+
+                    extractor.advance();
+                }
+            }
+
+            return new BitratePlanner.Samples(Arrays.copyOf(sizes, count), Arrays.copyOf(keyFrames, count));
+        } finally {
+            extractor.release();
+        }
+    }
+
+    /**
+     * Measures the average key frame interval at the start of a track, seeking from key frame to key frame.
+     * Only the sync sample index of the container is read.
+     * @param track video track index
+     * @param keyFrameCount key frames to visit
+     * @return interval in seconds, -1 if the track has a single key frame
+     */
+    public static float keyFrameInterval(Context context, @NonNull Uri uri, int track, int keyFrameCount) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        try {
+            extractor.setDataSource(context, uri, null);
+            extractor.selectTrack(track);
+            extractor.seekTo(0, MediaExtractor.SEEK_TO_NEXT_SYNC);
+
+            long firstUs = extractor.getSampleTime();
+            long lastUs = firstUs;
+            int intervals = 0;
+            while (lastUs >= 0 && intervals < keyFrameCount) {
+                extractor.seekTo(lastUs + 1, MediaExtractor.SEEK_TO_NEXT_SYNC);
+                long timeUs = extractor.getSampleTime();
+                // -1 past the last key frame, some extractors stay on it instead
+                if (timeUs <= lastUs) {
+                    break;
+                }
+                lastUs = timeUs;
+                intervals++;
+            }
+
+            return intervals > 0 ? (lastUs - firstUs) / 1_000_000f / intervals : -1;
+        } finally {
+            extractor.release();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.whiteguru.capacitor.plugin.videoeditor.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EditMetrics {
+
+    public boolean passthrough; // samples were copied without transcoding
+    public long queueTime; // ms waiting for a free slot
+    public long probeTime; // ms reading the source media
+    public long wallTime; // ms from start to completion
+    public long inputBytes = -1;
+    public long inputBitrate = -1; // bits/sec, -1 if unknown
+    public long outputBytes;
+    public long outputBitrate = -1; // bits/sec, -1 if unknown
+    public long outputDurationMs;
+    public int encodedFrames; // video frames written to the output, 0 if samples were copied
+    public float fps; // video frames processed per second of wall time
+    public final List<TrackMetrics> tracks = new ArrayList<>();
+}
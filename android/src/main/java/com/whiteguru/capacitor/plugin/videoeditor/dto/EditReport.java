@@ -0,0 +1,13 @@
+package com.whiteguru.capacitor.plugin.videoeditor.dto;
+
+/**
+ * Filled while an edit runs, read by the caller once the edit completes.
+ */
+public class EditReport {
+
+    public EncoderSelection encoder; // null if samples were copied without transcoding
+    public String audio; // TranscodeSettings.AUDIO_* applied to the audio tracks
+    public int frameCount; // expected output video frames, 0 if unknown
+    public boolean collectMetrics; // set by the caller, metrics are only collected on request
+    public EditMetrics metrics; // null until the edit completes, or if not requested
+}
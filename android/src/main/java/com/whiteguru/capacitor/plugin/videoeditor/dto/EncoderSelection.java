@@ -0,0 +1,36 @@
+package com.whiteguru.capacitor.plugin.videoeditor.dto;
+
+import android.media.MediaCodecInfo;
+
+public class EncoderSelection {
+
+    public String mimeType;
+    public String codecName; // null if no encoder could be validated, the framework picks one
+    public boolean hardware;
+    public int profile = -1; // set when applied to the output format, -1 for encoder default
+    public int level = -1;
+    public MediaCodecInfo.CodecProfileLevel[] profileLevels; // supported by the encoder, null if unknown
+    public int bitrateMode = -1; // MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_*, -1 for encoder default
+    public int quality = -1; // only for BITRATE_MODE_CQ
+    public double maxFrameRate = -1; // supported at the selected size, -1 if unknown
+
+    @Override
+    public String toString() {
+        return (
+            "EncoderSelection{" +
+            "mimeType=" +
+            mimeType +
+            ", codecName=" +
+            codecName +
+            ", hardware=" +
+            hardware +
+            ", profile=" +
+            profile +
+            ", level=" +
+            level +
+            ", bitrateMode=" +
+            bitrateMode +
+            '}'
+        );
+    }
+}
@@ -0,0 +1,61 @@
+package com.whiteguru.capacitor.plugin.videoeditor.dto;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.DocumentsContract;
+import android.provider.MediaStore;
+import android.provider.OpenableColumns;
+import androidx.annotation.NonNull;
+import java.io.File;
+
+public class FileStat {
+
+    public long size = -1;
+    public long lastModified = -1; // in miliSeconds
+
+    /**
+     * Reads size and modification time of a file or content uri without opening it
+     * @param context Activity context
+     * @param uri Media uri
+     * @return stat, with -1 on unknown fields
+     */
+    @NonNull
+    public static FileStat of(Context context, @NonNull Uri uri) {
+        FileStat stat = new FileStat();
+
+        if (ContentResolver.SCHEME_CONTENT.equals(uri.getScheme())) {
+            try (Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    int sizeIndex = cursor.getColumnIndex(OpenableColumns.SIZE);
+                    if (sizeIndex >= 0 && !cursor.isNull(sizeIndex)) {
+                        stat.size = cursor.getLong(sizeIndex);
+                    }
+
+                    int lastModifiedIndex = cursor.getColumnIndex(DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+                    int dateModifiedIndex = cursor.getColumnIndex(MediaStore.MediaColumns.DATE_MODIFIED);
+                    if (lastModifiedIndex >= 0 && !cursor.isNull(lastModifiedIndex)) {
+                        stat.lastModified = cursor.getLong(lastModifiedIndex);
+                    } else if (dateModifiedIndex >= 0 && !cursor.isNull(dateModifiedIndex)) {
+                        stat.lastModified = cursor.getLong(dateModifiedIndex) * 1000; // in seconds
+                    }
+                }
+            } catch (RuntimeException ex) {
+                // Provider does not support queries, stat stays unknown
+            }
+        } else if (uri.getPath() != null) {
+            File file = new File(uri.getPath());
+            if (file.exists()) {
+                stat.size = file.length();
+                stat.lastModified = file.lastModified();
+            }
+        }
+
+        return stat;
+    }
+
+    public boolean isKnown() {
+        return size >= 0 && lastModified >= 0;
+    }
+}
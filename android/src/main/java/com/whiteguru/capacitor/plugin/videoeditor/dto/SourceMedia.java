@@ -27,14 +27,43 @@ public class SourceMedia {
         this.loadUri(context, uri);
     }
 
+    /**
+     * @param size Media size in bytes, -1 if unknown
+     */
+    public SourceMedia(Context context, @NonNull Uri uri, long size) throws IOException {
+        this.loadUri(context, uri, size);
+    }
+
+    /**
+     * Media already probed
+     * @param size Media size in bytes, -1 if unknown
+     * @param durationMs Media duration in miliSeconds
+     */
+    public SourceMedia(@NonNull Uri uri, long size, float durationMs, @NonNull List<MediaTrackFormat> tracks) {
+        this.uri = uri;
+        this.size = size;
+        this.durationMs = durationMs;
+        this.tracks = tracks;
+    }
+
     @NonNull
     public void loadUri(Context context, @NonNull Uri uri) throws IOException {
+        this.loadUri(context, uri, -1);
+    }
+
+    /**
+     * Probes tracks and duration with a single MediaExtractor
+     * @param context Activity context
+     * @param uri Media uri
+     * @param size Media size in bytes, -1 if unknown
+     */
+    public void loadUri(Context context, @NonNull Uri uri, long size) throws IOException {
         this.uri = uri;
-        this.size = TranscoderUtils.getSize(context, uri);
-        this.durationMs = getMediaDuration(context, uri) / 1000f;
+        this.size = size >= 0 ? size : TranscoderUtils.getSize(context, uri);
 
+        long durationUs = 0;
+        MediaExtractor mediaExtractor = new MediaExtractor();
         try {
-            MediaExtractor mediaExtractor = new MediaExtractor();
             mediaExtractor.setDataSource(context, uri, null);
             this.tracks = new ArrayList<>(mediaExtractor.getTrackCount());
 
@@ -45,12 +74,15 @@ public class SourceMedia {
                     continue;
                 }
 
+                durationUs = Math.max(durationUs, getLong(mediaFormat, MediaFormat.KEY_DURATION));
+
                 if (mimeType.startsWith("video")) {
                     VideoTrackFormat videoTrack = new VideoTrackFormat(track, mimeType);
                     videoTrack.width = getInt(mediaFormat, MediaFormat.KEY_WIDTH);
                     videoTrack.height = getInt(mediaFormat, MediaFormat.KEY_HEIGHT);
                     videoTrack.duration = getLong(mediaFormat, MediaFormat.KEY_DURATION);
-                    videoTrack.frameRate = MediaFormatUtils.getFrameRate(mediaFormat, -1).intValue();
+                    // Rounded, so 29.97 and 30.03 fps sources count as 30 fps
+                    videoTrack.frameRate = Math.round(MediaFormatUtils.getFrameRate(mediaFormat, -1).floatValue());
                     videoTrack.keyFrameInterval = MediaFormatUtils.getIFrameInterval(mediaFormat, -1).intValue();
                     videoTrack.rotation = getInt(mediaFormat, MediaFormat.KEY_ROTATION, 0);
                     videoTrack.bitrate = getInt(mediaFormat, MediaFormat.KEY_BIT_RATE);
@@ -68,7 +100,15 @@ public class SourceMedia {
             }
         } catch (IOException ex) {
             throw new IOException("Failed to extract sourceMedia");
+        } finally {
+            mediaExtractor.release();
+        }
+
+        if (durationUs <= 0) {
+            // Container does not report track durations
+            durationUs = getMediaDuration(context, uri);
         }
+        this.durationMs = durationUs / 1000f;
     }
 
     public List<VideoTrackFormat> getVideoTracks() {
@@ -83,16 +123,32 @@ public class SourceMedia {
         return videoTracks;
     }
 
+    public List<AudioTrackFormat> getAudioTracks() {
+        List<AudioTrackFormat> audioTracks = new ArrayList<>();
+
+        for (MediaTrackFormat track : tracks) {
+            if (track instanceof AudioTrackFormat) {
+                audioTracks.add((AudioTrackFormat) track);
+            }
+        }
+
+        return audioTracks;
+    }
+
     /**
      * Returns media duration in microSeconds
      * @param context Activity context
      * @param uri Media uri
      * @return media duration in microSeconds
      */
-    private long getMediaDuration(Context context, @NonNull Uri uri) {
+    private long getMediaDuration(Context context, @NonNull Uri uri) throws IOException {
         MediaMetadataRetriever mediaMetadataRetriever = new MediaMetadataRetriever();
-        mediaMetadataRetriever.setDataSource(context, uri);
-        String durationStr = mediaMetadataRetriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
-        return Long.parseLong(durationStr) * 1000;
+        try {
+            mediaMetadataRetriever.setDataSource(context, uri);
+            String durationStr = mediaMetadataRetriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
+            return durationStr != null ? Long.parseLong(durationStr) * 1000 : 0;
+        } finally {
+            mediaMetadataRetriever.release();
+        }
     }
 }
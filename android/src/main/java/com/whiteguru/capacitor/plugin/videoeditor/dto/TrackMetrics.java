@@ -0,0 +1,14 @@
+package com.whiteguru.capacitor.plugin.videoeditor.dto;
+
+public class TrackMetrics {
+
+    public String mimeType; // output mime type
+    public String decoder; // null if the track was copied
+    public Boolean decoderHardware; // null if unknown
+    public String encoder; // null if the track was copied
+    public Boolean encoderHardware; // null if unknown
+    public long processingTime = -1; // ms spent by the transcoder on the track, -1 if unknown
+    public int samples; // samples written to the output
+    public long bytes = -1; // -1 if unknown
+    public long bitrate = -1; // bits/sec, -1 if unknown
+}
@@ -0,0 +1,107 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class BitratePlannerTest {
+
+    /**
+     * One GOP of gopSize samples, a key frame followed by predicted frames
+     */
+    private static BitratePlanner.Samples gop(int gopSize, int keyFrameSize, int predictedSize) {
+        int[] sizes = new int[gopSize];
+        boolean[] keyFrames = new boolean[gopSize];
+        for (int i = 0; i < gopSize; i++) {
+            keyFrames[i] = i == 0;
+            sizes[i] = i == 0 ? keyFrameSize : predictedSize;
+        }
+        return new BitratePlanner.Samples(sizes, keyFrames);
+    }
+
+    @Test
+    public void complexity_isLowForStaticContent() {
+        float complexity = BitratePlanner.complexity(gop(30, 100_000, 2_000));
+
+        assertTrue(complexity > 0 && complexity < 0.3f);
+    }
+
+    @Test
+    public void complexity_isFullForHighMotion() {
+        assertEquals(1f, BitratePlanner.complexity(gop(30, 100_000, 60_000)), 0.0001f);
+    }
+
+    @Test
+    public void complexity_isUnknownWithoutPredictedFrames() {
+        BitratePlanner.Samples samples = new BitratePlanner.Samples(new int[] { 1000, 1000 }, new boolean[] { true, true });
+
+        assertEquals(-1f, BitratePlanner.complexity(samples), 0f);
+        assertEquals(-1f, BitratePlanner.complexity(new BitratePlanner.Samples(new int[0], new boolean[0])), 0f);
+    }
+
+    @Test
+    public void bitrateForQuality_growsWithComplexity() {
+        int still = BitratePlanner.bitrateForQuality(TranscodeSettings.QUALITY_MEDIUM, 0f, 1280, 720, 30);
+        int motion = BitratePlanner.bitrateForQuality(TranscodeSettings.QUALITY_MEDIUM, 1f, 1280, 720, 30);
+
+        assertTrue(still < motion);
+        assertEquals((int) (0.05f * 1280 * 720 * 30), still);
+    }
+
+    @Test
+    public void bitrateForQuality_unknownComplexityIsFullMotion() {
+        assertEquals(
+            BitratePlanner.bitrateForQuality(TranscodeSettings.QUALITY_HIGH, 1f, 1920, 1080, 30),
+            BitratePlanner.bitrateForQuality(TranscodeSettings.QUALITY_HIGH, -1f, 1920, 1080, 30)
+        );
+    }
+
+    @Test
+    public void bitrateForQuality_tiersAreOrdered() {
+        int low = BitratePlanner.bitrateForQuality(TranscodeSettings.QUALITY_LOW, 0.5f, 1280, 720, 30);
+        int medium = BitratePlanner.bitrateForQuality(TranscodeSettings.QUALITY_MEDIUM, 0.5f, 1280, 720, 30);
+        int high = BitratePlanner.bitrateForQuality(TranscodeSettings.QUALITY_HIGH, 0.5f, 1280, 720, 30);
+
+        assertTrue(low < medium);
+        assertTrue(medium < high);
+    }
+
+    @Test
+    public void bitrateForSize_fitsTimeLapseTarget() {
+        long targetBytes = 25L * 1024 * 1024;
+        long rangeUs = 60_000_000L;
+
+        // 60 seconds at 4x last 15 seconds, the whole target is spent on them
+        long durationUs = BitratePlanner.outputDurationUs(rangeUs, 4f);
+        int videoBitrate = BitratePlanner.bitrateForSize(targetBytes, durationUs, 0);
+        long outputBytes = (long) videoBitrate * durationUs / 1_000_000 / 8;
+
+        assertEquals(15_000_000L, durationUs);
+        assertEquals(4 * BitratePlanner.bitrateForSize(targetBytes, rangeUs, 0), videoBitrate, 4);
+        assertTrue(outputBytes <= targetBytes);
+        assertTrue(outputBytes > targetBytes * 0.9);
+    }
+
+    @Test
+    public void bitrateForSize_fitsTarget() {
+        long targetBytes = 25L * 1024 * 1024;
+        long durationUs = 60_000_000L;
+        int audioBitrate = 128_000;
+
+        int videoBitrate = BitratePlanner.bitrateForSize(targetBytes, durationUs, audioBitrate);
+        long outputBytes = (long) (videoBitrate + audioBitrate) * durationUs / 1_000_000 / 8;
+
+        assertTrue(outputBytes <= targetBytes);
+        assertTrue(outputBytes > targetBytes * 0.9);
+    }
+
+    @Test
+    public void bitrateForSize_neverBelowMinimum() {
+        assertEquals(BitratePlanner.MIN_VIDEO_BITRATE, BitratePlanner.bitrateForSize(1024, 60_000_000L, 128_000));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void samples_requireSameLength() {
+        new BitratePlanner.Samples(new int[2], new boolean[1]);
+    }
+}
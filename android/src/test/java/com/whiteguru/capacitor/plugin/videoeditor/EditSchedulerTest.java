@@ -0,0 +1,295 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class EditSchedulerTest {
+
+    private static final long TIMEOUT_S = 5;
+
+    /**
+     * Task that holds its slot until released
+     */
+    private static EditScheduler.Task blocking(EditScheduler scheduler, CountDownLatch started, CountDownLatch release) {
+        return job -> {
+            started.countDown();
+            try {
+                release.await(TIMEOUT_S, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            scheduler.finish(job.getId());
+        };
+    }
+
+    @Test
+    public void enqueue_runsHigherPriorityFirst() throws Exception {
+        EditScheduler scheduler = new EditScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        EditScheduler.Task recording = job -> {
+            order.add(job.getId());
+            scheduler.finish(job.getId());
+            done.countDown();
+        };
+
+        assertEquals(0, scheduler.enqueue("running", 0, blocking(scheduler, started, release), () -> {}));
+        assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.enqueue("low", 0, recording, () -> {}));
+        assertEquals(1, scheduler.enqueue("high", 10, recording, () -> {}));
+        assertEquals(3, scheduler.enqueue("low2", 0, recording, () -> {}));
+        assertEquals(2, scheduler.getPosition("low"));
+
+        release.countDown();
+
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("high", "low", "low2"), order);
+        assertEquals(-1, scheduler.getPosition("low2"));
+    }
+
+    @Test
+    public void cancel_removesQueuedJob() throws Exception {
+        EditScheduler scheduler = new EditScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger cancelled = new AtomicInteger();
+        CountDownLatch next = new CountDownLatch(1);
+        AtomicInteger ran = new AtomicInteger();
+
+        scheduler.enqueue("running", 0, blocking(scheduler, started, release), () -> {});
+        assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS));
+        scheduler.enqueue(
+            "queued",
+            0,
+            job -> {
+                ran.incrementAndGet();
+                scheduler.finish(job.getId());
+            },
+            cancelled::incrementAndGet
+        );
+        scheduler.enqueue(
+            "next",
+            0,
+            job -> {
+                scheduler.finish(job.getId());
+                next.countDown();
+            },
+            () -> {}
+        );
+
+        assertTrue(scheduler.cancel("queued"));
+        assertFalse(scheduler.cancel("queued"));
+        assertEquals(1, cancelled.get());
+        assertEquals(-1, scheduler.getPosition("queued"));
+        assertEquals(1, scheduler.getPosition("next"));
+
+        release.countDown();
+
+        assertTrue(next.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    public void cancel_runsHandlerOfRunningJob() throws Exception {
+        EditScheduler scheduler = new EditScheduler(1);
+        CountDownLatch installed = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
+        EditScheduler.Job[] running = new EditScheduler.Job[1];
+
+        scheduler.enqueue(
+            "running",
+            0,
+            job -> {
+                running[0] = job;
+                job.setCancelHandler(() -> {
+                    scheduler.finish(job.getId());
+                    stopped.countDown();
+                });
+                installed.countDown();
+            },
+            () -> fail("Handler of the queued job must be replaced")
+        );
+        assertTrue(installed.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getPosition("running"));
+
+        assertTrue(scheduler.cancel("running"));
+
+        assertTrue(stopped.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertTrue(running[0].isCancelled());
+        assertFalse(running[0].setCancelHandler(() -> {}));
+        assertEquals(-1, scheduler.getPosition("running"));
+    }
+
+    @Test
+    public void enqueue_keepsConcurrencyLimit() throws Exception {
+        EditScheduler scheduler = new EditScheduler(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        CountDownLatch twoStarted = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(4);
+
+        for (int i = 0; i < 4; i++) {
+            scheduler.enqueue(
+                "job-" + i,
+                0,
+                job -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    twoStarted.countDown();
+                    try {
+                        release.await(TIMEOUT_S, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    active.decrementAndGet();
+                    scheduler.finish(job.getId());
+                    done.countDown();
+                },
+                () -> {}
+            );
+        }
+
+        assertTrue(twoStarted.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getPosition("job-0"));
+        assertEquals(0, scheduler.getPosition("job-1"));
+        assertEquals(1, scheduler.getPosition("job-2"));
+        assertEquals(2, scheduler.getPosition("job-3"));
+
+        release.countDown();
+
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(2, maxActive.get());
+    }
+
+    @Test
+    public void setMaxConcurrency_startsQueuedJobs() throws Exception {
+        EditScheduler scheduler = new EditScheduler(1);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        scheduler.enqueue("job-0", 0, blocking(scheduler, started, release), () -> {});
+        scheduler.enqueue("job-1", 0, blocking(scheduler, started, release), () -> {});
+        assertEquals(1, scheduler.getPosition("job-1"));
+
+        scheduler.setMaxConcurrency(2);
+
+        assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getPosition("job-1"));
+        release.countDown();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setMaxConcurrency_rejectsZero() {
+        new EditScheduler(0);
+    }
+
+    @Test
+    public void split_cancelsPartOnly() {
+        AtomicInteger parentCancelled = new AtomicInteger();
+        AtomicInteger partCancelled = new AtomicInteger();
+        EditScheduler.Job parent = new EditScheduler.Job("job", 5, 0, job -> {}, parentCancelled::incrementAndGet);
+
+        EditScheduler.Job part = parent.split(partCancelled::incrementAndGet);
+
+        assertEquals(parent.getId(), part.getId());
+        assertEquals(parent.getPriority(), part.getPriority());
+        assertEquals(parent.getQueuedAt(), part.getQueuedAt());
+        assertEquals(EditScheduler.Job.STATE_RUNNING, part.getState());
+
+        part.cancel();
+        part.cancel();
+
+        assertEquals(1, partCancelled.get());
+        assertEquals(0, parentCancelled.get());
+        assertFalse(parent.isCancelled());
+    }
+
+    @Test
+    public void runPart_runsBesideTheJobWithoutASlot() throws Exception {
+        EditScheduler scheduler = new EditScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch partRan = new CountDownLatch(1);
+        List<EditScheduler.Job> ranWith = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            // The job holds the only slot while its part runs
+            scheduler.enqueue(
+                "job",
+                0,
+                job -> {
+                    EditScheduler.Job part = job.split(() -> {});
+                    scheduler.runPart(part, running -> {
+                        ranWith.add(running);
+                        partRan.countDown();
+                    });
+                    blocking(scheduler, started, release).run(job);
+                },
+                () -> {}
+            );
+
+            assertTrue(partRan.await(TIMEOUT_S, TimeUnit.SECONDS));
+            assertEquals("job", ranWith.get(0).getId());
+            assertEquals(0, scheduler.getPosition("job"));
+        } finally {
+            release.countDown();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void runPart_afterShutdown() {
+        EditScheduler scheduler = new EditScheduler(1);
+        EditScheduler.Job part = new EditScheduler.Job("job", 0, 0, job -> {}, () -> {}).split(() -> {});
+        scheduler.shutdown();
+
+        assertFalse(scheduler.runPart(part, job -> fail("Part must not run after shutdown")));
+    }
+
+    @Test
+    public void shutdown_cancelsQueuedJobs() throws Exception {
+        EditScheduler scheduler = new EditScheduler(1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger cancelled = new AtomicInteger();
+
+        try {
+            scheduler.enqueue("running", 0, blocking(scheduler, started, release), cancelled::incrementAndGet);
+            assertTrue(started.await(TIMEOUT_S, TimeUnit.SECONDS));
+            scheduler.enqueue("queued", 0, job -> fail("Queued job must not run after shutdown"), cancelled::incrementAndGet);
+
+            scheduler.shutdown();
+
+            assertEquals(1, cancelled.get());
+            assertEquals(-1, scheduler.getPosition("queued"));
+            assertEquals(0, scheduler.getPosition("running"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void enqueue_afterShutdown() {
+        EditScheduler scheduler = new EditScheduler(1);
+        AtomicInteger cancelled = new AtomicInteger();
+        scheduler.shutdown();
+
+        assertEquals(-1, scheduler.enqueue("job", 0, job -> fail("Job must not run after shutdown"), cancelled::incrementAndGet));
+        assertEquals(1, cancelled.get());
+    }
+}
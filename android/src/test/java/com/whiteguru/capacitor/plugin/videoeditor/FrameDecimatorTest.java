@@ -0,0 +1,63 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class FrameDecimatorTest {
+
+    /**
+     * Counts the frames kept of one second of frames at sourceFps
+     */
+    private static int kept(FrameDecimator decimator, double sourceFps, float timeLapse) {
+        int count = 0;
+        int frames = (int) Math.round(sourceFps * timeLapse);
+        for (int i = 0; i < frames; i++) {
+            long sourceTimeUs = Math.round(i * 1_000_000 / sourceFps);
+            if (decimator.keep((long) (sourceTimeUs / timeLapse))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void keep_halvesDoubleRate() {
+        assertEquals(30, kept(new FrameDecimator(30), 60, 1));
+    }
+
+    @Test
+    public void keep_keepsEveryFrameAtOrBelowTarget() {
+        assertEquals(30, kept(new FrameDecimator(30), 30, 1));
+        assertEquals(30, kept(new FrameDecimator(30), 29.97, 1));
+        assertEquals(24, kept(new FrameDecimator(30), 24, 1));
+    }
+
+    @Test
+    public void keep_reducesToUnevenRate() {
+        int count = kept(new FrameDecimator(24), 60, 1);
+
+        assertTrue(count >= 23 && count <= 25);
+    }
+
+    @Test
+    public void keep_decimatesTimeLapse() {
+        // 8 seconds of 30 fps played in one second keep one frame of every 8
+        assertEquals(30, kept(new FrameDecimator(30), 30, 8));
+    }
+
+    @Test
+    public void keep_keepsEveryFrameWithoutRate() {
+        assertEquals(60, kept(new FrameDecimator(0), 60, 1));
+    }
+
+    @Test
+    public void keep_doesNotBurstAfterGap() {
+        FrameDecimator decimator = new FrameDecimator(30);
+
+        assertTrue(decimator.keep(0));
+        assertTrue(decimator.keep(1_000_000));
+        assertFalse(decimator.keep(1_016_667));
+        assertTrue(decimator.keep(1_033_333));
+    }
+}
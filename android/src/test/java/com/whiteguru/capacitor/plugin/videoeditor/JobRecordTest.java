@@ -0,0 +1,106 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import android.net.Uri;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class JobRecordTest {
+
+    private static JobRecord record(TranscodeSettings transcodeSettings) {
+        return new JobRecord(
+            "job",
+            Uri.parse("content://media/external/video/media/1"),
+            "/data/out.mp4",
+            "fingerprint",
+            new TrimSettings(1000, 61000, false),
+            transcodeSettings
+        );
+    }
+
+    private static JobRecord roundTrip(JobRecord record) throws JSONException {
+        return JobRecord.fromJson(new JSONObject(record.toJson().toString()));
+    }
+
+    @Test
+    public void toJson_roundTrip() throws JSONException {
+        TranscodeSettings transcodeSettings = new TranscodeSettings(720, 1280, false, 24);
+        transcodeSettings.setCodec(TranscodeSettings.CODEC_HEVC);
+        transcodeSettings.setBitrateMode(TranscodeSettings.BITRATE_MODE_CBR);
+        transcodeSettings.setKeyFrameInterval(2);
+        transcodeSettings.setQuality(TranscodeSettings.QUALITY_HIGH);
+        transcodeSettings.setTargetSize(10_000_000L);
+        transcodeSettings.setAudio(TranscodeSettings.AUDIO_REMOVE);
+        transcodeSettings.setTimeLapse(4);
+        transcodeSettings.setDropFrames(true);
+        transcodeSettings.setSpeed(TranscodeSettings.SPEED_MAX);
+        JobRecord record = record(transcodeSettings);
+        record.boundaries = new long[] { 1000, 31000, 61000 };
+        record.completedSegments = 1;
+        record.state = JobRecord.STATE_FAILED;
+        record.error = "Encoder failed";
+
+        JobRecord restored = roundTrip(record);
+
+        assertEquals(record.id, restored.id);
+        assertEquals(record.source, restored.source);
+        assertEquals(record.output, restored.output);
+        assertEquals(record.fingerprint, restored.fingerprint);
+        assertArrayEquals(record.boundaries, restored.boundaries);
+        assertEquals(1, restored.completedSegments);
+        assertEquals(2, restored.getSegmentCount());
+        assertEquals(JobRecord.STATE_FAILED, restored.state);
+        assertEquals("Encoder failed", restored.error);
+
+        assertEquals(1000, restored.trimSettings.getStartsAt());
+        assertEquals(61000, restored.trimSettings.getEndsAt());
+        assertFalse(restored.trimSettings.isAccurate());
+
+        TranscodeSettings restoredSettings = restored.transcodeSettings;
+        assertEquals(720, restoredSettings.getHeight());
+        assertEquals(1280, restoredSettings.getWidth());
+        assertFalse(restoredSettings.isKeepAspectRatio());
+        assertEquals(24, restoredSettings.getFps());
+        assertEquals(TranscodeSettings.CODEC_HEVC, restoredSettings.getCodec());
+        assertEquals(TranscodeSettings.BITRATE_MODE_CBR, restoredSettings.getBitrateMode());
+        assertEquals(2, restoredSettings.getKeyFrameInterval());
+        assertEquals(TranscodeSettings.QUALITY_HIGH, restoredSettings.getQuality());
+        assertEquals(10_000_000L, restoredSettings.getTargetSize());
+        assertEquals(TranscodeSettings.AUDIO_REMOVE, restoredSettings.getAudio());
+        assertEquals(4, restoredSettings.getTimeLapse(), 0);
+        assertTrue(restoredSettings.isDropFrames());
+        assertEquals(TranscodeSettings.SPEED_MAX, restoredSettings.getSpeed());
+    }
+
+    @Test
+    public void toJson_keepsUnsetOptionsUnset() throws JSONException {
+        JobRecord record = record(new TranscodeSettings());
+        record.fingerprint = null;
+
+        JobRecord restored = roundTrip(record);
+
+        assertNull(restored.fingerprint);
+        assertNull(restored.boundaries);
+        assertEquals(0, restored.getSegmentCount());
+        assertEquals(JobRecord.STATE_RUNNING, restored.state);
+        assertNull(restored.error);
+        assertFalse(restored.transcodeSettings.isCodecSet());
+        assertFalse(restored.transcodeSettings.hasEncoderOptions());
+        assertNull(restored.transcodeSettings.getBitrateMode());
+    }
+
+    @Test(expected = JSONException.class)
+    public void fromJson_rejectsInvalidSettings() throws JSONException {
+        JSONObject json = record(new TranscodeSettings()).toJson();
+        json.getJSONObject("transcode").put("codec", "vp9");
+
+        JobRecord.fromJson(json);
+    }
+}
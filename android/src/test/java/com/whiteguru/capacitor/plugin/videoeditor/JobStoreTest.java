@@ -0,0 +1,155 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import android.net.Uri;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class JobStoreTest {
+
+    private JobStore jobStore;
+
+    @Before
+    public void setUp() {
+        jobStore = new JobStore(RuntimeEnvironment.getApplication());
+    }
+
+    private static JobRecord record(String id) {
+        return new JobRecord(
+            id,
+            Uri.parse("file:///data/source.mp4"),
+            "/data/" + id + ".mp4",
+            "fingerprint",
+            new TrimSettings(0, 10000),
+            new TranscodeSettings(720, 1280, true, 30)
+        );
+    }
+
+    private static void write(File file) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[16]);
+        }
+    }
+
+    @Test
+    public void save_roundTrip() throws IOException {
+        JobRecord record = record("job");
+        record.boundaries = new long[] { 0, 5000, 10000 };
+        record.completedSegments = 1;
+
+        jobStore.save(record);
+        JobRecord loaded = jobStore.load("job");
+
+        assertNotNull(loaded);
+        assertEquals("job", loaded.id);
+        assertArrayEquals(record.boundaries, loaded.boundaries);
+        assertEquals(1, loaded.completedSegments);
+        assertEquals(JobRecord.STATE_RUNNING, loaded.state);
+    }
+
+    @Test
+    public void load_unknownJob() {
+        assertNull(jobStore.load("unknown"));
+    }
+
+    @Test
+    public void list_returnsSavedRecords() throws IOException {
+        jobStore.save(record("a"));
+        jobStore.save(record("b"));
+
+        List<JobRecord> records = jobStore.list();
+
+        assertEquals(2, records.size());
+    }
+
+    @Test
+    public void update_writesRunningJob() throws IOException {
+        JobRecord record = record("job");
+        jobStore.save(record);
+
+        record.completedSegments = 2;
+
+        assertTrue(jobStore.update(record));
+        assertEquals(2, jobStore.load("job").completedSegments);
+    }
+
+    @Test
+    public void update_doesNotBringBackCancelledJob() throws IOException {
+        JobRecord record = record("job");
+        jobStore.save(record);
+
+        assertTrue(jobStore.cancel("job"));
+        record.completedSegments = 2;
+
+        assertFalse(jobStore.update(record));
+        JobRecord stored = jobStore.load("job");
+        assertEquals(JobRecord.STATE_CANCELLED, stored.state);
+        assertEquals(0, stored.completedSegments);
+    }
+
+    @Test
+    public void update_doesNotBringBackDeletedJob() throws IOException {
+        JobRecord record = record("job");
+        jobStore.save(record);
+        jobStore.delete("job");
+
+        assertFalse(jobStore.update(record));
+        assertNull(jobStore.load("job"));
+    }
+
+    @Test
+    public void cancel_onlyRunningJobs() throws IOException {
+        JobRecord record = record("job");
+        record.state = JobRecord.STATE_COMPLETED;
+        jobStore.save(record);
+
+        assertFalse(jobStore.cancel("job"));
+        assertFalse(jobStore.cancel("unknown"));
+        assertEquals(JobRecord.STATE_COMPLETED, jobStore.load("job").state);
+    }
+
+    @Test
+    public void cancel_twice() throws IOException {
+        jobStore.save(record("job"));
+
+        assertTrue(jobStore.cancel("job"));
+        assertFalse(jobStore.cancel("job"));
+    }
+
+    @Test
+    public void delete_removesRecordAndSegments() throws IOException {
+        jobStore.save(record("job"));
+        File segment = jobStore.getSegmentFile("job", 0);
+        write(segment);
+
+        jobStore.delete("job");
+
+        assertNull(jobStore.load("job"));
+        assertFalse(segment.exists());
+        assertFalse(segment.getParentFile().exists());
+    }
+
+    @Test
+    public void deleteSegments_keepsRecord() throws IOException {
+        jobStore.save(record("job"));
+        File segment = jobStore.getSegmentFile("job", 0);
+        write(segment);
+
+        jobStore.deleteSegments("job");
+
+        assertNotNull(jobStore.load("job"));
+        assertFalse(segment.exists());
+    }
+}
@@ -0,0 +1,159 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class OutputStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static File write(File file, int bytes) throws IOException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[bytes]);
+        }
+        return file;
+    }
+
+    private static File output(OutputStore outputStore, int bytes) throws IOException {
+        return write(outputStore.createFile("VID_", ".mp4", null), bytes);
+    }
+
+    @Test
+    public void commit_evictsLeastRecentlyUsed() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.getRoot(), 300);
+        File a = output(outputStore, 100);
+        File b = output(outputStore, 100);
+        File c = output(outputStore, 100);
+        outputStore.commit(a);
+        outputStore.commit(b);
+        outputStore.commit(c);
+
+        outputStore.touch(a);
+        File d = output(outputStore, 100);
+        outputStore.commit(d);
+
+        assertTrue(a.isFile());
+        assertFalse(b.exists());
+        assertTrue(c.isFile());
+        assertTrue(d.isFile());
+        assertEquals(300, outputStore.getBytes());
+    }
+
+    @Test
+    public void commit_ignoresFilesOutsideStore() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.getRoot(), 100);
+        File outDir = temporaryFolder.newFolder("out");
+
+        File file = write(outputStore.createFile("VID_", ".mp4", outDir), 200);
+        outputStore.commit(file);
+
+        assertTrue(file.isFile());
+        assertEquals(0, outputStore.getBytes());
+        assertFalse(outputStore.release(file));
+    }
+
+    @Test
+    public void discard_deletesUncommittedOutput() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.getRoot(), 300);
+        File committed = output(outputStore, 100);
+        outputStore.commit(committed);
+        File partial = output(outputStore, 50);
+
+        outputStore.discard(partial);
+        outputStore.discard(committed);
+
+        assertFalse(partial.exists());
+        assertFalse(committed.exists());
+        assertEquals(0, outputStore.getBytes());
+    }
+
+    @Test
+    public void ensureFreeSpace_passesWithRoom() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.getRoot(), 300);
+        File file = output(outputStore, 100);
+        outputStore.commit(file);
+
+        outputStore.ensureFreeSpace(outputStore.getDir(), 1024);
+
+        assertTrue(file.isFile());
+        assertEquals(100, outputStore.getBytes());
+    }
+
+    @Test
+    public void ensureFreeSpace_evictsStoreThenFails() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.getRoot(), 300);
+        File file = output(outputStore, 100);
+        outputStore.commit(file);
+
+        try {
+            outputStore.ensureFreeSpace(outputStore.getDir(), Long.MAX_VALUE / 2);
+            fail("No disk has that much free space");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().startsWith("Not enough free space"));
+        }
+
+        assertFalse(file.exists());
+        assertEquals(0, outputStore.getBytes());
+    }
+
+    @Test
+    public void ensureFreeSpace_keepsStoreForOtherDirs() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.getRoot(), 300);
+        File file = output(outputStore, 100);
+        outputStore.commit(file);
+
+        try {
+            outputStore.ensureFreeSpace(temporaryFolder.newFolder("out"), Long.MAX_VALUE / 2);
+            fail("No disk has that much free space");
+        } catch (IOException ex) {
+            assertTrue(file.isFile());
+        }
+    }
+
+    @Test
+    public void constructor_picksUpLegacyFiles() throws IOException {
+        File cacheDir = temporaryFolder.getRoot();
+        File video = write(new File(cacheDir, "VID_1.mp4"), 100);
+        File thumbnail = write(new File(cacheDir, "TH_1.jpg"), 20);
+        File other = write(new File(cacheDir, "other.bin"), 1000);
+
+        OutputStore outputStore = new OutputStore(cacheDir, 300);
+
+        assertEquals(120, outputStore.getBytes());
+        assertTrue(outputStore.release(video));
+        assertFalse(video.exists());
+        assertEquals(20, outputStore.getBytes());
+        assertTrue(thumbnail.isFile());
+        assertTrue(other.isFile());
+    }
+
+    @Test
+    public void constructor_evictsOldestFilesOverBudget() throws IOException {
+        File cacheDir = temporaryFolder.getRoot();
+        File storeDir = new File(cacheDir, "video-editor");
+        assertTrue(storeDir.mkdirs());
+        File oldest = write(new File(cacheDir, "VID_old.mp4"), 200);
+        File newest = write(new File(storeDir, "VID_new.mp4"), 200);
+        assertTrue(oldest.setLastModified(1_000_000L));
+        assertTrue(newest.setLastModified(2_000_000L));
+
+        OutputStore outputStore = new OutputStore(cacheDir, 300);
+
+        assertFalse(oldest.exists());
+        assertTrue(newest.isFile());
+        assertEquals(200, outputStore.getBytes());
+    }
+}
@@ -0,0 +1,107 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ProgressThrottlerTest {
+
+    private final List<Float> delivered = new ArrayList<>();
+
+    private ProgressThrottler throttler(float minDelta, long minInterval) {
+        return new ProgressThrottler(new ProgressSettings(minDelta, minInterval), delivered::add);
+    }
+
+    private static void idleFor(long ms) {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(ms));
+    }
+
+    @Test
+    public void update_deliversFirstUpdate() {
+        throttler(0.1f, 1000).update(0.5f);
+
+        assertEquals(Arrays.asList(0.5f), delivered);
+    }
+
+    @Test
+    public void update_dropsSmallSteps() {
+        ProgressThrottler throttler = throttler(0.1f, 0);
+
+        throttler.update(0f);
+        throttler.update(0.05f);
+        throttler.update(0.15f);
+
+        assertEquals(Arrays.asList(0f, 0.15f), delivered);
+    }
+
+    @Test
+    public void update_alwaysDeliversCompletion() {
+        ProgressThrottler throttler = throttler(0.5f, 0);
+
+        throttler.update(0.8f);
+        throttler.update(1f);
+
+        assertEquals(Arrays.asList(0.8f, 1f), delivered);
+    }
+
+    @Test
+    public void update_coalescesWithinInterval() {
+        ProgressThrottler throttler = throttler(0.01f, 500);
+
+        throttler.update(0.1f);
+        throttler.update(0.2f);
+        throttler.update(0.3f);
+        assertEquals(Arrays.asList(0.1f), delivered);
+
+        idleFor(500);
+
+        assertEquals(Arrays.asList(0.1f, 0.3f), delivered);
+    }
+
+    @Test
+    public void update_afterInterval() {
+        ProgressThrottler throttler = throttler(0.01f, 500);
+
+        throttler.update(0.1f);
+        idleFor(500);
+        throttler.update(0.2f);
+
+        assertEquals(Arrays.asList(0.1f, 0.2f), delivered);
+    }
+
+    @Test
+    public void close_flushesPendingUpdate() {
+        ProgressThrottler throttler = throttler(0.01f, 500);
+
+        throttler.update(0.1f);
+        throttler.update(0.2f);
+        throttler.close(true);
+        throttler.update(0.9f);
+        idleFor(500);
+
+        assertEquals(Arrays.asList(0.1f, 0.2f), delivered);
+    }
+
+    @Test
+    public void close_dropsPendingUpdate() {
+        ProgressThrottler throttler = throttler(0.01f, 500);
+
+        throttler.update(0.1f);
+        throttler.update(0.2f);
+        throttler.close(false);
+        idleFor(500);
+
+        assertEquals(Arrays.asList(0.1f), delivered);
+    }
+}
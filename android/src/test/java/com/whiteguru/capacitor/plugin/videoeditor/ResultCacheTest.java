@@ -0,0 +1,159 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.net.Uri;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ResultCacheTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Context context;
+    private File source;
+    private Uri sourceUri;
+
+    @Before
+    public void setUp() throws IOException {
+        context = RuntimeEnvironment.getApplication();
+        source = temporaryFolder.newFile("source.mp4");
+        // Larger than the hashed head and tail, so both are read
+        write(source, 3 * ResultCache.HASH_BYTES, false);
+        assertTrue(source.setLastModified(1_600_000_000_000L));
+        sourceUri = Uri.fromFile(source);
+    }
+
+    private static void write(File file, int bytes, boolean append) throws IOException {
+        byte[] data = new byte[bytes];
+        new Random(bytes).nextBytes(data);
+        try (OutputStream outputStream = new FileOutputStream(file, append)) {
+            outputStream.write(data);
+        }
+    }
+
+    private static TranscodeSettings transcodeSettings() {
+        return new TranscodeSettings(720, 1280, true, 30);
+    }
+
+    private String key(TrimSettings trimSettings, TranscodeSettings transcodeSettings) {
+        return ResultCache.createKey(context, sourceUri, trimSettings, transcodeSettings);
+    }
+
+    @Test
+    public void createKey_isStable() {
+        String key = key(new TrimSettings(1000, 5000), transcodeSettings());
+
+        assertNotNull(key);
+        assertEquals(64, key.length());
+        assertEquals(key, key(new TrimSettings(1000, 5000), transcodeSettings()));
+    }
+
+    @Test
+    public void createKey_changesWithSettings() {
+        String key = key(new TrimSettings(1000, 5000), transcodeSettings());
+
+        assertNotEquals(key, key(new TrimSettings(1000, 6000), transcodeSettings()));
+        TrimSettings accurate = new TrimSettings(1000, 5000);
+        accurate.setAccurate(!accurate.isAccurate());
+        assertNotEquals(key, key(accurate, transcodeSettings()));
+        assertNotEquals(key, key(new TrimSettings(1000, 5000), new TranscodeSettings(480, 854, true, 30)));
+        assertNotEquals(key, key(new TrimSettings(1000, 5000), new TranscodeSettings(720, 1280, true, 24)));
+
+        TranscodeSettings hevc = transcodeSettings();
+        hevc.setCodec(TranscodeSettings.CODEC_HEVC);
+        assertNotEquals(key, key(new TrimSettings(1000, 5000), hevc));
+
+        TranscodeSettings timeLapse = transcodeSettings();
+        timeLapse.setTimeLapse(4);
+        assertNotEquals(key, key(new TrimSettings(1000, 5000), timeLapse));
+
+        TranscodeSettings dropFrames = transcodeSettings();
+        dropFrames.setDropFrames(true);
+        assertNotEquals(key, key(new TrimSettings(1000, 5000), dropFrames));
+    }
+
+    @Test
+    public void createKey_changesWithSourceSize() throws IOException {
+        String key = key(new TrimSettings(), transcodeSettings());
+
+        write(source, 1, true);
+        assertTrue(source.setLastModified(1_600_000_000_000L));
+
+        assertNotEquals(key, key(new TrimSettings(), transcodeSettings()));
+    }
+
+    @Test
+    public void createKey_changesWithSourceModificationTime() {
+        String key = key(new TrimSettings(), transcodeSettings());
+
+        assertTrue(source.setLastModified(1_700_000_000_000L));
+
+        assertNotEquals(key, key(new TrimSettings(), transcodeSettings()));
+    }
+
+    @Test
+    public void createKey_returnsNullForUnknownSource() {
+        Uri missing = Uri.fromFile(new File(temporaryFolder.getRoot(), "missing.mp4"));
+
+        assertNull(ResultCache.createKey(context, missing, new TrimSettings(), transcodeSettings()));
+    }
+
+    @Test
+    public void get_returnsCachedFileAfterRestart() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.newFolder("cache"), OutputStore.DEFAULT_MAX_BYTES);
+        File indexFile = new File(temporaryFolder.getRoot(), "index.json");
+        File output = outputStore.createFile("VID_", ".mp4", null);
+        new ResultCache(indexFile, outputStore).put("key", output);
+
+        ResultCache resultCache = new ResultCache(indexFile, outputStore);
+
+        assertEquals(output.getAbsolutePath(), resultCache.get("key").getAbsolutePath());
+        assertNull(resultCache.get("other"));
+    }
+
+    @Test
+    public void get_dropsEvictedFiles() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.newFolder("cache"), OutputStore.DEFAULT_MAX_BYTES);
+        ResultCache resultCache = new ResultCache(new File(temporaryFolder.getRoot(), "index.json"), outputStore);
+        File output = outputStore.createFile("VID_", ".mp4", null);
+        resultCache.put("key", output);
+
+        assertTrue(output.delete());
+
+        assertNull(resultCache.get("key"));
+    }
+
+    @Test
+    public void put_keepsMaxEntries() throws IOException {
+        OutputStore outputStore = new OutputStore(temporaryFolder.newFolder("cache"), OutputStore.DEFAULT_MAX_BYTES);
+        ResultCache resultCache = new ResultCache(new File(temporaryFolder.getRoot(), "index.json"), outputStore, 2);
+        File first = outputStore.createFile("VID_", ".mp4", null);
+        File second = outputStore.createFile("VID_", ".mp4", null);
+        File third = outputStore.createFile("VID_", ".mp4", null);
+
+        resultCache.put("first", first);
+        resultCache.put("second", second);
+        resultCache.get("first");
+        resultCache.put("third", third);
+
+        assertNotNull(resultCache.get("first"));
+        assertNull(resultCache.get("second"));
+        assertNotNull(resultCache.get("third"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import android.media.MediaFormat;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class SegmentJoinerTest {
+
+    private static MediaFormat videoFormat(int width, int height, int rotation, byte... csd) {
+        MediaFormat format = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, width, height);
+        format.setInteger(MediaFormat.KEY_ROTATION, rotation);
+        format.setByteBuffer("csd-0", ByteBuffer.wrap(csd));
+        return format;
+    }
+
+    private static MediaFormat audioFormat(int sampleRate, int channelCount) {
+        return MediaFormat.createAudioFormat(MediaFormat.MIMETYPE_AUDIO_AAC, sampleRate, channelCount);
+    }
+
+    @Test
+    public void isSameConfiguration_sameVideo() {
+        assertTrue(SegmentJoiner.isSameConfiguration(videoFormat(1280, 720, 0, 1, 2, 3), videoFormat(1280, 720, 0, 1, 2, 3)));
+    }
+
+    @Test
+    public void isSameConfiguration_otherCodec() {
+        MediaFormat hevc = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_HEVC, 1280, 720);
+
+        assertFalse(SegmentJoiner.isSameConfiguration(videoFormat(1280, 720, 0), hevc));
+    }
+
+    @Test
+    public void isSameConfiguration_otherResolution() {
+        assertFalse(SegmentJoiner.isSameConfiguration(videoFormat(1280, 720, 0, 1), videoFormat(1920, 1080, 0, 1)));
+    }
+
+    @Test
+    public void isSameConfiguration_otherRotation() {
+        assertFalse(SegmentJoiner.isSameConfiguration(videoFormat(1280, 720, 0, 1), videoFormat(1280, 720, 90, 1)));
+    }
+
+    @Test
+    public void isSameConfiguration_otherCodecSpecificData() {
+        assertFalse(SegmentJoiner.isSameConfiguration(videoFormat(1280, 720, 0, 1, 2), videoFormat(1280, 720, 0, 1, 3)));
+
+        MediaFormat withoutCsd = MediaFormat.createVideoFormat(MediaFormat.MIMETYPE_VIDEO_AVC, 1280, 720);
+        withoutCsd.setInteger(MediaFormat.KEY_ROTATION, 0);
+        assertFalse(SegmentJoiner.isSameConfiguration(videoFormat(1280, 720, 0, 1), withoutCsd));
+    }
+
+    @Test
+    public void isSameConfiguration_audio() {
+        assertTrue(SegmentJoiner.isSameConfiguration(audioFormat(44100, 2), audioFormat(44100, 2)));
+        assertFalse(SegmentJoiner.isSameConfiguration(audioFormat(44100, 2), audioFormat(48000, 2)));
+        assertFalse(SegmentJoiner.isSameConfiguration(audioFormat(44100, 2), audioFormat(44100, 1)));
+    }
+
+    @Test
+    public void canJoin_nothing() throws IOException {
+        assertFalse(SegmentJoiner.canJoin(new ArrayList<>()));
+    }
+}
@@ -0,0 +1,125 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.net.Uri;
+import androidx.annotation.NonNull;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowMediaMetadataRetriever;
+import org.robolectric.shadows.util.DataSource;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class ThumbnailQueueTest {
+
+    private static final long TIMEOUT_S = 5;
+
+    private final Context context = RuntimeEnvironment.getApplication();
+    private final ThumbnailSettings thumbnailSettings = new ThumbnailSettings(320, 180, false, false, 0);
+    private final ThumbnailQueue thumbnailQueue = new ThumbnailQueue(new BitmapPool(), 1);
+
+    @After
+    public void tearDown() {
+        thumbnailQueue.shutdown();
+    }
+
+    /**
+     * Returns a source that fails to open, each decode fails with an exception of its own
+     */
+    private Uri failingSource(String name) {
+        Uri uri = Uri.parse("file:///" + name);
+        ShadowMediaMetadataRetriever.addException(DataSource.toDataSource(context, uri), new IllegalArgumentException("Not a video"));
+        return uri;
+    }
+
+    private File outFile(String name) {
+        return new File(context.getCacheDir(), name);
+    }
+
+    @Test
+    public void submit_sharesDecodeOfSameFrame() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Map<File, Exception> errors = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(3);
+
+        // Holds the only worker thread from its callback
+        thumbnailQueue.submit(
+            context,
+            failingSource("blocker.mp4"),
+            outFile("blocker.jpg"),
+            0,
+            thumbnailSettings,
+            new ThumbnailQueue.Callback() {
+                @Override
+                public void onCompleted(@NonNull File outFile) {}
+
+                @Override
+                public void onError(@NonNull Exception cause) {
+                    blocked.countDown();
+                    try {
+                        release.await(TIMEOUT_S, TimeUnit.SECONDS);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        );
+        assertTrue(blocked.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+        Uri source = failingSource("source.mp4");
+        for (String name : new String[] { "a.jpg", "b.jpg" }) {
+            File outFile = outFile(name);
+            thumbnailQueue.submit(context, source, outFile, 1000, thumbnailSettings, callback(errors, done, outFile));
+        }
+        File otherFrame = outFile("c.jpg");
+        thumbnailQueue.submit(context, source, otherFrame, 2000, thumbnailSettings, callback(errors, done, otherFrame));
+
+        release.countDown();
+        assertTrue(done.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+        assertSame(errors.get(outFile("a.jpg")), errors.get(outFile("b.jpg")));
+        assertNotSame(errors.get(outFile("a.jpg")), errors.get(otherFrame));
+        assertTrue(errors.get(otherFrame) instanceof IOException);
+    }
+
+    @Test
+    public void submit_afterShutdown() {
+        Map<File, Exception> errors = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(1);
+        File outFile = outFile("a.jpg");
+
+        thumbnailQueue.shutdown();
+        thumbnailQueue.submit(context, failingSource("source.mp4"), outFile, 0, thumbnailSettings, callback(errors, done, outFile));
+
+        assertEquals(0, done.getCount());
+        assertTrue(errors.get(outFile) instanceof IOException);
+    }
+
+    private static ThumbnailQueue.Callback callback(Map<File, Exception> errors, CountDownLatch done, File outFile) {
+        return new ThumbnailQueue.Callback() {
+            @Override
+            public void onCompleted(@NonNull File completedFile) {
+                fail("Thumbnail must not be extracted");
+            }
+
+            @Override
+            public void onError(@NonNull Exception cause) {
+                errors.put(outFile, cause);
+                done.countDown();
+            }
+        };
+    }
+}
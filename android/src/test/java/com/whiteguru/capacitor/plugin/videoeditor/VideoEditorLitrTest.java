@@ -0,0 +1,92 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import android.media.MediaFormat;
+import android.net.Uri;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.MediaTrackFormat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.SourceMedia;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoSize;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.VideoTrackFormat;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class VideoEditorLitrTest {
+
+    private static final long DURATION_US = 10_000_000L;
+
+    private static SourceMedia sourceMedia(String mimeType) {
+        VideoTrackFormat videoTrack = new VideoTrackFormat(0, mimeType);
+        videoTrack.width = 1280;
+        videoTrack.height = 720;
+        videoTrack.frameRate = 30;
+
+        List<MediaTrackFormat> tracks = new ArrayList<>();
+        tracks.add(videoTrack);
+        return new SourceMedia(Uri.parse("file:///source.mp4"), 10_000_000L, DURATION_US / 1000f, tracks);
+    }
+
+    private static boolean canRemux(SourceMedia sourceMedia, TranscodeSettings transcodeSettings) {
+        return VideoEditorLitr.canRemux(
+            sourceMedia,
+            new VideoSize(1280, 720),
+            transcodeSettings,
+            TranscodeSettings.AUDIO_COPY,
+            0,
+            DURATION_US
+        );
+    }
+
+    private static TranscodeSettings transcodeSettings() {
+        return new TranscodeSettings(720, 1280, false, 30);
+    }
+
+    @Test
+    public void canRemux_sourceFittingDefaults() {
+        assertTrue(canRemux(sourceMedia(MediaFormat.MIMETYPE_VIDEO_AVC), transcodeSettings()));
+        assertTrue(canRemux(sourceMedia(MediaFormat.MIMETYPE_VIDEO_HEVC), transcodeSettings()));
+    }
+
+    @Test
+    public void canRemux_sameCodec() {
+        TranscodeSettings hevc = transcodeSettings();
+        hevc.setCodec(TranscodeSettings.CODEC_HEVC);
+
+        assertTrue(canRemux(sourceMedia(MediaFormat.MIMETYPE_VIDEO_HEVC), hevc));
+    }
+
+    @Test
+    public void canRemux_otherCodec() {
+        TranscodeSettings hevc = transcodeSettings();
+        hevc.setCodec(TranscodeSettings.CODEC_HEVC);
+        TranscodeSettings avc = transcodeSettings();
+        avc.setCodec(TranscodeSettings.CODEC_AVC);
+
+        assertFalse(canRemux(sourceMedia(MediaFormat.MIMETYPE_VIDEO_AVC), hevc));
+        assertFalse(canRemux(sourceMedia(MediaFormat.MIMETYPE_VIDEO_HEVC), avc));
+    }
+
+    @Test
+    public void canRemux_encoderOptions() {
+        SourceMedia sourceMedia = sourceMedia(MediaFormat.MIMETYPE_VIDEO_AVC);
+
+        TranscodeSettings bitrateMode = transcodeSettings();
+        bitrateMode.setBitrateMode(TranscodeSettings.BITRATE_MODE_CBR);
+        assertFalse(canRemux(sourceMedia, bitrateMode));
+
+        // Explicit values count even when equal to the defaults
+        TranscodeSettings keyFrameInterval = transcodeSettings();
+        keyFrameInterval.setKeyFrameInterval(5);
+        assertFalse(canRemux(sourceMedia, keyFrameInterval));
+
+        TranscodeSettings quality = transcodeSettings();
+        quality.setQuality(TranscodeSettings.QUALITY_MEDIUM);
+        assertFalse(canRemux(sourceMedia, quality));
+    }
+}
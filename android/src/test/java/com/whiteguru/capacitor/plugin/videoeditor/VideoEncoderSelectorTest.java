@@ -0,0 +1,166 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecInfo.CodecProfileLevel;
+import android.media.MediaFormat;
+import com.whiteguru.capacitor.plugin.videoeditor.dto.EncoderSelection;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.MediaCodecInfoBuilder;
+import org.robolectric.shadows.ShadowMediaCodecList;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class VideoEncoderSelectorTest {
+
+    private static CodecProfileLevel profileLevel(int profile, int level) {
+        CodecProfileLevel profileLevel = new CodecProfileLevel();
+        profileLevel.profile = profile;
+        profileLevel.level = level;
+        return profileLevel;
+    }
+
+    private static void addEncoder(String name, String mimeType, boolean hardware, CodecProfileLevel... profileLevels) {
+        MediaFormat format = new MediaFormat();
+        format.setString(MediaFormat.KEY_MIME, mimeType);
+        format.setInteger(MediaFormat.KEY_WIDTH, 1920);
+        format.setInteger(MediaFormat.KEY_HEIGHT, 1080);
+
+        MediaCodecInfo.CodecCapabilities capabilities = MediaCodecInfoBuilder.CodecCapabilitiesBuilder.newBuilder()
+            .setMediaFormat(format)
+            .setIsEncoder(true)
+            .setProfileLevels(profileLevels)
+            .setColorFormats(new int[] { MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface })
+            .build();
+
+        ShadowMediaCodecList.addCodec(
+            MediaCodecInfoBuilder.newBuilder()
+                .setName(name)
+                .setIsEncoder(true)
+                .setIsHardwareAccelerated(hardware)
+                .setIsSoftwareOnly(!hardware)
+                .setIsVendor(hardware)
+                .setCapabilities(capabilities)
+                .build()
+        );
+    }
+
+    private static EncoderSelection selection(String mimeType, CodecProfileLevel... profileLevels) {
+        EncoderSelection selection = new EncoderSelection();
+        selection.mimeType = mimeType;
+        selection.profileLevels = profileLevels;
+        return selection;
+    }
+
+    @Test
+    public void select_fallsBackToAvcWithoutHardwareHevc() {
+        addEncoder(
+            "c2.android.hevc.encoder",
+            MediaFormat.MIMETYPE_VIDEO_HEVC,
+            false,
+            profileLevel(CodecProfileLevel.HEVCProfileMain, CodecProfileLevel.HEVCMainTierLevel41)
+        );
+        addEncoder(
+            "c2.vendor.avc.encoder",
+            MediaFormat.MIMETYPE_VIDEO_AVC,
+            true,
+            profileLevel(CodecProfileLevel.AVCProfileHigh, CodecProfileLevel.AVCLevel41)
+        );
+
+        EncoderSelection selection = VideoEncoderSelector.select(TranscodeSettings.CODEC_HEVC, null, 1280, 720, 30);
+
+        assertEquals(MediaFormat.MIMETYPE_VIDEO_AVC, selection.mimeType);
+        assertEquals("c2.vendor.avc.encoder", selection.codecName);
+        assertTrue(selection.hardware);
+    }
+
+    @Test
+    public void select_withoutEncodersLeavesTheFrameworkDefault() {
+        EncoderSelection selection = VideoEncoderSelector.select(TranscodeSettings.CODEC_HEVC, null, 1280, 720, 30);
+
+        assertEquals(MediaFormat.MIMETYPE_VIDEO_AVC, selection.mimeType);
+        assertNull(selection.codecName);
+        assertEquals(-1, selection.profile);
+    }
+
+    @Test
+    public void getLowestLevel() {
+        assertEquals(
+            CodecProfileLevel.AVCLevel31,
+            VideoEncoderSelector.getLowestLevel(MediaFormat.MIMETYPE_VIDEO_AVC, CodecProfileLevel.AVCProfileHigh, 1280, 720, 30, 4_000_000)
+        );
+        assertEquals(
+            CodecProfileLevel.AVCLevel4,
+            VideoEncoderSelector.getLowestLevel(MediaFormat.MIMETYPE_VIDEO_AVC, CodecProfileLevel.AVCProfileMain, 1920, 1080, 30, 8_000_000)
+        );
+        assertEquals(
+            CodecProfileLevel.HEVCMainTierLevel4,
+            VideoEncoderSelector.getLowestLevel(MediaFormat.MIMETYPE_VIDEO_HEVC, CodecProfileLevel.HEVCProfileMain, 1920, 1080, 30, 5_000_000)
+        );
+    }
+
+    @Test
+    public void getLowestLevel_raisedByBitrate() {
+        assertEquals(
+            CodecProfileLevel.AVCLevel32,
+            VideoEncoderSelector.getLowestLevel(MediaFormat.MIMETYPE_VIDEO_AVC, CodecProfileLevel.AVCProfileMain, 1280, 720, 30, 16_000_000)
+        );
+    }
+
+    @Test
+    public void getLowestLevel_noneFits() {
+        assertEquals(
+            0,
+            VideoEncoderSelector.getLowestLevel(MediaFormat.MIMETYPE_VIDEO_AVC, CodecProfileLevel.AVCProfileHigh, 8192, 8192, 30, 4_000_000)
+        );
+    }
+
+    @Test
+    public void selectProfileLevel_fallsBackToProfileWithFittingLevel() {
+        EncoderSelection selection = selection(
+            MediaFormat.MIMETYPE_VIDEO_AVC,
+            profileLevel(CodecProfileLevel.AVCProfileHigh, CodecProfileLevel.AVCLevel31),
+            profileLevel(CodecProfileLevel.AVCProfileMain, CodecProfileLevel.AVCLevel41)
+        );
+
+        VideoEncoderSelector.selectProfileLevel(selection, 1920, 1080, 30, 8_000_000);
+
+        assertEquals(CodecProfileLevel.AVCProfileMain, selection.profile);
+        assertEquals(CodecProfileLevel.AVCLevel4, selection.level);
+    }
+
+    @Test
+    public void selectProfileLevel_keepsEncoderDefaultsWhenNoProfileFits() {
+        EncoderSelection selection = selection(
+            MediaFormat.MIMETYPE_VIDEO_AVC,
+            profileLevel(CodecProfileLevel.AVCProfileHigh, CodecProfileLevel.AVCLevel31)
+        );
+
+        VideoEncoderSelector.selectProfileLevel(selection, 1920, 1080, 30, 8_000_000);
+
+        assertEquals(-1, selection.profile);
+        assertEquals(-1, selection.level);
+    }
+
+    @Test
+    public void apply_setsLowestFittingLevel() {
+        EncoderSelection selection = selection(
+            MediaFormat.MIMETYPE_VIDEO_AVC,
+            profileLevel(CodecProfileLevel.AVCProfileHigh, CodecProfileLevel.AVCLevel52)
+        );
+        MediaFormat format = new MediaFormat();
+        format.setInteger(MediaFormat.KEY_WIDTH, 1280);
+        format.setInteger(MediaFormat.KEY_HEIGHT, 720);
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, 30);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, 4_000_000);
+
+        VideoEncoderSelector.apply(selection, format);
+
+        assertEquals(CodecProfileLevel.AVCProfileHigh, format.getInteger(MediaFormat.KEY_PROFILE));
+        assertEquals(CodecProfileLevel.AVCLevel31, format.getInteger(MediaFormat.KEY_LEVEL));
+    }
+}
@@ -0,0 +1,69 @@
+package com.whiteguru.capacitor.plugin.videoeditor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class VideoRemuxerTest {
+
+    /**
+     * Returns the times of the samples copied from one track, given in decode order
+     */
+    private static List<Long> copied(long cutStartUs, long endUs, long... sampleTimesUs) {
+        List<Long> copied = new ArrayList<>();
+        boolean finished = false;
+        for (long sampleTimeUs : sampleTimesUs) {
+            int selection = VideoRemuxer.selectSample(sampleTimeUs, cutStartUs, endUs, finished);
+            if (selection == VideoRemuxer.SAMPLE_END) {
+                finished = true;
+            } else if (selection == VideoRemuxer.SAMPLE_COPY) {
+                copied.add(sampleTimeUs);
+            }
+        }
+        return copied;
+    }
+
+    private static List<Long> times(long... timesUs) {
+        List<Long> times = new ArrayList<>();
+        for (long timeUs : timesUs) {
+            times.add(timeUs);
+        }
+        return times;
+    }
+
+    @Test
+    public void selectSample() {
+        assertEquals(VideoRemuxer.SAMPLE_SKIP, VideoRemuxer.selectSample(900, 1000, 5000, false));
+        assertEquals(VideoRemuxer.SAMPLE_COPY, VideoRemuxer.selectSample(1000, 1000, 5000, false));
+        assertEquals(VideoRemuxer.SAMPLE_COPY, VideoRemuxer.selectSample(4999, 1000, 5000, false));
+        assertEquals(VideoRemuxer.SAMPLE_END, VideoRemuxer.selectSample(5000, 1000, 5000, false));
+    }
+
+    @Test
+    public void selectSample_finishedTrack() {
+        assertEquals(VideoRemuxer.SAMPLE_END, VideoRemuxer.selectSample(2000, 1000, 5000, true));
+    }
+
+    @Test
+    public void selectSample_stopsAtEnd() {
+        assertEquals(times(0, 100, 200), copied(0, 300, 0, 100, 200, 300, 400, 500));
+    }
+
+    @Test
+    public void selectSample_dropsReorderedFramesAfterEnd() {
+        // I0 P3 B1 B2 P6 B4 B5 at 100us per frame, cut at 450us: B4 presents before the end but depends on P6
+        assertEquals(times(0, 300, 100, 200), copied(0, 450, 0, 300, 100, 200, 600, 400, 500));
+    }
+
+    @Test
+    public void selectSample_skipsSamplesBeforeCutStart() {
+        assertEquals(times(1000, 1100), copied(1000, 1200, 900, 1000, 1100, 1200));
+    }
+
+    @Test
+    public void selectSample_untilEndOfMedia() {
+        assertEquals(times(0, 100), copied(0, Long.MAX_VALUE, 0, 100));
+    }
+}
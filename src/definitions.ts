@@ -1,18 +1,165 @@
 import type { PluginListenerHandle } from '@capacitor/core';
 
 export interface VideoEditorPlugin {
-  edit(options: EditOptions): Promise<MediaFileResult>;
+  edit(options: EditOptions): Promise<EditResult>;
+  /**
+   * Join several clips into one video. Clips with the same codec, resolution and audio format are copied
+   * without transcoding, the other ones are transcoded to match the first clip.
+   *
+   * Only available on Android.
+   */
+  concat(options: ConcatOptions): Promise<EditResult>;
   thumbnail(options: ThumbnailOptions): Promise<MediaFileResult>;
+  /**
+   * Extract several thumbnails of the same video in one call.
+   * Each thumbnail is also emitted with `thumbnailReady` as soon as it is written.
+   *
+   * Only available on Android.
+   */
+  thumbnails(options: ThumbnailsOptions): Promise<ThumbnailsResult>;
+  /**
+   * Get the queue state of a pending edit.
+   *
+   * Only available on Android.
+   */
+  getJob(options: JobOptions): Promise<JobInfo>;
+  /**
+   * Cancel a queued or running edit. The pending `edit` call is rejected and its partial output is deleted.
+   *
+   * Only available on Android.
+   */
+  cancel(options: JobOptions): Promise<void>;
+  /**
+   * Delete a file returned by the plugin from its cache.
+   *
+   * Only available on Android.
+   */
+  release(options: ReleaseOptions): Promise<void>;
+  /**
+   * Delete every file returned by the plugin from its cache. Files in a caller supplied `outputDir` are kept.
+   *
+   * Only available on Android.
+   */
+  clearCache(): Promise<ClearCacheResult>;
+  /**
+   * Get the resumable edits started by previous runs of the app. Running ones are resumed if they were interrupted,
+   * finished ones are returned once and then forgotten.
+   *
+   * Only available on Android.
+   */
+  getResumableJobs(): Promise<ResumableJobsResult>;
+  /**
+   * Get the duration, size and track formats of a video without decoding it, reading only its container.
+   *
+   * Only available on Android.
+   */
+  getInfo(options: InfoOptions): Promise<MediaInfo>;
   addListener(
     eventName: 'transcodeProgress',
     listenerFunc: (info: ProgressInfo) => void,
   ): Promise<PluginListenerHandle> & PluginListenerHandle;
+  /**
+   * Emitted for each thumbnail extracted by `thumbnails`.
+   *
+   * Only available on Android.
+   */
+  addListener(
+    eventName: 'thumbnailReady',
+    listenerFunc: (info: ThumbnailInfo) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+  /**
+   * Emitted when an edit is accepted, with the id of its job to be used with `getJob` and `cancel`.
+   *
+   * Only available on Android.
+   */
+  addListener(
+    eventName: 'editQueued',
+    listenerFunc: (info: JobInfo) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+  /**
+   * Emitted when an edit with `metrics` completes, with the same metrics returned in its result.
+   *
+   * Only available on Android.
+   */
+  addListener(
+    eventName: 'editMetrics',
+    listenerFunc: (info: EditMetricsInfo) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
+  /**
+   * Emitted for each segment of an edit with `segmentDuration`, once its file is complete.
+   *
+   * Only available on Android.
+   */
+  addListener(
+    eventName: 'segmentReady',
+    listenerFunc: (info: SegmentInfo) => void,
+  ): Promise<PluginListenerHandle> & PluginListenerHandle;
 }
 
 export interface EditOptions {
+  /**
+   * Source file path or uri. On Android `content://` uris, like the ones returned by the gallery picker,
+   * are read in place without copying them.
+   */
   path: string;
   trim?: TrimOptions;
   transcode?: TranscodeOptions;
+  /**
+   * Renditions encoded from a single decode of the source, replaces `transcode`.
+   * Audio is copied or removed, `transcode` audio is not supported. Only available on Android.
+   */
+  outputs?: TranscodeOptions[];
+  /**
+   * Split the output in MP4 segments of about this duration in milliseconds, emitting `segmentReady` for each one.
+   * Segments start at source keyframes, so they may be longer. Cannot be used with `outputs`. Only available on Android.
+   */
+  segmentDuration?: number;
+  /**
+   * Transcode parts of long sources at the same time with several encoder instances and join them, default `false`.
+   * Cannot be used with `outputs` or `segmentDuration`. Only available on Android.
+   */
+  parallel?: boolean;
+  /**
+   * Return the output of a previous edit of the same source with the same settings, if it is still in the cache,
+   * instead of transcoding again. Ignored with `outputs`, `segmentDuration` or `outputDir`. Default `false`.
+   * Only available on Android.
+   */
+  cache?: boolean;
+  /**
+   * Collect performance metrics into the result and the `editMetrics` event. The output is read once more when
+   * the edit completes. Ignored with `outputs` or `segmentDuration`. Default `false`. Only available on Android.
+   */
+  metrics?: boolean;
+  /**
+   * Run the edit in a background worker that survives the app process, resuming from the last completed part
+   * if it is interrupted. Use `getResumableJobs` to get edits that finished after a restart.
+   * Cannot be used with `outputs`, `segmentDuration` or `parallel`. Default `false`. Only available on Android.
+   */
+  resumable?: boolean;
+  /**
+   * Directory to write the output to, instead of the plugin cache. Files written there are not evicted nor
+   * deleted by `clearCache`. Only available on Android.
+   */
+  outputDir?: string;
+  /**
+   * Edits with a higher priority start first when the queue is full, default `0`
+   */
+  priority?: number;
+  /**
+   * Throttling of `transcodeProgress` events. Only available on Android.
+   */
+  progress?: ProgressOptions;
+}
+
+export interface ProgressOptions {
+  /**
+   * Minimum progress change between two events, from 0 to 1, default `0.01`
+   */
+  minDelta?: number;
+  /**
+   * Minimum time between two events in milliseconds, default `250`
+   */
+  minInterval?: number;
 }
 
 export interface TrimOptions {
@@ -24,6 +171,12 @@ export interface TrimOptions {
    * EndsAt in milliseconds
    */
   endsAt?: number;
+  /**
+   * Keep the exact `startsAt`. When the source already fits the transcode settings it is only copied without
+   * re-encoding if `startsAt` is a keyframe. Set to `false` to allow moving `startsAt` back to the previous
+   * keyframe, so such sources are always trimmed without re-encoding. Default `true`
+   */
+  accurate?: boolean;
 }
 
 export interface TranscodeOptions {
@@ -37,6 +190,74 @@ export interface TranscodeOptions {
    * Frames per second, default `30`
    */
   fps?: number;
+  /**
+   * Preferred video codec, default `avc`. `hevc` is only used when the device has a hardware HEVC encoder,
+   * otherwise AVC is used. When set, sources in another codec are always encoded. Only available on Android.
+   */
+  codec?: 'avc' | 'hevc';
+  /**
+   * Preferred bitrate mode, default is the encoder default. Falls back to `vbr` or `cbr` when not supported
+   * by the encoder. When set, the video is always encoded. Only available on Android.
+   */
+  bitrateMode?: 'vbr' | 'cbr' | 'cq';
+  /**
+   * Seconds between keyframes, default `5`. When set, the video is always encoded. Only available on Android.
+   */
+  keyFrameInterval?: number;
+  /**
+   * Quality tier, the bitrate is planned from it and from the motion of the source. Default `medium`.
+   * When set, the video is always encoded. Only available on Android.
+   */
+  quality?: 'low' | 'medium' | 'high';
+  /**
+   * Target output size in bytes, the video bitrate is planned to fit it and `quality` is ignored.
+   * Only available on Android.
+   */
+  targetSize?: number;
+  /**
+   * `copy` keeps the source audio samples, falling back to `transcode` when they can not be copied.
+   * `transcode` re-encodes audio as AAC, `remove` drops it. Default `copy`. Only available on Android.
+   */
+  audio?: 'copy' | 'transcode' | 'remove';
+  /**
+   * Speed up factor, `4` plays 4 seconds of source in one second of output. Frames above `fps` are dropped
+   * and audio is removed when greater than `1`. Default `1`. Only available on Android.
+   */
+  timeLapse?: number;
+  /**
+   * Drop source frames above `fps` before encoding, instead of encoding every frame. Saves encoder work on
+   * high frame rate sources, but audio can only be copied or removed. Default `false`. Only available on Android.
+   */
+  dropFrames?: boolean;
+  /**
+   * How fast the encoder is asked to run. `max` uses the highest rate the encoder supports, `balanced` a mid rate
+   * and `background` leaves the encoder at its default clocks. Lowered while the device is hot. Default `balanced`.
+   * Only available on Android.
+   */
+  speed?: 'max' | 'balanced' | 'background';
+}
+
+export interface ConcatOptions {
+  /**
+   * Source file paths or uris, joined in this order
+   */
+  paths: string[];
+  /**
+   * Transcode every clip with these settings, by default clips keep the format of the first one when possible
+   */
+  transcode?: TranscodeOptions;
+  /**
+   * Directory to write the output to, instead of the plugin cache
+   */
+  outputDir?: string;
+  /**
+   * Edits with a higher priority start first when the queue is full, default `0`
+   */
+  priority?: number;
+  /**
+   * Throttling of `transcodeProgress` events
+   */
+  progress?: ProgressOptions;
 }
 
 export interface ThumbnailOptions {
@@ -47,12 +268,385 @@ export interface ThumbnailOptions {
   at?: number;
   width?: number;
   height?: number;
+  /**
+   * `sync` returns the closest keyframe, which is faster, `exact` decodes the frame at `at`. Default `sync`
+   */
+  precision?: 'sync' | 'exact';
+  /**
+   * Decode frames as RGB_565 instead of ARGB_8888, using half the memory. Default `false`
+   */
+  rgb565?: boolean;
+  /**
+   * Max memory in bytes for decoded frames, frames are shrunk to fit. Default no limit
+   */
+  maxMemory?: number;
+  /**
+   * Directory to write the output to, instead of the plugin cache. Files written there are not evicted nor
+   * deleted by `clearCache`. Only available on Android.
+   */
+  outputDir?: string;
+}
+
+export interface ThumbnailsOptions {
+  path: string;
+  /**
+   * The time positions where the frames will be retrieved in milliseconds.
+   */
+  times?: number[];
+  /**
+   * Number of frames evenly spread over the video, used when `times` is not set.
+   */
+  count?: number;
+  width?: number;
+  height?: number;
+  /**
+   * `sync` returns the closest keyframes, which is faster, `exact` decodes the frames at `times`. Default `sync`
+   */
+  precision?: 'sync' | 'exact';
+  /**
+   * Decode frames as RGB_565 instead of ARGB_8888, using half the memory. Default `false`
+   */
+  rgb565?: boolean;
+  /**
+   * Max memory in bytes for decoded frames, frames are shrunk to fit. With `sprite` it also covers the sheet.
+   * Default no limit
+   */
+  maxMemory?: number;
+  /**
+   * Directory to write the output to, instead of the plugin cache. Files written there are not evicted nor
+   * deleted by `clearCache`. Only available on Android.
+   */
+  outputDir?: string;
+  /**
+   * Pack all the thumbnails into a single image instead of one file per thumbnail.
+   * No `thumbnailReady` event is emitted in this mode.
+   */
+  sprite?: SpriteOptions;
+}
+
+export interface SpriteOptions {
+  /**
+   * Tiles per row, default is the square root of the number of thumbnails
+   */
+  columns?: number;
+  /**
+   * Image format, default `jpeg`
+   */
+  format?: 'jpeg' | 'webp';
+  /**
+   * Compression quality from 0 to 100, default `80`
+   */
+  quality?: number;
+}
+
+export interface SpriteSheet {
+  file: MediaFile;
+  columns: number;
+  rows: number;
+  tileWidth: number;
+  tileHeight: number;
+  /**
+   * Position of each thumbnail in the image, in the order of the requested times
+   */
+  tiles: SpriteTile[];
+}
+
+export interface SpriteTile {
+  /**
+   * Index of the thumbnail in the requested times
+   */
+  index: number;
+  /**
+   * The time position of the frame in milliseconds.
+   */
+  at: number;
+  /**
+   * Left offset of the tile in pixels
+   */
+  x: number;
+  /**
+   * Top offset of the tile in pixels
+   */
+  y: number;
+}
+
+export interface ThumbnailInfo {
+  /**
+   * Index of the thumbnail in the requested times
+   */
+  index: number;
+  /**
+   * The time position of the frame in milliseconds.
+   */
+  at: number;
+  file: MediaFile;
+}
+
+export interface ThumbnailsResult {
+  /**
+   * Thumbnails in the order of the requested times, when `sprite` is not set
+   */
+  thumbnails?: ThumbnailInfo[];
+  /**
+   * Sprite sheet, when `sprite` is set
+   */
+  sprite?: SpriteSheet;
 }
 
 export interface MediaFileResult {
   file: MediaFile;
 }
 
+export interface EditResult extends MediaFileResult {
+  /**
+   * Id of the edit job. Only available on Android.
+   */
+  jobId?: string;
+  /**
+   * One file per entry of `outputs` or per segment, `file` is the first one. Only available on Android.
+   */
+  files?: MediaFile[];
+  /**
+   * `true` if the output of a previous edit was returned. Only available on Android.
+   */
+  cached?: boolean;
+  /**
+   * Encoder used for the video track, not set when the source was copied without transcoding.
+   * Only available on Android.
+   */
+  encoder?: EncoderInfo;
+  /**
+   * Audio handling applied, `transcode` when `copy` was requested but not possible. Only available on Android.
+   */
+  audio?: 'copy' | 'transcode' | 'remove';
+  /**
+   * Performance metrics of the edit, if requested with `metrics`. Only available on Android.
+   */
+  metrics?: EditMetrics;
+}
+
+export interface EditMetrics {
+  /**
+   * `true` if samples were copied without transcoding
+   */
+  passthrough: boolean;
+  /**
+   * Milliseconds waiting for a free slot
+   */
+  queueTime: number;
+  /**
+   * Milliseconds reading the source media
+   */
+  probeTime: number;
+  /**
+   * Milliseconds from start to completion
+   */
+  wallTime: number;
+  inputBytes?: number;
+  /**
+   * Bits per second
+   */
+  inputBitrate?: number;
+  outputBytes: number;
+  /**
+   * Bits per second
+   */
+  outputBitrate?: number;
+  encodedFrames: number;
+  /**
+   * Video frames processed per second of wall time
+   */
+  fps: number;
+  tracks: TrackMetrics[];
+}
+
+export interface TrackMetrics {
+  mimeType: string;
+  /**
+   * Decoder name, not set if the track was copied
+   */
+  decoder?: string;
+  decoderHardware?: boolean;
+  /**
+   * Encoder name, not set if the track was copied
+   */
+  encoder?: string;
+  encoderHardware?: boolean;
+  /**
+   * Milliseconds spent by the transcoder on the track
+   */
+  processingTime?: number;
+  /**
+   * Samples written to the output
+   */
+  samples: number;
+  /**
+   * Only available on Android 9+
+   */
+  bytes?: number;
+  /**
+   * Bits per second, only available on Android 9+
+   */
+  bitrate?: number;
+}
+
+export interface EditMetricsInfo {
+  jobId: string;
+  metrics: EditMetrics;
+}
+
+export interface SegmentInfo {
+  jobId: string;
+  index: number;
+  file: MediaFile;
+  /**
+   * Segment start in the source, in milliseconds
+   */
+  startsAt: number;
+  /**
+   * Segment end in the source, in milliseconds
+   */
+  endsAt: number;
+}
+
+export interface EncoderInfo {
+  mimeType: string;
+  /**
+   * Codec name, not set when no encoder reported support for the target size
+   */
+  name?: string;
+  hardware: boolean;
+  /**
+   * MediaCodecInfo.CodecProfileLevel profile, not set when the encoder default is used
+   */
+  profile?: number;
+  /**
+   * MediaCodecInfo.CodecProfileLevel level, not set when the encoder default is used
+   */
+  level?: number;
+  /**
+   * Not set when the encoder default is used
+   */
+  bitrateMode?: 'vbr' | 'cbr' | 'cq';
+}
+
+export interface JobOptions {
+  jobId: string;
+}
+
+export interface ReleaseOptions {
+  /**
+   * Path of a file returned by the plugin
+   */
+  path: string;
+}
+
+export interface ClearCacheResult {
+  /**
+   * Bytes freed
+   */
+  bytes: number;
+}
+
+export interface ResumableJobsResult {
+  jobs: ResumableJobInfo[];
+}
+
+export interface ResumableJobInfo {
+  jobId: string;
+  state: 'running' | 'completed' | 'failed';
+  /**
+   * Completed part of the edit, from 0 to 1
+   */
+  progress: number;
+  /**
+   * Output file, when completed
+   */
+  file?: MediaFile;
+  /**
+   * Error message, when failed
+   */
+  error?: string;
+}
+
+export interface InfoOptions {
+  /**
+   * Source file path or uri, `content://` uris are read in place
+   */
+  path: string;
+}
+
+export interface MediaInfo {
+  /**
+   * Duration in milliseconds
+   */
+  duration: number;
+  /**
+   * File size in bytes, `-1` if unknown
+   */
+  size: number;
+  videoTracks: VideoTrackInfo[];
+  audioTracks: AudioTrackInfo[];
+}
+
+export interface VideoTrackInfo {
+  /**
+   * Mime type, like `video/avc` or `video/hevc`
+   */
+  codec: string;
+  width: number;
+  height: number;
+  /**
+   * Rotation to apply when displaying, in degrees
+   */
+  rotation: number;
+  /**
+   * Frames per second, `-1` if unknown
+   */
+  frameRate: number;
+  /**
+   * Bits per second, `-1` if unknown
+   */
+  bitrate: number;
+  /**
+   * Average seconds between keyframes at the start of the track, `-1` if it has a single keyframe
+   */
+  keyFrameInterval: number;
+  /**
+   * Duration in milliseconds
+   */
+  duration: number;
+}
+
+export interface AudioTrackInfo {
+  /**
+   * Mime type, like `audio/mp4a-latm`
+   */
+  codec: string;
+  channelCount: number;
+  /**
+   * Samples per second
+   */
+  sampleRate: number;
+  /**
+   * Bits per second, `-1` if unknown
+   */
+  bitrate: number;
+  /**
+   * Duration in milliseconds
+   */
+  duration: number;
+}
+
+export interface JobInfo {
+  jobId: string;
+  state: 'queued' | 'running';
+  /**
+   * `0` when running, position in the queue otherwise, starting at `1`
+   */
+  position: number;
+}
+
 export interface MediaFile {
   /**
    * The name of the file, without path information.
@@ -75,4 +669,20 @@ export interface MediaFile {
 
 export interface ProgressInfo {
   progress: number;
+  /**
+   * Id of the edit job. Only available on Android.
+   */
+  jobId?: string;
+  /**
+   * Milliseconds since the edit started. Only available on Android.
+   */
+  elapsed?: number;
+  /**
+   * Estimated video frames processed. Only available on Android.
+   */
+  frames?: number;
+  /**
+   * Estimated milliseconds left. Only available on Android.
+   */
+  eta?: number;
 }
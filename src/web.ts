@@ -1,24 +1,96 @@
 import { WebPlugin } from '@capacitor/core';
 import type { PluginListenerHandle } from '@capacitor/core/types/definitions';
 
-import type { EditOptions, MediaFileResult, ProgressInfo, ThumbnailOptions, VideoEditorPlugin } from './definitions';
+import type {
+  ClearCacheResult,
+  ConcatOptions,
+  EditMetricsInfo,
+  EditOptions,
+  EditResult,
+  InfoOptions,
+  JobInfo,
+  JobOptions,
+  MediaFileResult,
+  MediaInfo,
+  ProgressInfo,
+  ReleaseOptions,
+  ResumableJobsResult,
+  SegmentInfo,
+  ThumbnailInfo,
+  ThumbnailOptions,
+  ThumbnailsOptions,
+  ThumbnailsResult,
+  VideoEditorPlugin,
+} from './definitions';
 
 export class VideoEditorWeb extends WebPlugin implements VideoEditorPlugin {
-  edit(options: EditOptions): Promise<MediaFileResult> {
+  edit(options: EditOptions): Promise<EditResult> {
     console.log('edit', options);
 
     throw this.unimplemented('Not implemented on web.');
   }
 
+  concat(options: ConcatOptions): Promise<EditResult> {
+    console.log('concat', options);
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
   thumbnail(options: ThumbnailOptions): Promise<MediaFileResult> {
     console.log('thumbnail', options);
 
     throw this.unimplemented('Not implemented on web.');
   }
 
+  thumbnails(options: ThumbnailsOptions): Promise<ThumbnailsResult> {
+    console.log('thumbnails', options);
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  getJob(options: JobOptions): Promise<JobInfo> {
+    console.log('getJob', options);
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  cancel(options: JobOptions): Promise<void> {
+    console.log('cancel', options);
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  release(options: ReleaseOptions): Promise<void> {
+    console.log('release', options);
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  clearCache(): Promise<ClearCacheResult> {
+    console.log('clearCache');
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  getResumableJobs(): Promise<ResumableJobsResult> {
+    console.log('getResumableJobs');
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
+  getInfo(options: InfoOptions): Promise<MediaInfo> {
+    console.log('getInfo', options);
+
+    throw this.unimplemented('Not implemented on web.');
+  }
+
   addListener(
-    eventName: 'transcodeProgress',
-    _listenerFunc: (info: ProgressInfo) => void,
+    eventName: 'transcodeProgress' | 'thumbnailReady' | 'editQueued' | 'editMetrics' | 'segmentReady',
+    _listenerFunc: ((info: ProgressInfo) => void) &
+      ((info: ThumbnailInfo) => void) &
+      ((info: JobInfo) => void) &
+      ((info: EditMetricsInfo) => void) &
+      ((info: SegmentInfo) => void),
   ): Promise<PluginListenerHandle> & PluginListenerHandle {
     console.log('addListener', eventName);
 